@@ -0,0 +1,13 @@
+package com.medi.imesh.drone.read;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class DroneReadApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(DroneReadApplication.class, args);
+    }
+
+}
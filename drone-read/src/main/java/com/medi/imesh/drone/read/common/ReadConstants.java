@@ -0,0 +1,16 @@
+package com.medi.imesh.drone.read.common;
+
+/**
+ * This class maintains common constants used by the read API.
+ */
+public class ReadConstants {
+
+    public static final int LOADING_BATTERY_THRESHOLD = 25; // keep in line with the drone write API
+    public static final int DEFAULT_TAIL_SIZE = 50;
+    public static final int MAX_TAIL_SIZE = 1000;
+    public static final int FETCH_SIZE = 256; // rows requested from the database ahead of the client
+    public enum DroneState {
+        IDLE, LOADING, LOADED, DELIVERING, DELIVERED, RETURNING
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.medi.imesh.drone.read.controller;
+
+import com.medi.imesh.drone.read.common.ReadConstants;
+import com.medi.imesh.drone.read.exception.ValidationException;
+import com.medi.imesh.drone.read.model.AuditLogView;
+import com.medi.imesh.drone.read.repository.AuditLogViewRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive controller serving the tail of the audit log to the fleet dashboards.
+ */
+@RestController
+@RequestMapping("/logs")
+public class AuditLogReadController {
+
+    private final AuditLogViewRepository auditLogViewRepository;
+
+    public AuditLogReadController(AuditLogViewRepository auditLogViewRepository) {
+        this.auditLogViewRepository = auditLogViewRepository;
+    }
+
+    /**
+     * Get the tail of the audit log. Without a starting id the newest logs are returned, newest first. With a
+     * starting id the logs written after it are returned, oldest first, so a client can follow the audit log by
+     * passing the id of the last log it received.
+     *
+     * @param afterId Only return logs after this id
+     * @param size    Maximum number of logs to return
+     * @return The audit logs
+     */
+    @GetMapping(value = "/tail", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<AuditLogView> getAuditLogTail(@RequestParam(required = false) Long afterId,
+                                              @RequestParam(required = false) Integer size) {
+
+        int tailSize = size == null ? ReadConstants.DEFAULT_TAIL_SIZE : size;
+        if (tailSize < 1 || tailSize > ReadConstants.MAX_TAIL_SIZE) {
+            throw new ValidationException(String.format("Invalid size %d. Size must be between 1 and %d.",
+                    tailSize, ReadConstants.MAX_TAIL_SIZE));
+        }
+        Flux<AuditLogView> logs = afterId == null
+                ? auditLogViewRepository.findAllBy(PageRequest.of(0, tailSize, Sort.by(Sort.Direction.DESC, "id")))
+                : auditLogViewRepository.findByIdGreaterThan(afterId, PageRequest.of(0, tailSize, Sort.by("id")));
+        return logs.limitRate(ReadConstants.FETCH_SIZE);
+    }
+}
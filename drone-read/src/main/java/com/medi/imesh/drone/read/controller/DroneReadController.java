@@ -0,0 +1,112 @@
+package com.medi.imesh.drone.read.controller;
+
+import com.medi.imesh.drone.read.common.ReadConstants;
+import com.medi.imesh.drone.read.exception.ValidationException;
+import com.medi.imesh.drone.read.model.DroneView;
+import com.medi.imesh.drone.read.model.MedicationInfoView;
+import com.medi.imesh.drone.read.repository.DroneViewRepository;
+import com.medi.imesh.drone.read.repository.LoadedMedicationRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive controller serving the drone reads of the fleet dashboards.
+ * <p>
+ * Rows are streamed from the database as the client consumes the response. Demand from the connection is passed
+ * down to the database driver and at most {@link ReadConstants#FETCH_SIZE} rows are requested ahead of it, so a
+ * slow client holds neither a thread nor the whole result in memory.
+ */
+@RestController
+@RequestMapping("/drones")
+public class DroneReadController {
+
+    private final DroneViewRepository droneViewRepository;
+    private final LoadedMedicationRepository loadedMedicationRepository;
+
+    public DroneReadController(DroneViewRepository droneViewRepository,
+                               LoadedMedicationRepository loadedMedicationRepository) {
+        this.droneViewRepository = droneViewRepository;
+        this.loadedMedicationRepository = loadedMedicationRepository;
+    }
+
+    /**
+     * Stream the drones of the fleet, ordered by serial number.
+     *
+     * @param after Only return drones after this serial number, e.g. the last drone of an interrupted stream.
+     * @return The drones, as a JSON array or as newline delimited JSON.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<DroneView> getDrones(@RequestParam(defaultValue = "") String after) {
+        return droneViewRepository.findBySerialNumberGreaterThanOrderBySerialNumber(after)
+                .limitRate(ReadConstants.FETCH_SIZE);
+    }
+
+    /**
+     * Get details of a specific drone.
+     *
+     * @return Drone details, with its version as the entity tag.
+     */
+    @GetMapping("/{serialNumber}")
+    public Mono<ResponseEntity<DroneView>> getDroneBySerialNumber(@PathVariable String serialNumber) {
+        return droneViewRepository.findById(serialNumber)
+                .map(drone -> {
+                    ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+                    if (drone.version() != null) {
+                        builder.eTag("\"" + drone.version() + "\"");
+                    }
+                    return builder.body(drone);
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get the drones available for loading, ordered by battery capacity.
+     *
+     * @param limit Maximum number of drones to return. All available drones are returned if not given.
+     * @param order Order of the battery capacity, asc or desc. Defaults to desc.
+     * @return The available drones.
+     */
+    @GetMapping(value = "/available",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<DroneView> getAvailableDrones(@RequestParam(required = false) Integer limit,
+                                              @RequestParam(defaultValue = "desc") String order) {
+
+        Sort.Direction direction = Sort.Direction.fromOptionalString(order)
+                .orElseThrow(() -> new ValidationException(String.format("Invalid order %s. Order should be " +
+                        "asc or desc.", order)));
+        if (limit != null && limit < 1) {
+            throw new ValidationException(String.format("Invalid limit %d. Limit must be at least 1.", limit));
+        }
+        Sort sort = Sort.by(direction, "batteryCapacity").and(Sort.by("serialNumber"));
+        Flux<DroneView> drones = limit == null
+                ? droneViewRepository.findByStateAndBatteryCapacityGreaterThanEqual(ReadConstants.DroneState.IDLE,
+                        ReadConstants.LOADING_BATTERY_THRESHOLD, sort)
+                : droneViewRepository.findByStateAndBatteryCapacityGreaterThanEqual(ReadConstants.DroneState.IDLE,
+                        ReadConstants.LOADING_BATTERY_THRESHOLD, PageRequest.of(0, limit, sort));
+        return drones.limitRate(ReadConstants.FETCH_SIZE);
+    }
+
+    /**
+     * Get the medications loaded in a drone.
+     *
+     * @param droneSerialNumber Serial number of the drone
+     * @return Number of packs and total weight of each loaded medication
+     */
+    @GetMapping("/{droneSerialNumber}/medications")
+    public Flux<MedicationInfoView> getLoadedMedications(@PathVariable String droneSerialNumber) {
+        return droneViewRepository.existsById(droneSerialNumber)
+                .flatMapMany(exists -> exists
+                        ? loadedMedicationRepository.findLoadedMedicationInfo(droneSerialNumber)
+                        : Flux.error(new ValidationException(String.format("Drone with serial number %s does not " +
+                        "exist in the system.", droneSerialNumber))));
+    }
+}
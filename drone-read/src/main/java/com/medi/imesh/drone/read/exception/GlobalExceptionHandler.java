@@ -0,0 +1,30 @@
+package com.medi.imesh.drone.read.exception;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Global exception handler of the read API, answering with the same error body as the drone write API.
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    /**
+     * Handler method to handle invalid read requests.
+     *
+     * @param e - Validation exception
+     * @return - Bad request response
+     */
+    @ExceptionHandler(ValidationException.class)
+    public ResponseEntity<Map<String, String>> handleValidationException(ValidationException e) {
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("error", "Request validation failed");
+        errors.put("detail", e.getMessage());
+        return ResponseEntity.badRequest().body(errors);
+    }
+}
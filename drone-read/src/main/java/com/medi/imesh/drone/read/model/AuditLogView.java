@@ -0,0 +1,13 @@
+package com.medi.imesh.drone.read.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model of an audit log.
+ */
+@Table("audit_log")
+public record AuditLogView(@Id Long id, String message, LocalDateTime timestamp) {
+}
@@ -0,0 +1,16 @@
+package com.medi.imesh.drone.read.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.medi.imesh.drone.read.common.ReadConstants;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Read model of a drone, serialized like the drone of the write API.
+ *
+ * @param version Version of the drone, exposed to clients through the ETag header rather than the body
+ */
+@Table("drone")
+public record DroneView(@Id String serialNumber, String model, int weightLimit, int batteryCapacity,
+                        ReadConstants.DroneState state, @JsonIgnore Long version) {
+}
@@ -0,0 +1,7 @@
+package com.medi.imesh.drone.read.model;
+
+/**
+ * Read model of the packs of one medication loaded in a drone.
+ */
+public record MedicationInfoView(Long medicationId, String medicationName, long numberOfPacks, long totalWeight) {
+}
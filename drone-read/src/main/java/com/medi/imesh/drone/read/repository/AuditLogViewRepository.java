@@ -0,0 +1,24 @@
+package com.medi.imesh.drone.read.repository;
+
+import com.medi.imesh.drone.read.model.AuditLogView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive repository interface for reading audit logs.
+ */
+@Repository
+public interface AuditLogViewRepository extends R2dbcRepository<AuditLogView, Long> {
+
+    /**
+     * Find a page of audit logs, e.g. the newest logs when ordered by id descending.
+     */
+    Flux<AuditLogView> findAllBy(Pageable pageable);
+
+    /**
+     * Find the audit logs written after the given id. Used by clients following the audit log, oldest first.
+     */
+    Flux<AuditLogView> findByIdGreaterThan(Long id, Pageable pageable);
+}
@@ -0,0 +1,35 @@
+package com.medi.imesh.drone.read.repository;
+
+import com.medi.imesh.drone.read.common.ReadConstants;
+import com.medi.imesh.drone.read.model.DroneView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive repository interface for reading drones.
+ */
+@Repository
+public interface DroneViewRepository extends R2dbcRepository<DroneView, String> {
+
+    /**
+     * Find the drones after the given serial number, ordered by serial number. Used to stream the fleet and to
+     * resume the stream after the last drone a client received.
+     */
+    Flux<DroneView> findBySerialNumberGreaterThanOrderBySerialNumber(String serialNumber);
+
+    /**
+     * Find the drones in the given state with at least the given battery capacity. Filtering and ordering are done
+     * by the database using the (state, battery_capacity) index.
+     */
+    Flux<DroneView> findByStateAndBatteryCapacityGreaterThanEqual(ReadConstants.DroneState state,
+                                                                  int batteryCapacity, Sort sort);
+
+    /**
+     * Find the first page of drones in the given state with at least the given battery capacity.
+     */
+    Flux<DroneView> findByStateAndBatteryCapacityGreaterThanEqual(ReadConstants.DroneState state,
+                                                                  int batteryCapacity, Pageable pageable);
+}
@@ -0,0 +1,39 @@
+package com.medi.imesh.drone.read.repository;
+
+import com.medi.imesh.drone.read.model.MedicationInfoView;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive repository for reading the medications loaded in drones.
+ */
+@Repository
+public class LoadedMedicationRepository {
+
+    private static final String LOADED_MEDICATIONS_QUERY = "SELECT m.id, m.name, SUM(dm.quantity) AS packs, " +
+            "SUM(dm.quantity * m.weight) AS weight FROM drone_medication dm " +
+            "JOIN medication m ON m.id = dm.medication_id WHERE dm.drone_serial_number = :droneSerialNumber " +
+            "GROUP BY m.id, m.name ORDER BY m.id";
+
+    private final DatabaseClient databaseClient;
+
+    public LoadedMedicationRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Find the number of packs and the total weight of each medication loaded in a drone.
+     * Packs are grouped and summed by the database, so one row is returned per medication.
+     *
+     * @param droneSerialNumber Serial number of the drone
+     * @return Loaded medications, ordered by medication id
+     */
+    public Flux<MedicationInfoView> findLoadedMedicationInfo(String droneSerialNumber) {
+        return databaseClient.sql(LOADED_MEDICATIONS_QUERY)
+                .bind("droneSerialNumber", droneSerialNumber)
+                .map(row -> new MedicationInfoView(row.get("id", Long.class), row.get("name", String.class),
+                        row.get("packs", Long.class), row.get("weight", Long.class)))
+                .all();
+    }
+}
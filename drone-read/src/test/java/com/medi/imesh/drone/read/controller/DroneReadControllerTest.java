@@ -0,0 +1,130 @@
+package com.medi.imesh.drone.read.controller;
+
+import com.medi.imesh.drone.read.common.ReadConstants;
+import com.medi.imesh.drone.read.model.DroneView;
+import com.medi.imesh.drone.read.model.MedicationInfoView;
+import com.medi.imesh.drone.read.repository.DroneViewRepository;
+import com.medi.imesh.drone.read.repository.LoadedMedicationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(DroneReadController.class)
+class DroneReadControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private DroneViewRepository droneViewRepository;
+
+    @MockBean
+    private LoadedMedicationRepository loadedMedicationRepository;
+
+    @Test
+    void getDrones_AsNdjson_StreamsOneDronePerLine() {
+
+        when(droneViewRepository.findBySerialNumberGreaterThanOrderBySerialNumber("DR001")).thenReturn(Flux.just(
+                drone("DR002", 20), drone("DR003", 90)));
+
+        webTestClient.get().uri("/drones?after=DR001").accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> assertEquals(2, body.trim().split("\n").length));
+    }
+
+    @Test
+    void getDroneBySerialNumber_ReturnsDroneWithEntityTag() {
+
+        when(droneViewRepository.findById("DR001")).thenReturn(Mono.just(drone("DR001", 100)));
+
+        webTestClient.get().uri("/drones/DR001")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"3\"")
+                .expectBody()
+                .jsonPath("$.serialNumber").isEqualTo("DR001")
+                .jsonPath("$.version").doesNotExist();
+    }
+
+    @Test
+    void getDroneBySerialNumber_WhenDroneDoesNotExist_ReturnsNotFound() {
+
+        when(droneViewRepository.findById("DR404")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/drones/DR404").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void getAvailableDrones_WithLimit_QueriesFirstPage() {
+
+        when(droneViewRepository.findByStateAndBatteryCapacityGreaterThanEqual(eq(ReadConstants.DroneState.IDLE),
+                eq(ReadConstants.LOADING_BATTERY_THRESHOLD), any(Pageable.class)))
+                .thenReturn(Flux.just(drone("DR001", 100)));
+
+        webTestClient.get().uri("/drones/available?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].serialNumber").isEqualTo("DR001");
+    }
+
+    @Test
+    void getAvailableDrones_WithInvalidOrder_ReturnsBadRequest() {
+
+        webTestClient.get().uri("/drones/available?order=sideways")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Invalid order sideways. Order should be asc or desc.");
+    }
+
+    @Test
+    void getLoadedMedications_WhenDroneDoesNotExist_ReturnsBadRequest() {
+
+        when(droneViewRepository.existsById("DR404")).thenReturn(Mono.just(false));
+
+        webTestClient.get().uri("/drones/DR404/medications")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Drone with serial number DR404 does not exist in the system.");
+        verify(loadedMedicationRepository, never()).findLoadedMedicationInfo("DR404");
+    }
+
+    @Test
+    void getLoadedMedications_ReturnsPacksPerMedication() {
+
+        when(droneViewRepository.existsById("DR010")).thenReturn(Mono.just(true));
+        when(loadedMedicationRepository.findLoadedMedicationInfo("DR010")).thenReturn(Flux.just(
+                new MedicationInfoView(1L, "Aspirin", 3, 300)));
+
+        webTestClient.get().uri("/drones/DR010/medications")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].medicationName").isEqualTo("Aspirin")
+                .jsonPath("$[0].numberOfPacks").isEqualTo(3)
+                .jsonPath("$[0].totalWeight").isEqualTo(300);
+    }
+
+    private static DroneView drone(String serialNumber, int batteryCapacity) {
+        return new DroneView(serialNumber, "Lightweight", 100, batteryCapacity, ReadConstants.DroneState.IDLE, 3L);
+    }
+}
@@ -0,0 +1,71 @@
+package com.medi.imesh.drone.read.repository;
+
+import com.medi.imesh.drone.read.common.ReadConstants;
+import com.medi.imesh.drone.read.model.MedicationInfoView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import reactor.test.StepVerifier;
+
+/**
+ * Checks the reactive reads against the schema of the drone write API.
+ */
+@DataR2dbcTest
+@Import(LoadedMedicationRepository.class)
+class DroneViewRepositoryTest {
+
+    @Autowired
+    private DroneViewRepository droneViewRepository;
+
+    @Autowired
+    private LoadedMedicationRepository loadedMedicationRepository;
+
+    @Autowired
+    private AuditLogViewRepository auditLogViewRepository;
+
+    @Test
+    void findBySerialNumberGreaterThan_StreamsRemainingDronesOnDemand() {
+
+        StepVerifier.create(droneViewRepository.findBySerialNumberGreaterThanOrderBySerialNumber("DR007"), 1)
+                .expectNextMatches(drone -> drone.serialNumber().equals("DR008"))
+                .thenRequest(2)
+                .expectNextMatches(drone -> drone.serialNumber().equals("DR009"))
+                .expectNextMatches(drone -> drone.serialNumber().equals("DR010")
+                        && drone.state() == ReadConstants.DroneState.IDLE && drone.weightLimit() == 500)
+                .verifyComplete();
+    }
+
+    @Test
+    void findByStateAndBatteryCapacity_ReturnsAvailableDronesInOrder() {
+
+        Sort sort = Sort.by(Sort.Direction.ASC, "batteryCapacity").and(Sort.by("serialNumber"));
+
+        StepVerifier.create(droneViewRepository.findByStateAndBatteryCapacityGreaterThanEqual(
+                        ReadConstants.DroneState.IDLE, ReadConstants.LOADING_BATTERY_THRESHOLD,
+                        PageRequest.of(0, 2, sort)))
+                .expectNextMatches(drone -> drone.serialNumber().equals("DR009"))
+                .expectNextMatches(drone -> drone.serialNumber().equals("DR010"))
+                .verifyComplete();
+    }
+
+    @Test
+    void findLoadedMedicationInfo_AggregatesPacksPerMedication() {
+
+        StepVerifier.create(loadedMedicationRepository.findLoadedMedicationInfo("DR010"))
+                .expectNext(new MedicationInfoView(1L, "Aspirin", 3, 300))
+                .expectNext(new MedicationInfoView(2L, "Ibuprofen", 2, 300))
+                .verifyComplete();
+    }
+
+    @Test
+    void findByIdGreaterThan_ReturnsLogsWrittenAfterTheId() {
+
+        StepVerifier.create(auditLogViewRepository.findByIdGreaterThan(1L, PageRequest.of(0, 10, Sort.by("id"))))
+                .expectNextMatches(log -> log.id() == 2L && log.message().contains("DR006"))
+                .expectNextMatches(log -> log.id() == 3L)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,26 @@
+INSERT INTO medication (code, image_url, name, weight) VALUES
+('MED123', 'http://example.com/med1.png', 'Aspirin', 100),
+('MED_456', 'http://example.com/med2.png', 'Ibuprofen', 150),
+('MED789', 'http://example.com/med3.png', 'Acetaminophen', 120),
+('MED_101', 'http://example.com/med4.png', 'Amoxicillin', 80),
+('MED112', 'http://example.com/med5.png', 'Cephalexin', 200);
+
+INSERT INTO drone (serial_number, battery_capacity, model, state, weight_limit) VALUES
+('DR001', 100, 'Lightweight', 'IDLE', 100),
+('DR002', 20, 'Lightweight', 'IDLE', 100),
+('DR003', 90, 'Middleweight', 'IDLE', 200),
+('DR004', 90, 'Middleweight', 'IDLE', 200),
+('DR005', 80, 'Cruiserweight', 'IDLE', 300),
+('DR006', 20, 'Cruiserweight', 'IDLE', 300),
+('DR007', 70, 'Heavyweight', 'IDLE', 400),
+('DR008', 10, 'Heavyweight', 'IDLE', 400),
+('DR009', 60, 'Heavyweight', 'IDLE', 500),
+('DR010', 60, 'Heavyweight', 'IDLE', 500);
+INSERT INTO drone_medication (drone_serial_number, medication_id, quantity) VALUES
+('DR010', 2, 2),
+('DR010', 1, 3);
+
+INSERT INTO audit_log (message, timestamp) VALUES
+('Drone DR002 has low battery level: 20', TIMESTAMP '2024-04-01 10:00:00'),
+('Drone DR006 has low battery level: 20', TIMESTAMP '2024-04-01 10:00:01'),
+('Drone DR008 has low battery level: 10', TIMESTAMP '2024-04-01 10:00:02');
@@ -0,0 +1,41 @@
+-- Tables of the drone write API read by this module, as generated by Hibernate
+CREATE TABLE drone (
+    serial_number VARCHAR(100) NOT NULL PRIMARY KEY,
+    battery_capacity INTEGER NOT NULL,
+    model VARCHAR(255),
+    state VARCHAR(255),
+    weight_limit INTEGER NOT NULL,
+    loaded_weight INTEGER DEFAULT 0 NOT NULL,
+    loaded_pack_count INTEGER DEFAULT 0 NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL
+);
+CREATE INDEX idx_drone_state_battery ON drone (state, battery_capacity);
+
+CREATE TABLE medication (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    code VARCHAR(255),
+    image_url VARCHAR(255),
+    name VARCHAR(255),
+    weight INTEGER NOT NULL,
+    in_flight_count INTEGER DEFAULT 0 NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE drone_medication (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    drone_serial_number VARCHAR(100) REFERENCES drone (serial_number),
+    medication_id BIGINT REFERENCES medication (id),
+    quantity INTEGER DEFAULT 1 NOT NULL,
+    CONSTRAINT uk_drone_medication UNIQUE (drone_serial_number, medication_id)
+);
+
+CREATE TABLE audit_log (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type VARCHAR(32),
+    drone_serial_number VARCHAR(100),
+    medication_id BIGINT,
+    old_value VARCHAR(255),
+    new_value VARCHAR(255),
+    message VARCHAR(255),
+    timestamp TIMESTAMP(6)
+);
@@ -0,0 +1,65 @@
+package com.medi.imesh.drone.actuator;
+
+import com.medi.imesh.drone.service.DroneMonitoringService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint for reading and changing the settings of the battery monitor at runtime.
+ * <p>
+ * The endpoint changes how the monitor runs, so it is only exposed over JMX, see application.properties. It must
+ * not be added to the web exposure unless the actuator endpoints are secured.
+ */
+@Component
+@Endpoint(id = "batterymonitor")
+public class BatteryMonitorEndpoint {
+
+    private final DroneMonitoringService droneMonitoringService;
+
+    public BatteryMonitorEndpoint(DroneMonitoringService droneMonitoringService) {
+        this.droneMonitoringService = droneMonitoringService;
+    }
+
+    /**
+     * Get the settings of the battery monitor, the partitions this instance scans when the scan is partitioned, and
+     * the drones currently alerted as low by any instance.
+     *
+     * @return Settings, partitions and low battery drones
+     */
+    @ReadOperation
+    public Map<String, Object> settings() {
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("batteryThreshold", droneMonitoringService.getBatteryThreshold());
+        settings.put("interval", droneMonitoringService.getMonitoringInterval().toString());
+        settings.put("realertPeriod", droneMonitoringService.getRealertPeriod().toString());
+        if (droneMonitoringService.getPartitions() > 1) {
+            settings.put("partitions", droneMonitoringService.getPartitions());
+            settings.put("ownedPartitions", droneMonitoringService.getOwnedPartitions());
+        }
+        settings.put("lowBatteryDrones", droneMonitoringService.getLowBatteryDrones().stream().sorted().toList());
+        return settings;
+    }
+
+    /**
+     * Change the settings of the battery monitor. Settings that are not given are kept.
+     *
+     * @param batteryThreshold Battery capacity below which a drone is recorded
+     * @param interval         Time between two checks, e.g. 30s
+     * @param realertPeriod    Time after which a drone that is still low is recorded again, e.g. 1h
+     * @return The new settings
+     */
+    @WriteOperation
+    public Map<String, Object> updateSettings(@Nullable Integer batteryThreshold, @Nullable Duration interval,
+                                              @Nullable Duration realertPeriod) {
+        droneMonitoringService.updateSettings(batteryThreshold, interval, realertPeriod);
+        return settings();
+    }
+}
@@ -0,0 +1,76 @@
+package com.medi.imesh.drone.cache;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.model.Drone;
+
+/**
+ * Immutable view of the state of a drone held in the fleet state cache.
+ */
+public final class DroneSnapshot {
+
+    private final String serialNumber;
+    private final String model;
+    private final int weightLimit;
+    private final int batteryCapacity;
+    private final ApplicationConstants.DroneState state;
+    private final int loadedWeight;
+    private final int loadedPackCount;
+    private final Long version;
+
+    public DroneSnapshot(String serialNumber, String model, int weightLimit, int batteryCapacity,
+                         ApplicationConstants.DroneState state, int loadedWeight, int loadedPackCount,
+                         Long version) {
+        this.serialNumber = serialNumber;
+        this.model = model;
+        this.weightLimit = weightLimit;
+        this.batteryCapacity = batteryCapacity;
+        this.state = state;
+        this.loadedWeight = loadedWeight;
+        this.loadedPackCount = loadedPackCount;
+        this.version = version;
+    }
+
+    /**
+     * Create a snapshot from the current values of a drone entity.
+     *
+     * @param drone Drone entity
+     * @return Snapshot of the drone
+     */
+    public static DroneSnapshot of(Drone drone) {
+        return new DroneSnapshot(drone.getSerialNumber(), drone.getModel(), drone.getWeightLimit(),
+                drone.getBatteryCapacity(), drone.getState(), drone.getLoadedWeight(), drone.getLoadedPackCount(),
+                drone.getVersion());
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getWeightLimit() {
+        return weightLimit;
+    }
+
+    public int getBatteryCapacity() {
+        return batteryCapacity;
+    }
+
+    public ApplicationConstants.DroneState getState() {
+        return state;
+    }
+
+    public int getLoadedWeight() {
+        return loadedWeight;
+    }
+
+    public int getLoadedPackCount() {
+        return loadedPackCount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,246 @@
+package com.medi.imesh.drone.cache;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.model.Drone;
+import com.medi.imesh.drone.repository.DroneRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-through cache of the fleet state that sits in front of {@link DroneRepository}.
+ * <p>
+ * Holds an immutable {@link DroneSnapshot} per drone keyed by serial number. Reads are served from memory and
+ * fall back to the repository on a miss. Writes are persisted through the repository first, so the database
+ * remains the system of record, and the cached snapshot is replaced once the surrounding transaction commits.
+ * <p>
+ * A snapshot loaded on a miss is only cached if no write or eviction of the drone happened while it was loaded, or
+ * if it is newer than the snapshot cached in the meantime, so a stale read cannot overwrite a committed write.
+ * Writes of other application instances are not seen by this cache, so every snapshot expires after
+ * {@link ApplicationConstants#FLEET_STATE_CACHE_TTL} and is then reloaded from the database.
+ */
+@Component
+public class FleetStateCache implements MeterBinder {
+
+    private final DroneRepository droneRepository;
+    private final Clock clock;
+    private final long ttlMillis;
+    // Entries without a snapshot mark drones written or evicted since they were last loaded
+    private final ConcurrentMap<String, Entry> snapshots = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public FleetStateCache(DroneRepository droneRepository) {
+        this(droneRepository, Clock.systemUTC(), ApplicationConstants.FLEET_STATE_CACHE_TTL);
+    }
+
+    FleetStateCache(DroneRepository droneRepository, Clock clock, long ttlMillis) {
+        this.droneRepository = droneRepository;
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Get the snapshot of a drone, loading it from the repository on a cache miss.
+     *
+     * @param serialNumber Serial number of the drone
+     * @return An Optional containing the snapshot, or empty if the drone does not exist
+     */
+    public Optional<DroneSnapshot> find(String serialNumber) {
+
+        if (serialNumber == null) {
+            return Optional.empty();
+        }
+        Entry observed = snapshots.get(serialNumber);
+        if (observed != null && observed.isLive(clock.millis())) {
+            hits.increment();
+            return Optional.of(observed.snapshot);
+        }
+        misses.increment();
+        // Loaded outside of the map, so a slow query does not block the other drones of the same bin
+        DroneSnapshot loaded = droneRepository.findBySerialNumber(serialNumber).map(DroneSnapshot::of).orElse(null);
+        if (loaded == null) {
+            if (observed != null) {
+                snapshots.remove(serialNumber, observed);
+            }
+            return Optional.empty();
+        }
+        Entry entry = new Entry(loaded, clock.millis() + ttlMillis);
+        boolean cached = observed == null ? snapshots.putIfAbsent(serialNumber, entry) == null
+                : snapshots.replace(serialNumber, observed, entry);
+        if (cached) {
+            return Optional.of(loaded);
+        }
+        // The entry changed while the drone was loaded, a newer cached snapshot wins over the loaded one
+        Entry current = snapshots.get(serialNumber);
+        if (current != null && current.snapshot != null && isNotOlder(current.snapshot, loaded)) {
+            return Optional.of(current.snapshot);
+        }
+        return Optional.of(loaded);
+    }
+
+    /**
+     * Check if a drone exists in the system.
+     *
+     * @param serialNumber Serial number of the drone
+     * @return true if the drone exists, false otherwise
+     */
+    public boolean exists(String serialNumber) {
+        return find(serialNumber).isPresent();
+    }
+
+    /**
+     * Persist a drone through the repository and refresh its cached snapshot. The drone is flushed first, so the
+     * snapshot and the returned drone carry the version written by the update.
+     *
+     * @param drone Drone entity to save
+     * @return The saved drone entity
+     */
+    public Drone save(Drone drone) {
+
+        Drone savedDrone = droneRepository.saveAndFlush(drone);
+        publish(savedDrone.getSerialNumber(), DroneSnapshot.of(savedDrone));
+        return savedDrone;
+    }
+
+    /**
+     * Persist several drones through the repository and refresh their cached snapshots.
+     *
+     * @param drones Drone entities to save
+     * @return The saved drone entities
+     */
+    public List<Drone> saveAll(List<Drone> drones) {
+
+        List<Drone> savedDrones = droneRepository.saveAll(drones);
+        for (Drone savedDrone : savedDrones) {
+            publish(savedDrone.getSerialNumber(), DroneSnapshot.of(savedDrone));
+        }
+        return savedDrones;
+    }
+
+    /**
+     * Delete a drone through the repository and remove its cached snapshot.
+     *
+     * @param drone Drone entity to delete
+     */
+    public void delete(Drone drone) {
+
+        droneRepository.delete(drone);
+        publish(drone.getSerialNumber(), null);
+    }
+
+    /**
+     * Remove the cached snapshot of a drone so that the next read reloads it from the repository.
+     * Used when drone columns are changed by bulk statements that bypass {@link #save(Drone)}.
+     *
+     * @param serialNumber Serial number of the drone
+     */
+    public void evict(String serialNumber) {
+        publish(serialNumber, null);
+    }
+
+    /**
+     * Remove all cached snapshots. Inside a transaction the cache is cleared again after it completes.
+     */
+    public void clear() {
+
+        snapshots.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    snapshots.clear();
+                }
+            });
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return (int) snapshots.values().stream().filter(entry -> entry.snapshot != null).count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("drone.fleet.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Fleet state cache lookups served from memory")
+                .register(registry);
+        FunctionCounter.builder("drone.fleet.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Fleet state cache lookups that went to the database")
+                .register(registry);
+        Gauge.builder("drone.fleet.cache.size", this, FleetStateCache::size)
+                .description("Number of drones held in the fleet state cache")
+                .register(registry);
+    }
+
+    /**
+     * Replace (or remove, if the snapshot is null) the cached entry of a drone. Inside a transaction the entry is
+     * evicted straight away and only re-published after commit, so readers never see uncommitted state. Every call
+     * replaces the entry, so a snapshot loaded before it is not cached.
+     */
+    private void publish(String serialNumber, DroneSnapshot snapshot) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(serialNumber, snapshot);
+            return;
+        }
+        apply(serialNumber, null);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                apply(serialNumber, status == STATUS_COMMITTED ? snapshot : null);
+            }
+        });
+    }
+
+    private void apply(String serialNumber, DroneSnapshot snapshot) {
+        snapshots.put(serialNumber, new Entry(snapshot, clock.millis() + ttlMillis));
+    }
+
+    private static boolean isNotOlder(DroneSnapshot current, DroneSnapshot loaded) {
+        return current.getVersion() != null && loaded.getVersion() != null
+                && current.getVersion() >= loaded.getVersion();
+    }
+
+    /**
+     * Cached snapshot of a drone with the time it expires, in epoch milliseconds. The snapshot is null for drones
+     * written or evicted since they were last loaded.
+     */
+    private static final class Entry {
+
+        private final DroneSnapshot snapshot;
+        private final long expiresAt;
+
+        private Entry(DroneSnapshot snapshot, long expiresAt) {
+            this.snapshot = snapshot;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isLive(long now) {
+            return snapshot != null && now < expiresAt;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.medi.imesh.drone.cache;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.MedicationDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded near cache of the medication catalog used by the medication service.
+ * <p>
+ * Entries are kept in access order and the least recently used medication is evicted once the cache is full.
+ * The catalog changes rarely, so entries are only removed when a medication is saved or deleted. Callers always
+ * receive a copy of the cached medication, so the cached values cannot be modified.
+ */
+@Component
+public class MedicationCache implements MeterBinder {
+
+    private final int maxSize;
+    private final Map<Long, MedicationDTO> medications;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public MedicationCache() {
+        this(ApplicationConstants.MEDICATION_CACHE_MAX_SIZE);
+    }
+
+    MedicationCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.medications = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MedicationDTO> eldest) {
+                if (size() > MedicationCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a cached medication.
+     *
+     * @param id ID of the medication
+     * @return An Optional containing a copy of the cached medication, or empty on a cache miss
+     */
+    public Optional<MedicationDTO> get(Long id) {
+
+        MedicationDTO medication;
+        synchronized (medications) {
+            medication = medications.get(id);
+        }
+        if (medication == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(copy(medication));
+    }
+
+    /**
+     * Add a medication to the cache, evicting the least recently used medication if the cache is full.
+     *
+     * @param medication Medication to cache
+     */
+    public void put(MedicationDTO medication) {
+
+        MedicationDTO cached = copy(medication);
+        synchronized (medications) {
+            medications.put(cached.getId(), cached);
+        }
+    }
+
+    /**
+     * Remove a medication from the cache so that the next read reloads it from the database.
+     *
+     * @param id ID of the medication
+     */
+    public void evict(Long id) {
+        synchronized (medications) {
+            medications.remove(id);
+        }
+    }
+
+    /**
+     * Remove all medications from the cache.
+     */
+    public void clear() {
+        synchronized (medications) {
+            medications.clear();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the ratio of lookups served from the cache.
+     *
+     * @return Hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long hitCount = getHitCount();
+        long requestCount = hitCount + getMissCount();
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    public int size() {
+        synchronized (medications) {
+            return medications.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("drone.medication.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Medication cache lookups served from memory")
+                .register(registry);
+        FunctionCounter.builder("drone.medication.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Medication cache lookups that went to the database")
+                .register(registry);
+        FunctionCounter.builder("drone.medication.cache.evictions", evictions, LongAdder::sum)
+                .description("Medications evicted from the medication cache because it was full")
+                .register(registry);
+        Gauge.builder("drone.medication.cache.size", this, MedicationCache::size)
+                .description("Number of medications held in the medication cache")
+                .register(registry);
+    }
+
+    private static MedicationDTO copy(MedicationDTO medication) {
+
+        MedicationDTO copy = new MedicationDTO();
+        copy.setId(medication.getId());
+        copy.setName(medication.getName());
+        copy.setCode(medication.getCode());
+        copy.setWeight(medication.getWeight());
+        copy.setImageUrl(medication.getImageUrl());
+        copy.setVersion(medication.getVersion());
+        return copy;
+    }
+}
@@ -6,7 +6,40 @@ package com.medi.imesh.drone.common;
 public class ApplicationConstants {
 
     public static final int LOADING_BATTERY_THRESHOLD = 25;
-    public static final int MONITORING_INTERVAL = 120000; // defined in milliseconds
+    public static final int MONITORING_INTERVAL = 900000; // defined in milliseconds
+    public static final int MONITORING_REALERT_PERIOD = 1800000; // defined in milliseconds
+    public static final long MONITORING_MIN_INTERVAL = 10000L; // defined in milliseconds
+    public static final long MONITORING_MAX_INTERVAL = 86400000L; // defined in milliseconds
+    public static final long MONITORING_MAX_REALERT_PERIOD = 604800000L; // defined in milliseconds
+    public static final int COUNTER_RECONCILIATION_INTERVAL = 600000; // defined in milliseconds
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final String STREAM_FETCH_SIZE = "500"; // rows fetched per JDBC round trip when streaming
+    public static final long FLEET_STATE_CACHE_TTL = 30000L; // defined in milliseconds, writes of other instances unseen until
+    public static final int MEDICATION_CACHE_MAX_SIZE = 1000;
+    public static final int JDBC_BATCH_SIZE = 50; // keep in line with hibernate.jdbc.batch_size
+    public static final int MAX_BULK_REGISTRATION_SIZE = 5000;
+    public static final int TELEMETRY_FLUSH_INTERVAL = 1000; // defined in milliseconds
+    public static final int MAX_TELEMETRY_READINGS = 10000; // readings accepted in a single ingest request
+    public static final long TELEMETRY_UNKNOWN_DRONE_TTL = 60000L; // defined in milliseconds
+    public static final int TELEMETRY_UNKNOWN_DRONE_CACHE_SIZE = 10000; // unknown serial numbers remembered
+    public static final String DRONE_QUERY_CACHE_REGION = "drone-queries"; // cached drone lookups by serial number
+    public static final long EVENT_STREAM_TIMEOUT = 1800000L; // defined in milliseconds, clients reconnect after it
+    public static final int EVENT_SUBSCRIBER_BUFFER_SIZE = 256; // events queued per client before it is dropped
+    public static final int EVENT_SEND_TIMEOUT = 10000; // defined in milliseconds, a client stuck longer is dropped
+    public static final int EVENT_DISPATCHER_THREADS = 8; // threads sending events to the clients
+    public static final int EVENT_DISPATCHER_BACKLOG = 1024; // clients waiting for a thread before new ones are dropped
+    public static final int COMMAND_DISPATCHER_STRIPES = 16; // drones whose commands can run in parallel
+    public static final long COMMAND_DISPATCHER_WAIT = 5000L; // defined in milliseconds, for a command to start
+    public static final int AUDIT_LOG_FLUSH_INTERVAL = 1000; // defined in milliseconds
+    public static final int AUDIT_LOG_BUFFER_CAPACITY = 8192; // audit logs waiting to be written
+    public static final int AUDIT_LOG_RECENT_SIZE = 1000; // latest audit logs kept in memory
+    public enum AuditLogOverflowPolicy {
+        DROP_NEWEST, DROP_OLDEST, CALLER_RUNS
+    }
+    public enum AuditEventType {
+        STATE_CHANGED, MEDICATION_LOADED, MEDICATIONS_UNLOADED, LOW_BATTERY
+    }
     public enum DroneState {
         IDLE, LOADING, LOADED, DELIVERING, DELIVERED, RETURNING
     }
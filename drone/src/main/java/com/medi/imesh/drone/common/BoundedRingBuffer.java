@@ -0,0 +1,132 @@
+package com.medi.imesh.drone.common;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded first-in first-out buffer that any number of threads can add to and take from without locking.
+ * <p>
+ * Every slot of the ring carries a sequence number telling whether it is free for the producer at a position or
+ * filled for the consumer at that position. Producers and consumers claim a position with a compare-and-set on the
+ * tail or the head, then fill or empty the slot and publish it by advancing its sequence. A full buffer rejects new
+ * elements instead of waiting, so the caller decides what to drop.
+ *
+ * @param <E> Type of the buffered elements
+ */
+public class BoundedRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity Maximum number of buffered elements, rounded up to a power of two of at least 2
+     */
+    public BoundedRingBuffer(int capacity) {
+
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Invalid capacity %d. Capacity must be between 1 and %d.",
+                    capacity, 1 << 30));
+        }
+        this.capacity = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.elements = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element at the tail of the buffer, if there is room for it.
+     *
+     * @param element Element to add
+     * @return true if the element was added, false if the buffer is full
+     */
+    public boolean offer(E element) {
+
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (available < 0) {
+                // The slot still holds the element added one lap before
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Take the element at the head of the buffer.
+     *
+     * @return The oldest element, or null if the buffer is empty
+     */
+    public E poll() {
+
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long filled = sequences.get(index) - (position + 1);
+            if (filled == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = elements.getAndSet(index, null);
+                    sequences.set(index, position + capacity);
+                    return element;
+                }
+                position = head.get();
+            } else if (filled < 0) {
+                // The slot has not been filled yet
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Take elements from the head of the buffer, oldest first.
+     *
+     * @param target      Collection the elements are added to
+     * @param maxElements Maximum number of elements to take
+     * @return Number of elements taken
+     */
+    public int drainTo(Collection<? super E> target, int maxElements) {
+
+        int drained = 0;
+        E element;
+        while (drained < maxElements && (element = poll()) != null) {
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Number of buffered elements, which may be out of date as soon as it is returned.
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head.get()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,114 @@
+package com.medi.imesh.drone.common;
+
+import com.medi.imesh.drone.dto.CursorPageDTO;
+import com.medi.imesh.drone.exception.ValidationException;
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Helper methods for keyset pagination.
+ * A cursor holds the sort key of the last item of a page, tagged with the resource it belongs to and
+ * encoded so that clients treat it as opaque.
+ */
+public class CursorPagination {
+
+    private static final String SEPARATOR = ":";
+
+    private CursorPagination() {
+    }
+
+    /**
+     * Resolve the requested page size, falling back to the default size.
+     *
+     * @param size Requested page size, or null
+     * @return Page size to use
+     */
+    public static int resolvePageSize(Integer size) {
+
+        if (size == null) {
+            return ApplicationConstants.DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1 || size > ApplicationConstants.MAX_PAGE_SIZE) {
+            throw new ValidationException(String.format("Invalid page size %d. Page size must be between 1 and %d.",
+                    size, ApplicationConstants.MAX_PAGE_SIZE));
+        }
+        return size;
+    }
+
+    /**
+     * Encode the sort key of the last item of a page as a cursor.
+     *
+     * @param resource Resource the cursor belongs to
+     * @param key      Sort key of the last item
+     * @return Opaque cursor
+     */
+    public static String encode(String resource, Object key) {
+
+        String value = resource + SEPARATOR + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor issued by {@link #encode(String, Object)} for the given resource.
+     *
+     * @param resource Resource the cursor should belong to
+     * @param cursor   Cursor received from the client
+     * @return Sort key held by the cursor
+     */
+    public static String decode(String resource, String cursor) {
+
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(String.format("Invalid cursor %s.", cursor));
+        }
+        String prefix = resource + SEPARATOR;
+        if (!value.startsWith(prefix) || value.length() == prefix.length()) {
+            throw new ValidationException(String.format("Invalid cursor %s.", cursor));
+        }
+        return value.substring(prefix.length());
+    }
+
+    /**
+     * Decode a cursor holding a numeric sort key.
+     *
+     * @param resource Resource the cursor should belong to
+     * @param cursor   Cursor received from the client
+     * @return Sort key held by the cursor
+     */
+    public static long decodeLong(String resource, String cursor) {
+
+        try {
+            return Long.parseLong(decode(resource, cursor));
+        } catch (NumberFormatException e) {
+            throw new ValidationException(String.format("Invalid cursor %s.", cursor));
+        }
+    }
+
+    /**
+     * Build a cursor page from a slice. The next cursor is only set when the slice has more items.
+     *
+     * @param slice    Slice fetched from the repository
+     * @param mapper   Mapper from the entity to the returned item
+     * @param resource Resource the cursor belongs to
+     * @param keyOf    Function extracting the sort key of an entity
+     * @return Cursor page
+     */
+    public static <E, T> CursorPageDTO<T> toPage(Slice<E> slice, Function<E, T> mapper, String resource,
+                                                 Function<E, Object> keyOf) {
+
+        List<E> content = slice.getContent();
+        List<T> items = content.stream().map(mapper).collect(Collectors.toList());
+        String nextCursor = null;
+        if (slice.hasNext() && !content.isEmpty()) {
+            nextCursor = encode(resource, keyOf.apply(content.get(content.size() - 1)));
+        }
+        return new CursorPageDTO<>(items, nextCursor);
+    }
+}
@@ -0,0 +1,50 @@
+package com.medi.imesh.drone.common;
+
+import com.medi.imesh.drone.exception.PreconditionFailedException;
+
+/**
+ * Helper methods for entity tags derived from entity versions.
+ */
+public class EntityTags {
+
+    private static final String ANY = "*";
+    private static final String QUOTE = "\"";
+
+    private EntityTags() {
+    }
+
+    /**
+     * Create the strong entity tag of an entity version.
+     *
+     * @param version Version of the entity
+     * @return Quoted entity tag, or null if the entity has no version
+     */
+    public static String of(Long version) {
+        return version == null ? null : QUOTE + version + QUOTE;
+    }
+
+    /**
+     * Parse the version expected by an If-Match header.
+     *
+     * @param ifMatch Value of the If-Match header
+     * @return Expected version, or null if the header is absent or matches any version
+     */
+    public static Long parseIfMatch(String ifMatch) {
+
+        if (ifMatch == null || ifMatch.isBlank() || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+        String entityTag = ifMatch.trim();
+        // If-Match uses strong comparison, so weak and malformed tags can never match
+        if (entityTag.length() < 3 || !entityTag.startsWith(QUOTE) || !entityTag.endsWith(QUOTE)) {
+            throw new PreconditionFailedException(String.format("Entity tag %s does not match the current " +
+                    "version.", ifMatch));
+        }
+        try {
+            return Long.parseLong(entityTag.substring(1, entityTag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException(String.format("Entity tag %s does not match the current " +
+                    "version.", ifMatch));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.medi.imesh.drone.common;
+
+import org.h2.tools.Server;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.sql.SQLException;
+
+/**
+ * Opens the in-memory H2 database to other processes on the local machine, such as the reactive read API,
+ * when drone.h2.tcp-port is set. Only existing databases can be opened through the server.
+ */
+@Configuration
+@ConditionalOnProperty("drone.h2.tcp-port")
+public class H2ServerConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public Server h2TcpServer(@Value("${drone.h2.tcp-port}") String port) throws SQLException {
+        return Server.createTcpServer("-tcp", "-tcpPort", port, "-ifExists");
+    }
+}
@@ -0,0 +1,43 @@
+package com.medi.imesh.drone.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes objects to an output stream as newline delimited JSON, one object per line.
+ * Each object is serialized directly to the stream, so nothing but the current object is held in memory.
+ */
+public class NdjsonWriter<T> implements Consumer<T> {
+
+    private static final int NEW_LINE = '\n';
+
+    private final ObjectWriter objectWriter;
+    private final OutputStream outputStream;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) {
+        this.objectWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Write the given object as a single line.
+     *
+     * @param value Object to write
+     */
+    @Override
+    public void accept(T value) {
+
+        try {
+            objectWriter.writeValue(outputStream, value);
+            outputStream.write(NEW_LINE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.medi.imesh.drone.common;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, when the application runs on virtual threads.
+ * <p>
+ * A virtual thread that blocks inside a synchronized block or a native frame cannot unmount, so it keeps its
+ * carrier thread busy and, when this happens on every carrier, stalls all other virtual threads. Most of the
+ * blocking in this application happens in the repository layer, i.e. in the JDBC driver, the connection pool and
+ * Hibernate, so every pin is attributed to the application method it happened in and counted separately when it
+ * happened during data access. The pins are read from the JFR {@value #PINNED_EVENT} event of the running JVM,
+ * each application method is logged the first time it pins a thread.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor implements MeterBinder {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    static final String UNKNOWN_SITE = "unknown";
+    private static final String APPLICATION_PACKAGE = "com.medi.imesh.drone.";
+    private static final List<String> DATA_ACCESS_PACKAGES = List.of(APPLICATION_PACKAGE + "repository.",
+            "org.springframework.data.", "org.springframework.orm.", "org.springframework.jdbc.", "org.hibernate.",
+            "com.zaxxer.hikari.", "org.h2.", "com.mysql.");
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private final Duration threshold;
+    private final LongAdder pinned = new LongAdder();
+    private final LongAdder pinnedDuringDataAccess = new LongAdder();
+    private final Map<String, LongAdder> pinnedBySite = new ConcurrentHashMap<>();
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(@Value("${drone.virtual-threads.pinning-threshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        logger.info("Reporting virtual threads pinned for longer than {} ms", threshold.toMillis());
+    }
+
+    /**
+     * Count a pinned virtual thread and log the application method it happened in, the first time it happens there.
+     *
+     * @param event Pinned virtual thread event
+     */
+    void onPinned(RecordedEvent event) {
+
+        List<String> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames().stream()
+                .map(VirtualThreadPinningMonitor::describe)
+                .toList();
+        String site = findApplicationSite(frames);
+        boolean dataAccess = isDataAccess(frames);
+
+        pinned.increment();
+        if (dataAccess) {
+            pinnedDuringDataAccess.increment();
+        }
+        LongAdder siteCount = pinnedBySite.computeIfAbsent(site, key -> new LongAdder());
+        siteCount.increment();
+        if (siteCount.sum() == 1) {
+            logger.warn("Virtual thread pinned for {} ms in {}{}, top of stack: {}", event.getDuration().toMillis(),
+                    site, dataAccess ? " during data access" : "", frames.stream().limit(5).toList());
+        }
+    }
+
+    /**
+     * Find the innermost application method of a stack trace.
+     *
+     * @param frames Frames of the stack trace, innermost first, as "class.method"
+     * @return The innermost application method, or {@value #UNKNOWN_SITE} if the stack holds none
+     */
+    static String findApplicationSite(List<String> frames) {
+        return frames.stream()
+                .filter(frame -> frame.startsWith(APPLICATION_PACKAGE))
+                .filter(frame -> !frame.startsWith(VirtualThreadPinningMonitor.class.getName()))
+                .findFirst()
+                .orElse(UNKNOWN_SITE);
+    }
+
+    /**
+     * Check whether a stack trace passes through the repository layer or the data access libraries below it.
+     *
+     * @param frames Frames of the stack trace as "class.method"
+     * @return true if any frame belongs to the data access layer
+     */
+    static boolean isDataAccess(List<String> frames) {
+        return frames.stream().anyMatch(frame -> DATA_ACCESS_PACKAGES.stream().anyMatch(frame::startsWith));
+    }
+
+    public long getPinnedCount() {
+        return pinned.sum();
+    }
+
+    public Map<String, Long> getPinnedCountBySite() {
+
+        Map<String, Long> counts = new ConcurrentHashMap<>();
+        pinnedBySite.forEach((site, count) -> counts.put(site, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("drone.virtual.threads.pinned", pinnedDuringDataAccess, LongAdder::sum)
+                .description("Virtual threads pinned to their carrier thread beyond the reporting threshold")
+                .tag("layer", "data-access")
+                .register(registry);
+        FunctionCounter.builder("drone.virtual.threads.pinned", this,
+                        monitor -> monitor.pinned.sum() - monitor.pinnedDuringDataAccess.sum())
+                .description("Virtual threads pinned to their carrier thread beyond the reporting threshold")
+                .tag("layer", "other")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+}
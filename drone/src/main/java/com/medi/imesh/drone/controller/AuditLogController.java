@@ -1,15 +1,21 @@
 package com.medi.imesh.drone.controller;
 
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.CursorPageDTO;
 import com.medi.imesh.drone.model.AuditLog;
+import com.medi.imesh.drone.repository.AuditLogFilter;
 import com.medi.imesh.drone.service.AuditLogService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * Controller for handling audit log requests.
  */
@@ -25,15 +31,37 @@ public class AuditLogController {
     }
 
     /**
-     * Get all audit logs of the system.
+     * Get audit logs of the system, newest first, optionally within a time range and of an event type or drone.
      *
-     * @param pageable - Pagination data
+     * @param cursor            - Cursor returned with the previous page
+     * @param size              - Maximum number of audit logs in the page
+     * @param from              - Earliest timestamp, inclusive
+     * @param to                - Latest timestamp, exclusive
+     * @param type              - Type of the audit events
+     * @param droneSerialNumber - Serial number of the drone the audit events are about
      * @return - Audit log response
      */
     @GetMapping
-    public ResponseEntity<Page<AuditLog>> getAllAuditLogs(Pageable pageable) {
-        Page<AuditLog> auditLogs = auditLogService.getAllAuditLogs(pageable);
+    public ResponseEntity<CursorPageDTO<AuditLog>> getAuditLogs(
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) ApplicationConstants.AuditEventType type,
+            @RequestParam(required = false) String droneSerialNumber) {
+        CursorPageDTO<AuditLog> auditLogs = auditLogService.getAuditLogs(cursor, size,
+                new AuditLogFilter(from, to, type, droneSerialNumber));
         return ResponseEntity.ok(auditLogs);
     }
 
+    /**
+     * Get the latest audit logs recorded by this instance, newest first, without reading the database.
+     *
+     * @param limit - Maximum number of audit logs
+     * @return - Latest audit logs
+     */
+    @GetMapping("/recent")
+    public ResponseEntity<List<AuditLog>> getRecentAuditLogs(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(auditLogService.getRecentAuditLogs(limit));
+    }
+
 }
@@ -1,12 +1,33 @@
 package com.medi.imesh.drone.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.common.EntityTags;
+import com.medi.imesh.drone.common.NdjsonWriter;
+import com.medi.imesh.drone.dto.BatteryTelemetryRequestDTO;
+import com.medi.imesh.drone.dto.CursorPageDTO;
 import com.medi.imesh.drone.dto.DroneBatteryLevelUpdateDTO;
 import com.medi.imesh.drone.dto.DroneDTO;
+import com.medi.imesh.drone.dto.DroneLoadRequestDTO;
+import com.medi.imesh.drone.dto.DroneRegistrationRequestDTO;
 import com.medi.imesh.drone.dto.DroneStateUpdateDTO;
 import com.medi.imesh.drone.dto.MedicationInfoDTO;
+import com.medi.imesh.drone.dto.TelemetryIngestResultDTO;
+import com.medi.imesh.drone.event.DroneChangedEvent;
+import com.medi.imesh.drone.event.DroneEventBroadcaster;
+import com.medi.imesh.drone.model.AuditLog;
+import com.medi.imesh.drone.repository.AuditLogFilter;
+import com.medi.imesh.drone.service.DroneCommandDispatcher;
 import com.medi.imesh.drone.service.DroneService;
+import com.medi.imesh.drone.service.TelemetryIngestService;
 import jakarta.validation.Valid;
+import com.medi.imesh.drone.exception.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,12 +35,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,10 +57,20 @@ import java.util.Optional;
 public class DroneController {
 
     private final DroneService droneService;
+    private final DroneCommandDispatcher droneCommandDispatcher;
+    private final TelemetryIngestService telemetryIngestService;
+    private final DroneEventBroadcaster droneEventBroadcaster;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public DroneController(DroneService droneService) {
+    public DroneController(DroneService droneService, DroneCommandDispatcher droneCommandDispatcher,
+                           TelemetryIngestService telemetryIngestService, DroneEventBroadcaster droneEventBroadcaster,
+                           ObjectMapper objectMapper) {
         this.droneService = droneService;
+        this.droneCommandDispatcher = droneCommandDispatcher;
+        this.telemetryIngestService = telemetryIngestService;
+        this.droneEventBroadcaster = droneEventBroadcaster;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -53,27 +88,79 @@ public class DroneController {
         return ResponseEntity.created(location).body(registeredDroneDTO);
     }
 
+    /**
+     * Register a batch of drones in the system. Either all drones are registered or none.
+     *
+     * @return Response with the number of registered drones.
+     */
+    @PostMapping("/register/bulk")
+    public ResponseEntity<Map<String, Object>> registerDrones(
+            @Valid @RequestBody DroneRegistrationRequestDTO registrationRequestDTO) {
+        int numberOfDrones = droneService.registerDrones(registrationRequestDTO.getDrones());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(Map.of("message", "Drones registered successfully.", "numberOfDrones", numberOfDrones));
+    }
+
     /**
      * Update the status of a drone.
+     * If an If-Match header is given, the drone is only updated if its entity tag still matches.
+     * Commands that change a drone run one at a time per drone, see {@link DroneCommandDispatcher}.
      *
      * @return Response with success or error message.
      */
     @PutMapping("/{serialNumber}/state")
     public ResponseEntity<?> updateDroneState(@PathVariable String serialNumber,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                              String ifMatch,
                                               @Valid @RequestBody DroneStateUpdateDTO stateUpdateDTO) {
-        droneService.updateDroneState(serialNumber, stateUpdateDTO.getNewState());
-        return ResponseEntity.ok().body(Map.of("message", "Drone state updated successfully."));
+        Long expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        Optional<DroneDTO> updatedDrone = droneCommandDispatcher.execute(serialNumber, () ->
+                droneService.updateDroneState(serialNumber, stateUpdateDTO.getNewState(), expectedVersion));
+        return withEntityTag(updatedDrone).body(Map.of("message", "Drone state updated successfully."));
     }
 
     /**
-     * Get all drones registered in the system.
+     * Get drones registered in the system, one page at a time.
      *
-     * @return A list of all drones.
+     * @param cursor Cursor returned with the previous page.
+     * @param size   Maximum number of drones in the page.
+     * @return A page of drones.
      */
     @GetMapping
-    public ResponseEntity<List<DroneDTO>> getAllDrones() {
-        List<DroneDTO> dronesDTOList = new ArrayList<>(droneService.findAllDrones());
-        return ResponseEntity.ok(dronesDTOList);
+    public ResponseEntity<CursorPageDTO<DroneDTO>> getDrones(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer size) {
+        CursorPageDTO<DroneDTO> droneDTOPage = droneService.findDrones(cursor, size);
+        return ResponseEntity.ok(droneDTOPage);
+    }
+
+    /**
+     * Stream all drones registered in the system as newline delimited JSON.
+     * Drones are written to the response as they are read from the database.
+     *
+     * @return A stream of all drones, one per line.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllDrones() {
+        StreamingResponseBody body = outputStream ->
+                droneService.streamAllDrones(new NdjsonWriter<>(objectMapper, outputStream));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Subscribe to the state and battery changes of drones as Server-Sent Events.
+     * Changes are pushed as they are committed, so clients do not need to poll the drone list.
+     * Low battery alerts are sent as LOW_BATTERY changes, use type=LOW_BATTERY to only receive them.
+     *
+     * @param serialNumber Only send changes of this drone, if given.
+     * @param state        Only send changes of drones in this state, if given.
+     * @param type         Only send changes of this type, if given.
+     * @return An event stream of drone changes.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDroneEvents(@RequestParam(required = false) String serialNumber,
+                                        @RequestParam(required = false) ApplicationConstants.DroneState state,
+                                        @RequestParam(required = false) DroneChangedEvent.ChangeType type) {
+        return droneEventBroadcaster.subscribe(serialNumber, state, type);
     }
 
     /**
@@ -85,19 +172,26 @@ public class DroneController {
     public ResponseEntity<DroneDTO> getDroneBySerialNumber(@PathVariable String serialNumber) {
         Optional<DroneDTO> droneDTOOpt = droneService.findDroneBySerialNumber(serialNumber);
         if (droneDTOOpt.isPresent()) {
-            return ResponseEntity.ok(droneDTOOpt.get());
+            // A matching If-None-Match header turns this into a 304 Not Modified response
+            return withEntityTag(droneDTOOpt).body(droneDTOOpt.get());
         }
         return ResponseEntity.notFound().build();
     }
 
     /**
-     * Get list of available drones for loading.
+     * Get list of available drones for loading, ordered by battery capacity.
      *
+     * @param limit Maximum number of drones to return. All available drones are returned if not given.
+     * @param order Order of the battery capacity, asc or desc. Defaults to desc.
      * @return A list of available drones for loading.
      */
     @GetMapping("/available")
-    public ResponseEntity<List<DroneDTO>> getAvailableDrones() {
-        List<DroneDTO> availableDronesDTOList = droneService.findAvailableDrones();
+    public ResponseEntity<List<DroneDTO>> getAvailableDrones(@RequestParam(required = false) Integer limit,
+                                                             @RequestParam(defaultValue = "desc") String order) {
+        Sort.Direction direction = Sort.Direction.fromOptionalString(order)
+                .orElseThrow(() -> new ValidationException(String.format("Invalid order %s. Order should be " +
+                        "asc or desc.", order)));
+        List<DroneDTO> availableDronesDTOList = droneService.findAvailableDrones(limit, direction);
         return ResponseEntity.ok(availableDronesDTOList);
     }
 
@@ -119,6 +213,8 @@ public class DroneController {
 
     /**
      * Load a given drone with medications.
+     * Loads are not run by the {@link DroneCommandDispatcher}, the drone is checked by the same conditional update
+     * that records the load, so concurrent loads of a drone cannot exceed its weight limit.
      *
      * @param droneSerialNumber Serial number of the drone that should be loaded with medication
      * @param medicationId      Id of the medication to load
@@ -136,6 +232,24 @@ public class DroneController {
                 "capacity and battery level."));
     }
 
+    /**
+     * Load a given drone with several medications in a single request.
+     * The packs are loaded atomically, so either all of them are loaded or none are. Like single loads, they are
+     * not run by the {@link DroneCommandDispatcher}.
+     *
+     * @param droneSerialNumber Serial number of the drone that should be loaded with medications
+     * @param loadRequestDTO    Medications and number of packs of each to load
+     * @return Response with success message and number of loaded packs
+     */
+    @PostMapping("/{droneSerialNumber}/load")
+    public ResponseEntity<?> loadDroneWithMedications(@PathVariable String droneSerialNumber,
+                                                      @Valid @RequestBody DroneLoadRequestDTO loadRequestDTO) {
+        int numberOfPacks = droneService.loadDroneWithMedications(droneSerialNumber,
+                loadRequestDTO.getMedications());
+        return ResponseEntity.ok().body(Map.of("message", "Medications loaded successfully.",
+                "numberOfPacks", numberOfPacks));
+    }
+
     /**
      * Get a detailed list of medications loaed in a given drone.
      *
@@ -148,6 +262,29 @@ public class DroneController {
         return ResponseEntity.ok(medications);
     }
 
+    /**
+     * Get the audit history of a given drone, newest first, optionally within a time range and of an event type.
+     *
+     * @param serialNumber Serial number of the drone
+     * @param cursor       Cursor returned with the previous page.
+     * @param size         Maximum number of audit logs in the page.
+     * @param from         Earliest timestamp, inclusive.
+     * @param to           Latest timestamp, exclusive.
+     * @param type         Type of the audit events.
+     * @return A page of the audit logs of the drone.
+     */
+    @GetMapping("/{serialNumber}/audit")
+    public ResponseEntity<CursorPageDTO<AuditLog>> getDroneAuditLogs(
+            @PathVariable String serialNumber, @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) ApplicationConstants.AuditEventType type) {
+        CursorPageDTO<AuditLog> auditLogs = droneService.getDroneAuditLogs(serialNumber, cursor, size,
+                new AuditLogFilter(from, to, type, serialNumber));
+        return ResponseEntity.ok(auditLogs);
+    }
+
     /**
      * Unloads all medications from a given drone.
      *
@@ -157,7 +294,8 @@ public class DroneController {
     @DeleteMapping("/{droneSerialNumber}/unloadAll")
     public ResponseEntity<?> unloadAllMedications(@PathVariable String droneSerialNumber) {
 
-        boolean success = droneService.unloadAllMedicationsFromDrone(droneSerialNumber);
+        boolean success = droneCommandDispatcher.execute(droneSerialNumber, () ->
+                droneService.unloadAllMedicationsFromDrone(droneSerialNumber));
         if (success) {
             return ResponseEntity.ok().body(Map.of("message", "All medications unloaded successfully."));
         } else {
@@ -192,9 +330,33 @@ public class DroneController {
      */
     @PutMapping("/{serialNumber}/batteryLevel")
     public ResponseEntity<?> updateDroneBatteryLevel(@PathVariable String serialNumber,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                     String ifMatch,
                                                      @Valid @RequestBody DroneBatteryLevelUpdateDTO batteryLevelUpdateDTO) {
-        droneService.updateDroneBatteryLevel(serialNumber, batteryLevelUpdateDTO.getBatteryLevel());
-        return ResponseEntity.ok().body(Map.of("message", "Drone battery level updated successfully."));
+        Long expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        Optional<DroneDTO> updatedDrone = droneCommandDispatcher.execute(serialNumber, () ->
+                droneService.updateDroneBatteryLevel(serialNumber, batteryLevelUpdateDTO.getBatteryLevel(),
+                        expectedVersion));
+        return withEntityTag(updatedDrone).body(Map.of("message", "Drone battery level updated successfully."));
+    }
+
+    /**
+     * Ingest the battery levels reported by many drones. The levels are buffered and written in the next flush,
+     * so they are not visible immediately.
+     *
+     * @param telemetryRequestDTO A DTO containing the battery readings.
+     * @return ResponseEntity with the number of accepted, duplicate and unknown-drone readings.
+     */
+    @PostMapping("/telemetry/battery")
+    public ResponseEntity<TelemetryIngestResultDTO> ingestBatteryTelemetry(
+            @Valid @RequestBody BatteryTelemetryRequestDTO telemetryRequestDTO) {
+        return ResponseEntity.accepted().body(telemetryIngestService.ingest(telemetryRequestDTO.getReadings()));
+    }
+
+    private ResponseEntity.BodyBuilder withEntityTag(Optional<DroneDTO> droneDTOOpt) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        droneDTOOpt.map(DroneDTO::getVersion).map(EntityTags::of).ifPresent(builder::eTag);
+        return builder;
     }
 
 }
@@ -1,9 +1,14 @@
 package com.medi.imesh.drone.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medi.imesh.drone.common.EntityTags;
+import com.medi.imesh.drone.common.NdjsonWriter;
+import com.medi.imesh.drone.dto.CursorPageDTO;
 import com.medi.imesh.drone.dto.MedicationDTO;
 import com.medi.imesh.drone.service.MedicationService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,9 +16,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -24,10 +30,12 @@ import java.util.Optional;
 public class MedicationController {
 
     private final MedicationService medicationService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public MedicationController(MedicationService medicationService) {
+    public MedicationController(MedicationService medicationService, ObjectMapper objectMapper) {
         this.medicationService = medicationService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -43,17 +51,33 @@ public class MedicationController {
     }
 
     /**
-     * Get all medications registered in the system.
+     * Get medications registered in the system, one page at a time.
      *
-     * @return A list of all medications.
+     * @param cursor Cursor returned with the previous page.
+     * @param size   Maximum number of medications in the page.
+     * @return A page of medications.
      */
     @GetMapping
-    public ResponseEntity<List<MedicationDTO>> getAllMedications() {
+    public ResponseEntity<CursorPageDTO<MedicationDTO>> getMedications(@RequestParam(required = false) String cursor,
+                                                                       @RequestParam(required = false) Integer size) {
 
-        List<MedicationDTO> medicationDTOs = medicationService.findAllMedications();
+        CursorPageDTO<MedicationDTO> medicationDTOs = medicationService.findMedications(cursor, size);
         return ResponseEntity.ok(medicationDTOs);
     }
 
+    /**
+     * Stream all medications registered in the system as newline delimited JSON.
+     *
+     * @return A stream of all medications, one per line.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllMedications() {
+
+        StreamingResponseBody body = outputStream ->
+                medicationService.streamAllMedications(new NdjsonWriter<>(objectMapper, outputStream));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * Get details of a specific medication.
      *
@@ -65,7 +89,14 @@ public class MedicationController {
         Optional<MedicationDTO> medicationDTOOpt = medicationService.findMedicationById(id);
 
         if (medicationDTOOpt.isPresent()) {
-            return ResponseEntity.ok(medicationDTOOpt.get());
+            MedicationDTO medicationDTO = medicationDTOOpt.get();
+            // A matching If-None-Match header turns this into a 304 Not Modified response
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+            String entityTag = EntityTags.of(medicationDTO.getVersion());
+            if (entityTag != null) {
+                builder.eTag(entityTag);
+            }
+            return builder.body(medicationDTO);
         } else {
             return ResponseEntity.notFound().build();
         }
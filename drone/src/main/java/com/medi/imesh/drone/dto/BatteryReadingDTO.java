@@ -0,0 +1,44 @@
+package com.medi.imesh.drone.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO class for a battery level reported by a drone.
+ */
+public class BatteryReadingDTO {
+
+    @NotBlank(message = "Serial number not found in the reading.")
+    private String serialNumber;
+
+    @NotNull(message = "Battery level is required")
+    @Min(value = 0, message = "Battery level must be at least 0%")
+    @Max(value = 100, message = "Battery level cannot exceed 100%")
+    private Integer batteryLevel;
+
+    public BatteryReadingDTO() {
+    }
+
+    public BatteryReadingDTO(String serialNumber, Integer batteryLevel) {
+        this.serialNumber = serialNumber;
+        this.batteryLevel = batteryLevel;
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public void setSerialNumber(String serialNumber) {
+        this.serialNumber = serialNumber;
+    }
+
+    public Integer getBatteryLevel() {
+        return batteryLevel;
+    }
+
+    public void setBatteryLevel(Integer batteryLevel) {
+        this.batteryLevel = batteryLevel;
+    }
+}
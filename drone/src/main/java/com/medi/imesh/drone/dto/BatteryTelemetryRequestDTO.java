@@ -0,0 +1,27 @@
+package com.medi.imesh.drone.dto;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO class for ingesting the battery levels reported by many drones in a single request.
+ */
+public class BatteryTelemetryRequestDTO {
+
+    @NotEmpty(message = "Readings not found in the request.")
+    @Size(max = ApplicationConstants.MAX_TELEMETRY_READINGS, message = "Cannot ingest more than "
+            + ApplicationConstants.MAX_TELEMETRY_READINGS + " readings in a single request.")
+    private List<@Valid BatteryReadingDTO> readings;
+
+    public List<BatteryReadingDTO> getReadings() {
+        return readings;
+    }
+
+    public void setReadings(List<BatteryReadingDTO> readings) {
+        this.readings = readings;
+    }
+}
@@ -0,0 +1,32 @@
+package com.medi.imesh.drone.dto;
+
+import java.util.List;
+
+/**
+ * DTO class for a page of results retrieved with keyset pagination.
+ * The next cursor is an opaque token that should be passed back to fetch the following page.
+ *
+ * @param <T> Type of the items in the page
+ */
+public class CursorPageDTO<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPageDTO(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,5 +1,6 @@
 package com.medi.imesh.drone.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.medi.imesh.drone.common.ApplicationConstants;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -35,6 +36,10 @@ public class DroneDTO {
     @NotNull(message = "State not found in the request.")
     private ApplicationConstants.DroneState state;
 
+    // Exposed to clients through the ETag header rather than the body
+    @JsonIgnore
+    private Long version;
+
     public String getSerialNumber() {
         return serialNumber;
     }
@@ -75,5 +80,13 @@ public class DroneDTO {
         this.state = state;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
 }
 
@@ -0,0 +1,27 @@
+package com.medi.imesh.drone.dto;
+
+/**
+ * DTO class for the current load of a drone.
+ */
+public class DroneLoadDTO {
+
+    private final long numberOfPacks;
+    private final long totalWeight;
+
+    public DroneLoadDTO(Long numberOfPacks, Long totalWeight) {
+        this.numberOfPacks = numberOfPacks == null ? 0 : numberOfPacks;
+        this.totalWeight = totalWeight == null ? 0 : totalWeight;
+    }
+
+    public long getNumberOfPacks() {
+        return numberOfPacks;
+    }
+
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    public boolean isEmpty() {
+        return numberOfPacks == 0;
+    }
+}
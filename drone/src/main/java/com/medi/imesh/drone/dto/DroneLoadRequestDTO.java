@@ -0,0 +1,23 @@
+package com.medi.imesh.drone.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * DTO class for loading several medications onto a drone in a single request.
+ */
+public class DroneLoadRequestDTO {
+
+    @NotEmpty(message = "Medications not found in the request.")
+    private List<@Valid MedicationLoadDTO> medications;
+
+    public List<MedicationLoadDTO> getMedications() {
+        return medications;
+    }
+
+    public void setMedications(List<MedicationLoadDTO> medications) {
+        this.medications = medications;
+    }
+}
@@ -0,0 +1,27 @@
+package com.medi.imesh.drone.dto;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO class for registering several drones in a single request.
+ */
+public class DroneRegistrationRequestDTO {
+
+    @NotEmpty(message = "Drones not found in the request.")
+    @Size(max = ApplicationConstants.MAX_BULK_REGISTRATION_SIZE, message = "Cannot register more than "
+            + ApplicationConstants.MAX_BULK_REGISTRATION_SIZE + " drones in a single request.")
+    private List<@Valid DroneDTO> drones;
+
+    public List<DroneDTO> getDrones() {
+        return drones;
+    }
+
+    public void setDrones(List<DroneDTO> drones) {
+        this.drones = drones;
+    }
+}
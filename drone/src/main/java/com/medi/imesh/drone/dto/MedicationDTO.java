@@ -1,5 +1,6 @@
 package com.medi.imesh.drone.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
@@ -25,6 +26,10 @@ public class MedicationDTO {
     @NotBlank(message = "Medication image not found in the request.")
     private String imageUrl;
 
+    // Exposed to clients through the ETag header rather than the body
+    @JsonIgnore
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -64,4 +69,12 @@ public class MedicationDTO {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
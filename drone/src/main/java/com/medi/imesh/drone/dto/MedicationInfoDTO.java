@@ -17,6 +17,13 @@ public class MedicationInfoDTO {
         this.totalWeight = totalWeight;
     }
 
+    /**
+     * Constructor used by aggregate queries, which return counts and sums as Long values.
+     */
+    public MedicationInfoDTO(Long medicationId, String medicationName, Long numberOfPacks, Long totalWeight) {
+        this(medicationId, medicationName, Math.toIntExact(numberOfPacks), Math.toIntExact(totalWeight));
+    }
+
     public Long getMedicationId() {
         return medicationId;
     }
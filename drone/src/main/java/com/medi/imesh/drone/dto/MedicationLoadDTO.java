@@ -0,0 +1,40 @@
+package com.medi.imesh.drone.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO class for a number of packs of a medication to load onto a drone.
+ */
+public class MedicationLoadDTO {
+
+    @NotNull(message = "Medication ID not found in the request.")
+    private Long medicationId;
+
+    @Min(value = 1, message = "Quantity must be at least 1.")
+    private int quantity = 1;
+
+    public MedicationLoadDTO() {
+    }
+
+    public MedicationLoadDTO(Long medicationId, int quantity) {
+        this.medicationId = medicationId;
+        this.quantity = quantity;
+    }
+
+    public Long getMedicationId() {
+        return medicationId;
+    }
+
+    public void setMedicationId(Long medicationId) {
+        this.medicationId = medicationId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
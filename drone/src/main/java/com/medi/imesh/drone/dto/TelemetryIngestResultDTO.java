@@ -0,0 +1,29 @@
+package com.medi.imesh.drone.dto;
+
+/**
+ * DTO class for the outcome of a telemetry ingest request.
+ */
+public class TelemetryIngestResultDTO {
+
+    private final int accepted;
+    private final int duplicates;
+    private final int unknownDrones;
+
+    public TelemetryIngestResultDTO(int accepted, int duplicates, int unknownDrones) {
+        this.accepted = accepted;
+        this.duplicates = duplicates;
+        this.unknownDrones = unknownDrones;
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getUnknownDrones() {
+        return unknownDrones;
+    }
+}
@@ -0,0 +1,66 @@
+package com.medi.imesh.drone.event;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.model.Drone;
+
+/**
+ * Immutable event describing a change of the state or battery level of a drone, or a low battery alert raised by
+ * a battery level change. Published in process when the change is made and sent to the subscribers of the drone
+ * event stream.
+ */
+public final class DroneChangedEvent {
+
+    public enum ChangeType {
+        REGISTERED, STATE, BATTERY, LOW_BATTERY
+    }
+
+    private final ChangeType changeType;
+    private final String serialNumber;
+    private final ApplicationConstants.DroneState state;
+    private final int batteryCapacity;
+    private final Long version;
+
+    public DroneChangedEvent(ChangeType changeType, String serialNumber, ApplicationConstants.DroneState state,
+                             int batteryCapacity, Long version) {
+        this.changeType = changeType;
+        this.serialNumber = serialNumber;
+        this.state = state;
+        this.batteryCapacity = batteryCapacity;
+        this.version = version;
+    }
+
+    /**
+     * Create an event from the current values of a drone entity.
+     *
+     * @param changeType What changed on the drone
+     * @param drone      Drone entity after the change
+     * @return Event describing the change
+     */
+    public static DroneChangedEvent of(ChangeType changeType, Drone drone) {
+        return new DroneChangedEvent(changeType, drone.getSerialNumber(), drone.getState(),
+                drone.getBatteryCapacity(), drone.getVersion());
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public ApplicationConstants.DroneState getState() {
+        return state;
+    }
+
+    public int getBatteryCapacity() {
+        return batteryCapacity;
+    }
+
+    /**
+     * Version of the drone after the change, or null if it is not known, e.g. for buffered telemetry.
+     */
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,316 @@
+package com.medi.imesh.drone.event;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans drone change events out to the clients of the drone event stream.
+ * <p>
+ * Events are received after the change is committed, so clients never see a change that was rolled back, and no
+ * query is issued to serve them. Each client gets a bounded queue, drained by one of a fixed number of dispatcher
+ * threads while it has events to send, at most a queue of events at a time so that busy clients take turns. Clients
+ * waiting for a thread are held in a bounded backlog, so a slow client cannot hold up the publisher, and the threads
+ * and memory used do not grow with the number of clients. A client whose queue is full, that finds the backlog
+ * full, or whose send has been blocked for longer than the send timeout, is disconnected and is expected to
+ * reconnect and reload the state of the fleet.
+ * <p>
+ * Sending to and completing an emitter are synchronized on the emitter, so a disconnected client is only completed
+ * by the thread draining it, never by the publisher or by the thread that finds it stuck, unless no drain could be
+ * started for it.
+ */
+@Component
+public class DroneEventBroadcaster implements MeterBinder {
+
+    public static final String EVENT_NAME = "drone";
+    private static final Logger logger = LoggerFactory.getLogger(DroneEventBroadcaster.class);
+
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public DroneEventBroadcaster() {
+        this(ApplicationConstants.EVENT_SUBSCRIBER_BUFFER_SIZE, ApplicationConstants.EVENT_SEND_TIMEOUT,
+                newDispatcher());
+    }
+
+    DroneEventBroadcaster(int bufferSize, long sendTimeoutMillis, ExecutorService dispatcher) {
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Register a client of the drone event stream.
+     *
+     * @param serialNumber Only send events of this drone, or null for all drones
+     * @param state        Only send events of drones in this state, or null for all states
+     * @return Emitter that the events of the client are sent to
+     */
+    public SseEmitter subscribe(String serialNumber, ApplicationConstants.DroneState state) {
+        return subscribe(serialNumber, state, null);
+    }
+
+    /**
+     * Register a client of the drone event stream that only receives one type of change, e.g. the low battery
+     * alerts.
+     *
+     * @param serialNumber Only send events of this drone, or null for all drones
+     * @param state        Only send events of drones in this state, or null for all states
+     * @param changeType   Only send events of this type, or null for all types
+     * @return Emitter that the events of the client are sent to
+     */
+    public SseEmitter subscribe(String serialNumber, ApplicationConstants.DroneState state,
+                                DroneChangedEvent.ChangeType changeType) {
+
+        return subscribe(new SseEmitter(ApplicationConstants.EVENT_STREAM_TIMEOUT), serialNumber, state, changeType);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, String serialNumber, ApplicationConstants.DroneState state,
+                         DroneChangedEvent.ChangeType changeType) {
+
+        Subscriber subscriber = new Subscriber(emitter, serialNumber, state, changeType, bufferSize);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Queue a committed drone change for every client whose filter matches it.
+     *
+     * @param event Drone change event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDroneChanged(DroneChangedEvent event) {
+
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.accepts(event)) {
+                continue;
+            }
+            if (!subscriber.queue.offer(event)) {
+                evict(subscriber);
+                continue;
+            }
+            scheduleDrain(subscriber);
+        }
+    }
+
+    /**
+     * Disconnect the clients whose send has been blocked for longer than the send timeout, e.g. because they stopped
+     * reading, and interrupt their dispatcher thread.
+     */
+    @Scheduled(fixedDelay = ApplicationConstants.EVENT_SEND_TIMEOUT / 2)
+    public void evictStuckSubscribers() {
+
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isSendingSince(now - sendTimeoutNanos)) {
+                evict(subscriber);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("drone.events.subscribers", this, DroneEventBroadcaster::getSubscriberCount)
+                .description("Number of clients connected to the drone event stream")
+                .register(registry);
+        FunctionCounter.builder("drone.events.delivered", delivered, LongAdder::sum)
+                .description("Drone events sent to clients of the drone event stream")
+                .register(registry);
+        FunctionCounter.builder("drone.events.evictions", evictions, LongAdder::sum)
+                .description("Clients disconnected because they did not keep up with the drone events")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private static ExecutorService newDispatcher() {
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Threads are reclaimed once idle, a client that does not read its events holds one until it is evicted
+        ThreadPoolExecutor dispatcher = new ThreadPoolExecutor(ApplicationConstants.EVENT_DISPATCHER_THREADS,
+                ApplicationConstants.EVENT_DISPATCHER_THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(ApplicationConstants.EVENT_DISPATCHER_BACKLOG), runnable -> {
+            Thread thread = new Thread(runnable, "drone-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.allowCoreThreadTimeOut(true);
+        return dispatcher;
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // The backlog of clients waiting for a dispatcher thread is full, or the broadcaster is shut down. No
+            // drain runs for the client, so it is completed here.
+            subscriber.draining.set(false);
+            if (subscribers.remove(subscriber)) {
+                evictions.increment();
+            }
+            subscriber.queue.clear();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+
+        boolean connected = true;
+        subscriber.startSending();
+        try {
+            DroneChangedEvent event;
+            int sent = 0;
+            while (sent++ < bufferSize && subscribers.contains(subscriber)
+                    && (event = subscriber.queue.poll()) != null) {
+                subscriber.sendStartedAt = System.nanoTime();
+                subscriber.emitter.send(SseEmitter.event().name(EVENT_NAME).data(event, MediaType.APPLICATION_JSON));
+                subscriber.sendStartedAt = 0L;
+                delivered.increment();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, the emitter callbacks are not always invoked in that case
+            subscribers.remove(subscriber);
+            connected = false;
+        } finally {
+            subscriber.stopSending();
+            subscriber.draining.set(false);
+        }
+        if (!subscribers.contains(subscriber)) {
+            subscriber.queue.clear();
+            if (connected) {
+                subscriber.emitter.complete();
+            }
+            return;
+        }
+        // Events left after a full turn, or queued after the last poll while the drain was still marked as running,
+        // are sent in a new turn behind the clients already waiting
+        if (!subscriber.queue.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    /**
+     * Disconnect a client. Its dispatcher thread is interrupted if it is blocked in a send, and completes the
+     * emitter once it returns.
+     */
+    private void evict(Subscriber subscriber) {
+
+        if (subscribers.remove(subscriber)) {
+            evictions.increment();
+            subscriber.queue.clear();
+            subscriber.interruptSend();
+            scheduleDrain(subscriber);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Disconnected a drone event stream client that did not keep up with the events");
+            }
+        }
+    }
+
+    /**
+     * A client of the drone event stream with its filter and its queue of events waiting to be sent.
+     */
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String serialNumber;
+        private final ApplicationConstants.DroneState state;
+        private final DroneChangedEvent.ChangeType changeType;
+        private final BlockingQueue<DroneChangedEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long sendStartedAt;
+        private Thread sender;
+
+        private Subscriber(SseEmitter emitter, String serialNumber, ApplicationConstants.DroneState state,
+                           DroneChangedEvent.ChangeType changeType, int bufferSize) {
+            this.emitter = emitter;
+            this.serialNumber = serialNumber;
+            this.state = state;
+            this.changeType = changeType;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private synchronized void startSending() {
+            sender = Thread.currentThread();
+        }
+
+        /**
+         * Forget the dispatcher thread and clear an interrupt meant for this client, so that it does not reach the
+         * next task of the thread.
+         */
+        private synchronized void stopSending() {
+            sendStartedAt = 0L;
+            sender = null;
+            Thread.interrupted();
+        }
+
+        private synchronized void interruptSend() {
+            if (sender != null) {
+                sender.interrupt();
+            }
+        }
+
+        private boolean isSendingSince(long time) {
+            long startedAt = sendStartedAt;
+            return startedAt != 0L && startedAt - time < 0;
+        }
+
+        private boolean accepts(DroneChangedEvent event) {
+            return (serialNumber == null || serialNumber.equals(event.getSerialNumber()))
+                    && (state == null || state == event.getState())
+                    && (changeType == null || changeType == event.getChangeType());
+        }
+    }
+}
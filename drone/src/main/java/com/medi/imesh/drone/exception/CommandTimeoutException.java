@@ -0,0 +1,14 @@
+package com.medi.imesh.drone.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Custom Exception to handle commands that could not be started in time because earlier commands were still running.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CommandTimeoutException extends RuntimeException {
+    public CommandTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,8 @@ package com.medi.imesh.drone.exception;
 
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
@@ -36,6 +38,51 @@ public class GlobalExceptionHandler {
 
     }
 
+    /**
+     * Handler method to handle conditional requests whose entity tag does not match.
+     *
+     * @param e - PreconditionFailed exception
+     * @return - Precondition failed response
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<?> handlePreconditionFailedException(PreconditionFailedException e) {
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("error", "Precondition failed");
+        errors.put("detail", e.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errors);
+    }
+
+    /**
+     * Handler method to handle updates made from a stale copy of an entity.
+     *
+     * @param e - OptimisticLockingFailure exception
+     * @return - Conflict response
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("error", "Conflict");
+        errors.put("detail", "The resource was modified concurrently. Retrieve it again and retry the request.");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
+
+    /**
+     * Handler method to handle drone commands that waited too long for the commands before them.
+     *
+     * @param e - CommandTimeout exception
+     * @return - Service unavailable response
+     */
+    @ExceptionHandler(CommandTimeoutException.class)
+    public ResponseEntity<?> handleCommandTimeoutException(CommandTimeoutException e) {
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("error", "Service unavailable");
+        errors.put("detail", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errors);
+    }
+
     /**
      * Handler method to handle Json mapping violations.
      *
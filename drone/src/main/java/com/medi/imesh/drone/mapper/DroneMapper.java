@@ -1,7 +1,9 @@
 package com.medi.imesh.drone.mapper;
 
+import com.medi.imesh.drone.cache.DroneSnapshot;
 import com.medi.imesh.drone.dto.DroneDTO;
 import com.medi.imesh.drone.model.Drone;
+import com.medi.imesh.drone.repository.DroneSummary;
 
 /**
  * Mapper class for drone.
@@ -41,6 +43,40 @@ public class DroneMapper {
         droneDTO.setBatteryCapacity(drone.getBatteryCapacity());
         droneDTO.setWeightLimit(drone.getWeightLimit());
         droneDTO.setState(drone.getState());
+        droneDTO.setVersion(drone.getVersion());
+        return droneDTO;
+    }
+
+    /**
+     * Map cached DroneSnapshot to DroneDTO
+     *
+     * @param snapshot Drone snapshot
+     * @return Mapped DroneDTO
+     */
+    public static DroneDTO snapshotToDto(DroneSnapshot snapshot) {
+        DroneDTO droneDTO = new DroneDTO();
+        droneDTO.setSerialNumber(snapshot.getSerialNumber());
+        droneDTO.setModel(snapshot.getModel());
+        droneDTO.setBatteryCapacity(snapshot.getBatteryCapacity());
+        droneDTO.setWeightLimit(snapshot.getWeightLimit());
+        droneDTO.setState(snapshot.getState());
+        droneDTO.setVersion(snapshot.getVersion());
+        return droneDTO;
+    }
+
+    /**
+     * Map DroneSummary projection to DroneDTO
+     *
+     * @param summary Drone summary projection
+     * @return Mapped DroneDTO
+     */
+    public static DroneDTO summaryToDto(DroneSummary summary) {
+        DroneDTO droneDTO = new DroneDTO();
+        droneDTO.setSerialNumber(summary.getSerialNumber());
+        droneDTO.setModel(summary.getModel());
+        droneDTO.setBatteryCapacity(summary.getBatteryCapacity());
+        droneDTO.setWeightLimit(summary.getWeightLimit());
+        droneDTO.setState(summary.getState());
         return droneDTO;
     }
 
@@ -26,6 +26,7 @@ public class MedicationMapper {
         medication.setCode(medicationDTO.getCode());
         medication.setWeight(medicationDTO.getWeight());
         medication.setImageUrl(medicationDTO.getImageUrl());
+        medication.setVersion(medicationDTO.getVersion());
         return medication;
     }
 
@@ -43,6 +44,7 @@ public class MedicationMapper {
         medicationDTO.setCode(medication.getCode());
         medicationDTO.setWeight(medication.getWeight());
         medicationDTO.setImageUrl(medication.getImageUrl());
+        medicationDTO.setVersion(medication.getVersion());
         return medicationDTO;
     }
 }
@@ -1,22 +1,48 @@
 package com.medi.imesh.drone.model;
 
+import com.medi.imesh.drone.common.ApplicationConstants;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 import java.time.LocalDateTime;
 
 /**
  * Model Class for AuditLog.
+ * <p>
+ * An audit log records an event of a type, on a drone and optionally a medication, with the value before and after
+ * the event. The message describes the event for people, the typed fields are indexed to query the history of a
+ * drone or the events of a type without reading the messages. Audit logs written before the fields were added
+ * only have a message.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_audit_log_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_audit_log_drone_id", columnList = "drone_serial_number, id"),
+        @Index(name = "idx_audit_log_type_id", columnList = "type, id")
+})
 public class AuditLog {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private ApplicationConstants.AuditEventType type;
+
+    @Column(name = "drone_serial_number", length = 100)
+    private String droneSerialNumber;
+
+    private Long medicationId;
+    private String oldValue;
+    private String newValue;
     private String message;
     private LocalDateTime timestamp;
 
@@ -28,6 +54,16 @@ public class AuditLog {
         this.timestamp = LocalDateTime.now();
     }
 
+    public AuditLog(ApplicationConstants.AuditEventType type, String droneSerialNumber, Long medicationId,
+                    String oldValue, String newValue, String message) {
+        this(message);
+        this.type = type;
+        this.droneSerialNumber = droneSerialNumber;
+        this.medicationId = medicationId;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
     public Long getId() {
         return id;
     }
@@ -36,6 +72,46 @@ public class AuditLog {
         this.id = id;
     }
 
+    public ApplicationConstants.AuditEventType getType() {
+        return type;
+    }
+
+    public void setType(ApplicationConstants.AuditEventType type) {
+        this.type = type;
+    }
+
+    public String getDroneSerialNumber() {
+        return droneSerialNumber;
+    }
+
+    public void setDroneSerialNumber(String droneSerialNumber) {
+        this.droneSerialNumber = droneSerialNumber;
+    }
+
+    public Long getMedicationId() {
+        return medicationId;
+    }
+
+    public void setMedicationId(Long medicationId) {
+        this.medicationId = medicationId;
+    }
+
+    public String getOldValue() {
+        return oldValue;
+    }
+
+    public void setOldValue(String oldValue) {
+        this.oldValue = oldValue;
+    }
+
+    public String getNewValue() {
+        return newValue;
+    }
+
+    public void setNewValue(String newValue) {
+        this.newValue = newValue;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -0,0 +1,41 @@
+package com.medi.imesh.drone.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Model Class for the last low battery alert of a drone, shared by all application instances.
+ * A drone has a row while it is known to be below the battery threshold, the row is removed when it is charged.
+ * Times are stored as epoch milliseconds. Alerts are claimed and removed with plain JDBC by the
+ * DroneMonitoringService.
+ */
+@Entity
+@Table(name = "battery_alert")
+public class BatteryAlert {
+
+    @Id
+    @Column(length = 100)
+    private String droneSerialNumber;
+
+    // Time the drone was last recorded in the audit log as low
+    @Column(nullable = false)
+    private long alertedAt;
+
+    public String getDroneSerialNumber() {
+        return droneSerialNumber;
+    }
+
+    public void setDroneSerialNumber(String droneSerialNumber) {
+        this.droneSerialNumber = droneSerialNumber;
+    }
+
+    public long getAlertedAt() {
+        return alertedAt;
+    }
+
+    public void setAlertedAt(long alertedAt) {
+        this.alertedAt = alertedAt;
+    }
+}
@@ -6,13 +6,23 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.springframework.data.domain.Persistable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,7 +31,10 @@ import java.util.List;
  * Model Class for Drone.
  */
 @Entity
-public class Drone {
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {@Index(name = "idx_drone_state_battery", columnList = "state, battery_capacity"),
+        @Index(name = "idx_drone_battery", columnList = "battery_capacity")})
+public class Drone implements Persistable<String> {
 
     @Id
     @Column(name = "serial_number", length = 100)
@@ -48,15 +61,42 @@ public class Drone {
     @NotNull(message = "State not found in the request.")
     private ApplicationConstants.DroneState state;
 
+    // Materialized totals of the medications loaded in the drone, maintained on load and unload
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int loadedWeight;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int loadedPackCount;
+
+    // Hash of the serial number, stored so that queries can split the drones into partitions by serial number
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int serialNumberHash;
+
+    // Incremented on every update, used for optimistic locking and as the entity tag of the drone
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
     @OneToMany(mappedBy = "drone")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<DroneMedication> droneMedications = new ArrayList<>();
 
+    // The serial number is assigned by the client, so whether the drone is new cannot be told from its id.
+    // A drone built in memory is new until it is persisted, which lets the repository insert it without a merge.
+    @Transient
+    private boolean isNew = true;
+
     public String getSerialNumber() {
         return serialNumber;
     }
 
     public void setSerialNumber(String serialNumber) {
         this.serialNumber = serialNumber;
+        this.serialNumberHash = serialNumber == null ? 0 : serialNumber.hashCode();
     }
 
     public String getModel() {
@@ -91,6 +131,34 @@ public class Drone {
         this.state = state;
     }
 
+    public int getSerialNumberHash() {
+        return serialNumberHash;
+    }
+
+    public int getLoadedWeight() {
+        return loadedWeight;
+    }
+
+    public void setLoadedWeight(int loadedWeight) {
+        this.loadedWeight = loadedWeight;
+    }
+
+    public int getLoadedPackCount() {
+        return loadedPackCount;
+    }
+
+    public void setLoadedPackCount(int loadedPackCount) {
+        this.loadedPackCount = loadedPackCount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<DroneMedication> getDroneMedications() {
         return droneMedications;
     }
@@ -99,4 +167,20 @@ public class Drone {
         this.droneMedications = droneMedications;
     }
 
+    @Override
+    public String getId() {
+        return serialNumber;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
 }
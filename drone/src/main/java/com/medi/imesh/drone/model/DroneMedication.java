@@ -1,16 +1,26 @@
 package com.medi.imesh.drone.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Model Class for loaded medications in drones.
+ * There is one row per drone and medication, holding the number of packs of the medication loaded in the drone.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_drone_medication",
+        columnNames = {"drone_serial_number", "medication_id"}))
 public class DroneMedication {
 
     @Id
@@ -25,6 +35,10 @@ public class DroneMedication {
     @JoinColumn(name = "medication_id", referencedColumnName = "id")
     private Medication medication;
 
+    @Column(nullable = false)
+    @ColumnDefault("1")
+    private int quantity = 1;
+
     public Long getId() {
         return id;
     }
@@ -48,4 +62,12 @@ public class DroneMedication {
     public void setMedication(Medication medication) {
         this.medication = medication;
     }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
 }
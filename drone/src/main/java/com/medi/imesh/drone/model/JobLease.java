@@ -0,0 +1,75 @@
+package com.medi.imesh.drone.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Model Class for the lease of a scheduled job, held by one application instance at a time.
+ * Times are stored as epoch milliseconds, so instances in different time zones compare them alike.
+ * Leases are acquired and released with plain JDBC by the JobLeaseService.
+ */
+@Entity
+@Table(name = "job_lease", indexes = @Index(name = "idx_job_lease_job_name", columnList = "job_name"))
+public class JobLease {
+
+    // Name of the job, followed for a partitioned job by a partition number or the id of an instance taking part
+    @Id
+    @Column(length = 320)
+    private String name;
+
+    @Column(name = "job_name", nullable = false, length = 64)
+    private String jobName;
+
+    // The lease is held until this time, unless it is released or renewed by its owner before
+    @Column(nullable = false)
+    private long lockedUntil;
+
+    @Column(nullable = false)
+    private long lockedAt;
+
+    @Column(nullable = false)
+    private String lockedBy;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public long getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(long lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public long getLockedAt() {
+        return lockedAt;
+    }
+
+    public void setLockedAt(long lockedAt) {
+        this.lockedAt = lockedAt;
+    }
+
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+}
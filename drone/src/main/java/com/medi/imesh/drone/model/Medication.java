@@ -1,13 +1,18 @@
 package com.medi.imesh.drone.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,6 +21,7 @@ import java.util.List;
  * Model Class for Medication.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Medication {
 
     @Id
@@ -36,7 +42,19 @@ public class Medication {
     @NotBlank(message = "Medication image not found in the request.")
     private String imageUrl;
 
+    // Number of packs of this medication currently loaded in drones, maintained on load and unload
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int inFlightCount;
+
+    // Incremented on every update, used for optimistic locking and as the entity tag of the medication
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
     @OneToMany(mappedBy = "medication")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<DroneMedication> droneMedications = new ArrayList<>();
 
     public Long getId() {
@@ -79,6 +97,22 @@ public class Medication {
         this.imageUrl = imageUrl;
     }
 
+    public int getInFlightCount() {
+        return inFlightCount;
+    }
+
+    public void setInFlightCount(int inFlightCount) {
+        this.inFlightCount = inFlightCount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<DroneMedication> getDroneMedications() {
         return droneMedications;
     }
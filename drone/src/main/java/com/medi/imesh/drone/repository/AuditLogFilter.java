@@ -0,0 +1,30 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.model.AuditLog;
+
+import java.time.LocalDateTime;
+
+/**
+ * Criteria of the audit logs to read from an {@link AuditLogStore}. Every criterion is optional, null matches
+ * any audit log.
+ *
+ * @param from              Earliest timestamp, inclusive
+ * @param to                Latest timestamp, exclusive
+ * @param type              Type of the audit events
+ * @param droneSerialNumber Serial number of the drone the audit events are about
+ */
+public record AuditLogFilter(LocalDateTime from, LocalDateTime to, ApplicationConstants.AuditEventType type,
+                             String droneSerialNumber) {
+
+    public static final AuditLogFilter NONE = new AuditLogFilter(null, null, null, null);
+
+    /**
+     * Whether an audit log matches the type and drone of the filter. The time range is checked separately by the
+     * stores, which bound it to the range they can represent.
+     */
+    public boolean matchesEvent(AuditLog auditLog) {
+        return (type == null || type == auditLog.getType())
+                && (droneSerialNumber == null || droneSerialNumber.equals(auditLog.getDroneSerialNumber()));
+    }
+}
@@ -1,12 +1,62 @@
 package com.medi.imesh.drone.repository;
 
+import com.medi.imesh.drone.common.ApplicationConstants;
 import com.medi.imesh.drone.model.AuditLog;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+
 /**
  * Repository interface for Audit Log instances.
+ * <p>
+ * Audit logs are paged newest first with a keyset on the id. The time range of the queries is optional, a null
+ * bound leaves that end of the range open, and is checked on the rows read in id order.
  */
 @Repository
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
+
+    /**
+     * Find the audit logs before the given id within a time range, the start inclusive and the end exclusive,
+     * reading the primary key backwards.
+     */
+    @Query("SELECT a FROM AuditLog a WHERE a.id < :id " +
+            "AND (:from IS NULL OR a.timestamp >= :from) AND (:to IS NULL OR a.timestamp < :to)")
+    Slice<AuditLog> findBefore(@Param("id") Long id, @Param("from") LocalDateTime from,
+                               @Param("to") LocalDateTime to, Pageable pageable);
+
+    /**
+     * Find the audit logs of a drone before the given id within a time range, reading the index on the drone
+     * serial number and id backwards.
+     */
+    @Query("SELECT a FROM AuditLog a WHERE a.droneSerialNumber = :droneSerialNumber AND a.id < :id " +
+            "AND (:from IS NULL OR a.timestamp >= :from) AND (:to IS NULL OR a.timestamp < :to)")
+    Slice<AuditLog> findDroneAuditLogsBefore(@Param("droneSerialNumber") String droneSerialNumber,
+                                             @Param("id") Long id, @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to, Pageable pageable);
+
+    /**
+     * Find the audit logs of an event type on a drone before the given id within a time range, reading the index
+     * on the drone serial number and id backwards.
+     */
+    @Query("SELECT a FROM AuditLog a WHERE a.droneSerialNumber = :droneSerialNumber AND a.type = :type " +
+            "AND a.id < :id AND (:from IS NULL OR a.timestamp >= :from) AND (:to IS NULL OR a.timestamp < :to)")
+    Slice<AuditLog> findDroneAuditLogsBefore(@Param("droneSerialNumber") String droneSerialNumber,
+                                             @Param("type") ApplicationConstants.AuditEventType type,
+                                             @Param("id") Long id, @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to, Pageable pageable);
+
+    /**
+     * Find the audit logs of an event type before the given id within a time range, reading the index on the type
+     * and id backwards.
+     */
+    @Query("SELECT a FROM AuditLog a WHERE a.type = :type AND a.id < :id " +
+            "AND (:from IS NULL OR a.timestamp >= :from) AND (:to IS NULL OR a.timestamp < :to)")
+    Slice<AuditLog> findTypeAuditLogsBefore(@Param("type") ApplicationConstants.AuditEventType type,
+                                            @Param("id") Long id, @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to, Pageable pageable);
 }
@@ -0,0 +1,45 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.model.AuditLog;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * Storage backend for audit logs, selected with the drone.audit.store property: "jpa" keeps them in the audit_log
+ * table, "segment" in memory-mapped segment files outside the database.
+ */
+public interface AuditLogStore {
+
+    /**
+     * Write audit logs. Their ids are assigned by the store, in the order of the list. The audit logs are written
+     * all together, or in order up to a failure of the store: a store that fails after writing some of them returns
+     * how many it wrote instead of throwing, so that only the others are written again.
+     *
+     * @param auditLogs Audit logs to write
+     * @return Number of audit logs written, the first ones of the list
+     */
+    int saveAll(List<AuditLog> auditLogs);
+
+    /**
+     * Tell whether the store can hold an audit log. An audit log it cannot hold is rejected by saveAll every time,
+     * with an IllegalArgumentException and without writing any of the others.
+     *
+     * @param auditLog Audit log to write
+     * @return true if the audit log can be written
+     */
+    default boolean accepts(AuditLog auditLog) {
+        return true;
+    }
+
+    /**
+     * Find the audit logs before the given id that match a filter, newest first. Used for keyset pagination over
+     * the id.
+     *
+     * @param beforeId Id below which audit logs are returned
+     * @param filter   Time range, event type and drone of the audit logs
+     * @param size     Maximum number of audit logs
+     * @return A slice of audit logs, telling whether older ones exist
+     */
+    Slice<AuditLog> findBefore(long beforeId, AuditLogFilter filter, int size);
+}
@@ -1,7 +1,14 @@
 package com.medi.imesh.drone.repository;
 
+import com.medi.imesh.drone.dto.MedicationInfoDTO;
 import com.medi.imesh.drone.model.DroneMedication;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,8 +20,65 @@ import java.util.List;
 public interface DroneMedicationRepository extends JpaRepository<DroneMedication, Long> {
 
     boolean existsByDroneSerialNumber(String droneSerialNumber);
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<DroneMedication> findByDroneSerialNumber(String serialNumber);
-    List<DroneMedication> findByMedicationId(long medicationId);
     void deleteAllByDroneSerialNumber(String droneSerialNumber);
 
+    /**
+     * Aggregate the medications loaded in a drone by medication, in a single query.
+     *
+     * @param droneSerialNumber Serial number of the drone
+     * @return Number of packs and total weight of each medication loaded in the drone
+     */
+    @Query("SELECT new com.medi.imesh.drone.dto.MedicationInfoDTO(m.id, m.name, SUM(dm.quantity), " +
+            "SUM(dm.quantity * m.weight)) " +
+            "FROM DroneMedication dm JOIN dm.medication m WHERE dm.drone.serialNumber = :droneSerialNumber " +
+            "GROUP BY m.id, m.name ORDER BY m.id")
+    List<MedicationInfoDTO> findLoadedMedicationInfo(@Param("droneSerialNumber") String droneSerialNumber);
+
+    /**
+     * Add packs of a medication to a drone, creating the row of the medication in the drone if it is not loaded yet.
+     * The row is updated in place, and only inserted if there was no row to update. Loads first add the packs to
+     * the load counters of the drone, which locks the drone row until commit, so two loads of the same drone cannot
+     * both insert the row.
+     *
+     * @param droneSerialNumber Serial number of the drone
+     * @param medicationId      ID of the medication
+     * @param quantity          Number of packs to add
+     * @return Number of rows inserted or updated
+     */
+    default int addPacks(String droneSerialNumber, Long medicationId, int quantity) {
+
+        int updatedRows = incrementQuantity(droneSerialNumber, medicationId, quantity);
+        return updatedRows > 0 ? updatedRows : insertPacks(droneSerialNumber, medicationId, quantity);
+    }
+
+    /**
+     * Add packs to the row of a medication already loaded in a drone.
+     *
+     * @param droneSerialNumber Serial number of the drone
+     * @param medicationId      ID of the medication
+     * @param quantity          Number of packs to add
+     * @return Number of rows updated, 0 if the medication is not loaded in the drone
+     */
+    @Modifying
+    @Query("UPDATE DroneMedication dm SET dm.quantity = dm.quantity + :quantity " +
+            "WHERE dm.drone.serialNumber = :droneSerialNumber AND dm.medication.id = :medicationId")
+    int incrementQuantity(@Param("droneSerialNumber") String droneSerialNumber,
+                          @Param("medicationId") Long medicationId, @Param("quantity") int quantity);
+
+    /**
+     * Create the row of a medication in a drone with its first packs.
+     *
+     * @param droneSerialNumber Serial number of the drone
+     * @param medicationId      ID of the medication
+     * @param quantity          Number of packs
+     * @return Number of rows inserted, 0 if the drone or the medication does not exist
+     */
+    @Modifying
+    @Query("INSERT INTO DroneMedication (drone, medication, quantity) SELECT d, m, :quantity " +
+            "FROM Drone d, Medication m WHERE d.serialNumber = :droneSerialNumber AND m.id = :medicationId")
+    int insertPacks(@Param("droneSerialNumber") String droneSerialNumber, @Param("medicationId") Long medicationId,
+                    @Param("quantity") int quantity);
+
 }
@@ -1,15 +1,118 @@
 package com.medi.imesh.drone.repository;
 
+import com.medi.imesh.drone.common.ApplicationConstants;
 import com.medi.imesh.drone.model.Drone;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Drone instances.
  */
 @Repository
-public interface DroneRepository extends JpaRepository<Drone, Long> {
+public interface DroneRepository extends JpaRepository<Drone, String> {
+    /**
+     * Find a drone by serial number. The results are cached in their own query cache region, which is evicted when
+     * battery levels are written with plain JDBC.
+     */
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = ApplicationConstants.DRONE_QUERY_CACHE_REGION)})
     Optional<Drone> findBySerialNumber(String serialNumber);
+
+    /**
+     * Find which of the given serial numbers are already registered, with a single IN query.
+     */
+    @Query("SELECT d.serialNumber FROM Drone d WHERE d.serialNumber IN :serialNumbers")
+    List<String> findExistingSerialNumbers(@Param("serialNumbers") Collection<String> serialNumbers);
+
+    /**
+     * Find the drones after the given serial number. Used for keyset pagination over the primary key,
+     * so the page is read from the index and no count query is issued.
+     */
+    Slice<Drone> findBySerialNumberGreaterThan(String serialNumber, Pageable pageable);
+
+    /**
+     * Stream all drones ordered by serial number. Rows are fetched from the database in batches of the
+     * stream fetch size. The stream must be consumed and closed within a transaction.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = ApplicationConstants.STREAM_FETCH_SIZE))
+    Stream<Drone> streamAllByOrderBySerialNumber();
+
+    /**
+     * Find drones in a given state with at least the given battery capacity.
+     * Backed by the (state, battery_capacity) index of the drone table.
+     */
+    List<DroneSummary> findByStateAndBatteryCapacityGreaterThanEqual(ApplicationConstants.DroneState state,
+                                                                     int batteryCapacity, Sort sort, Limit limit);
+
+    /**
+     * Find the drones of the given partitions with a battery capacity below the given level that were not alerted
+     * after the given time. A drone is in the partition of the stored hash of its serial number, as computed by
+     * JobLeaseService.partitionOf. Backed by the battery_capacity index of the drone table, so only the low drones
+     * are read.
+     */
+    @Query("SELECT d.serialNumber AS serialNumber, d.model AS model, d.weightLimit AS weightLimit, " +
+            "d.batteryCapacity AS batteryCapacity, d.state AS state FROM Drone d " +
+            "WHERE d.batteryCapacity < :batteryCapacity " +
+            "AND MOD(MOD(d.serialNumberHash, :partitions) + :partitions, :partitions) IN :partitionIds " +
+            "AND NOT EXISTS (SELECT a FROM BatteryAlert a WHERE a.droneSerialNumber = d.serialNumber " +
+            "AND a.alertedAt > :alertedAfter)")
+    List<DroneSummary> findLowBatteryDronesToAlert(@Param("batteryCapacity") int batteryCapacity,
+                                                   @Param("partitions") int partitions,
+                                                   @Param("partitionIds") Collection<Integer> partitionIds,
+                                                   @Param("alertedAfter") long alertedAfter);
+
+    /**
+     * Add to the load counters of a drone, only if the drone is in the given state, has at least the given battery
+     * capacity and the new weight fits in its weight limit. The checks and the update are a single statement, so
+     * they hold under concurrent loads of the same drone without any further locking. The version is incremented
+     * so that a concurrent update of the drone made from a stale copy fails instead of overwriting the counters.
+     *
+     * @return 1 if the load was added, 0 if the drone does not exist or cannot take the load
+     */
+    @Modifying
+    @Query("UPDATE VERSIONED Drone d SET d.loadedWeight = d.loadedWeight + :weight, " +
+            "d.loadedPackCount = d.loadedPackCount + :packs WHERE d.serialNumber = :serialNumber " +
+            "AND d.state = :state AND d.batteryCapacity >= :minBatteryCapacity " +
+            "AND d.loadedWeight + :weight <= d.weightLimit")
+    int addToLoadIfFits(@Param("serialNumber") String serialNumber, @Param("weight") int weight,
+                        @Param("packs") int packs, @Param("state") ApplicationConstants.DroneState state,
+                        @Param("minBatteryCapacity") int minBatteryCapacity);
+
+    @Modifying
+    @Query("UPDATE VERSIONED Drone d SET d.loadedWeight = 0, d.loadedPackCount = 0 " +
+            "WHERE d.serialNumber = :serialNumber")
+    int clearLoad(@Param("serialNumber") String serialNumber);
+
+    /**
+     * Recompute the load counters of every drone whose counters differ from its loaded medications.
+     *
+     * @return Number of drones that were repaired
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE drone d SET " +
+            "loaded_weight = (SELECT COALESCE(SUM(dm.quantity * m.weight), 0) FROM drone_medication dm " +
+            "JOIN medication m ON m.id = dm.medication_id WHERE dm.drone_serial_number = d.serial_number), " +
+            "loaded_pack_count = (SELECT COALESCE(SUM(dm.quantity), 0) FROM drone_medication dm " +
+            "WHERE dm.drone_serial_number = d.serial_number), " +
+            "version = d.version + 1 " +
+            "WHERE d.loaded_weight <> (SELECT COALESCE(SUM(dm.quantity * m.weight), 0) FROM drone_medication dm " +
+            "JOIN medication m ON m.id = dm.medication_id WHERE dm.drone_serial_number = d.serial_number) " +
+            "OR d.loaded_pack_count <> (SELECT COALESCE(SUM(dm.quantity), 0) FROM drone_medication dm " +
+            "WHERE dm.drone_serial_number = d.serial_number)")
+    int reconcileLoadCounters();
 }
@@ -0,0 +1,19 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+
+/**
+ * Projection of the drone columns returned by listing queries.
+ */
+public interface DroneSummary {
+
+    String getSerialNumber();
+
+    String getModel();
+
+    int getWeightLimit();
+
+    int getBatteryCapacity();
+
+    ApplicationConstants.DroneState getState();
+}
@@ -0,0 +1,79 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.model.AuditLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Audit log store keeping the audit logs in the audit_log table. This is the default store.
+ */
+@Repository
+@ConditionalOnProperty(name = "drone.audit.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaAuditLogStore implements AuditLogStore {
+
+    private static final String INSERT_AUDIT_LOG = "INSERT INTO audit_log (type, drone_serial_number, " +
+            "medication_id, old_value, new_value, message, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final AuditLogRepository auditLogRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public JpaAuditLogStore(AuditLogRepository auditLogRepository, JdbcTemplate jdbcTemplate) {
+        this.auditLogRepository = auditLogRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert audit logs in JDBC batches. Audit log ids are generated by the database, which prevents Hibernate
+     * from batching the inserts, so they are written with plain JDBC, in the transaction of the caller.
+     *
+     * @param auditLogs Audit logs to insert
+     * @return Number of audit logs inserted, all of them
+     */
+    @Override
+    public int saveAll(List<AuditLog> auditLogs) {
+        jdbcTemplate.batchUpdate(INSERT_AUDIT_LOG, auditLogs, ApplicationConstants.JDBC_BATCH_SIZE,
+                (statement, auditLog) -> {
+                    statement.setString(1, auditLog.getType() == null ? null : auditLog.getType().name());
+                    statement.setString(2, auditLog.getDroneSerialNumber());
+                    statement.setObject(3, auditLog.getMedicationId(), Types.BIGINT);
+                    statement.setString(4, auditLog.getOldValue());
+                    statement.setString(5, auditLog.getNewValue());
+                    statement.setString(6, auditLog.getMessage());
+                    statement.setObject(7, auditLog.getTimestamp());
+                });
+        return auditLogs.size();
+    }
+
+    /**
+     * Find audit logs with the query matching the filter. Audit logs are read newest first by id, and the queries
+     * by drone or event type read the index on the drone or the type that ends with the id, so a page stops after
+     * the matching rows it returns.
+     */
+    @Override
+    public Slice<AuditLog> findBefore(long beforeId, AuditLogFilter filter, int size) {
+
+        Pageable pageable = PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "id"));
+        if (filter.droneSerialNumber() != null && filter.type() != null) {
+            return auditLogRepository.findDroneAuditLogsBefore(filter.droneSerialNumber(), filter.type(), beforeId,
+                    filter.from(), filter.to(), pageable);
+        }
+        if (filter.droneSerialNumber() != null) {
+            return auditLogRepository.findDroneAuditLogsBefore(filter.droneSerialNumber(), beforeId, filter.from(),
+                    filter.to(), pageable);
+        }
+        if (filter.type() != null) {
+            return auditLogRepository.findTypeAuditLogsBefore(filter.type(), beforeId, filter.from(), filter.to(),
+                    pageable);
+        }
+        return auditLogRepository.findBefore(beforeId, filter.from(), filter.to(), pageable);
+    }
+}
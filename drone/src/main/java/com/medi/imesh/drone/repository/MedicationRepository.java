@@ -1,12 +1,52 @@
 package com.medi.imesh.drone.repository;
 
+import com.medi.imesh.drone.common.ApplicationConstants;
 import com.medi.imesh.drone.model.Medication;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 /**
  * Repository interface for Medication instances.
  */
 @Repository
 public interface MedicationRepository extends JpaRepository<Medication, Long> {
+
+    /**
+     * Find the medications after the given id. Used for keyset pagination over the primary key.
+     */
+    Slice<Medication> findByIdGreaterThan(Long id, Pageable pageable);
+
+    /**
+     * Stream all medications ordered by id. Rows are fetched from the database in batches of the
+     * stream fetch size. The stream must be consumed and closed within a transaction.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = ApplicationConstants.STREAM_FETCH_SIZE))
+    Stream<Medication> streamAllByOrderById();
+
+    @Modifying
+    @Query("UPDATE Medication m SET m.inFlightCount = m.inFlightCount + :packs WHERE m.id = :id")
+    int addToInFlightCount(@Param("id") Long id, @Param("packs") long packs);
+
+    /**
+     * Recompute the in-flight count of every medication whose count differs from the packs loaded in drones.
+     *
+     * @return Number of medications that were repaired
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE medication m SET " +
+            "in_flight_count = (SELECT COALESCE(SUM(dm.quantity), 0) FROM drone_medication dm " +
+            "WHERE dm.medication_id = m.id) " +
+            "WHERE m.in_flight_count <> (SELECT COALESCE(SUM(dm.quantity), 0) FROM drone_medication dm " +
+            "WHERE dm.medication_id = m.id)")
+    int reconcileInFlightCounts();
 }
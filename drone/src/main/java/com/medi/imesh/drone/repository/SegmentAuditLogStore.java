@@ -0,0 +1,673 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.common.ApplicationConstants.AuditEventType;
+import com.medi.imesh.drone.model.AuditLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Audit log store appending the audit logs to memory-mapped segment files, so that the audit volume stays out of
+ * the database.
+ * <p>
+ * Audit logs are appended to the active segment until it is full, then a new segment is started. A segment file is
+ * named after the id of its first audit log, ids are assigned in sequence by the store. Every record holds its
+ * length, id, timestamp, then the event fields and the message. The length is written last, so a record cut short
+ * by a crash of the application reads as the end of the segment. The segment is forced to storage after every
+ * batch, but the operating system does not write the pages of a mapping back in order: after a power loss, the
+ * records appended since the last force may be lost, and the last of them may be read with a length but without its
+ * content. The store is meant for audit logs that can lose their latest records in that case.
+ * <p>
+ * Only the active segment is mapped. When a segment is full, it is forced, unmapped, cut to the size of its records
+ * and read through a file channel from then on. Only the configured number of segments is kept, the oldest segment
+ * is deleted when a new one is started.
+ * <p>
+ * Next to every segment, a sparse index file holds one entry per block of records of about the index interval: its
+ * start and end position, its first id, and the earliest and latest timestamps in it. Reads go through the index
+ * newest block first and only read the records of blocks that can hold audit logs of the requested ids and time
+ * range. The event type and drone of a filter are matched on the records of those blocks, the index does not
+ * narrow them down. The index is kept in memory and rebuilt from the index files, and the records after the last
+ * indexed block, when the store opens. Appends are serialized, reads run concurrently with them and see every
+ * record appended before they started.
+ * <p>
+ * Segments are stored on the local file system, so every application instance keeps its own audit logs.
+ */
+@Repository
+@ConditionalOnProperty(name = "drone.audit.store", havingValue = "segment")
+public class SegmentAuditLogStore implements AuditLogStore {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".index";
+    // Record: length of the rest of the record, id, timestamp in epoch nanoseconds, then the body: medication id
+    // or 0, and the event type name, drone serial number, old value, new value and message, each as the length of
+    // its UTF-8 bytes, or -1 for null, followed by the bytes
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES;
+    private static final int BODY_TEXT_COUNT = 5;
+    // Index entry: start and end position of the block, first id, earliest and latest timestamp
+    private static final int INDEX_ENTRY_SIZE = 2 * Integer.BYTES + 3 * Long.BYTES;
+    private static final Logger logger = LoggerFactory.getLogger(SegmentAuditLogStore.class);
+    // Unmaps a buffer straight away instead of when it is garbage collected, if the JDK allows it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.info("Audit log segments are unmapped when they are garbage collected: {}", e.toString());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final int maxSegments;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private Segment activeSegment;
+    private long nextId = 1;
+
+    @Autowired
+    public SegmentAuditLogStore(@Value("${drone.audit.segment.directory:data/audit}") Path directory,
+                                @Value("${drone.audit.segment.size:64MB}") DataSize segmentSize,
+                                @Value("${drone.audit.segment.index-interval:4KB}") DataSize indexInterval,
+                                @Value("${drone.audit.segment.max-count:16}") int maxSegments) {
+        this(directory, (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes()),
+                (int) Math.min(Integer.MAX_VALUE, indexInterval.toBytes()), maxSegments);
+    }
+
+    SegmentAuditLogStore(Path directory, int segmentSize, int indexInterval, int maxSegments) {
+
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException(String.format("Invalid segment size %d. Segments must hold at least " +
+                    "1024 bytes.", segmentSize));
+        }
+        if (indexInterval < 64 || indexInterval > segmentSize) {
+            throw new IllegalArgumentException(String.format("Invalid index interval %d. Interval must be between 64 " +
+                    "bytes and the segment size.", indexInterval));
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException(String.format("Invalid number of segments %d. At least 1 segment " +
+                    "must be kept.", maxSegments));
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.indexInterval = indexInterval;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Open the segments in the directory, rebuilding their index, and continue appending to the last one. The other
+     * segments are unmapped, and the oldest are deleted if there are more than the number kept.
+     */
+    @PostConstruct
+    public synchronized void open() {
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> segmentFiles;
+            try (Stream<Path> files = Files.list(directory)) {
+                segmentFiles = files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted()
+                        .toList();
+            }
+            for (Path segmentFile : segmentFiles) {
+                Segment segment = Segment.open(segmentFile, indexFile(segmentFile), segmentSize, indexInterval);
+                segments.add(segment);
+                nextId = Math.max(nextId, segment.lastId + 1);
+            }
+            for (int i = 0; i < segments.size() - 1; i++) {
+                segments.get(i).seal();
+            }
+            deleteOldSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not open audit log segments in %s", directory), e);
+        }
+        activeSegment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        logger.info("Opened {} audit log segments in {}, next audit log id {}", segments.size(), directory, nextId);
+    }
+
+    /**
+     * Append audit logs to the active segment, starting new segments as they fill up, and force them to storage.
+     * Every audit log is encoded and checked before the first one is appended, so a batch holding an audit log that
+     * does not fit in a segment is rejected as a whole. If a new segment cannot be started after some of the audit
+     * logs were appended, the appended ones are kept and counted.
+     *
+     * @param auditLogs Audit logs to append
+     * @return Number of audit logs appended
+     */
+    @Override
+    public synchronized int saveAll(List<AuditLog> auditLogs) {
+
+        List<byte[]> bodies = new ArrayList<>(auditLogs.size());
+        for (AuditLog auditLog : auditLogs) {
+            byte[] body = encodeBody(auditLog);
+            int recordSize = RECORD_HEADER_SIZE + body.length;
+            if (recordSize > segmentSize) {
+                throw new IllegalArgumentException(String.format("Audit log of %d bytes does not fit in a " +
+                        "segment of %d bytes", recordSize, segmentSize));
+            }
+            bodies.add(body);
+        }
+        int appended = 0;
+        try {
+            for (; appended < auditLogs.size(); appended++) {
+                byte[] body = bodies.get(appended);
+                if (activeSegment == null || !activeSegment.fits(RECORD_HEADER_SIZE + body.length)) {
+                    roll();
+                }
+                LocalDateTime timestamp = auditLogs.get(appended).getTimestamp() == null ? LocalDateTime.now()
+                        : auditLogs.get(appended).getTimestamp();
+                activeSegment.append(nextId++, toEpochNanos(timestamp), body);
+            }
+            if (activeSegment != null) {
+                activeSegment.force();
+            }
+        } catch (IOException e) {
+            if (appended == 0) {
+                throw new UncheckedIOException("Could not append audit logs", e);
+            }
+            logger.error(String.format("Could not append audit logs after the first %d of %d", appended,
+                    auditLogs.size()), e);
+        }
+        return appended;
+    }
+
+    /**
+     * Tell whether an audit log fits in a segment.
+     */
+    @Override
+    public boolean accepts(AuditLog auditLog) {
+        return RECORD_HEADER_SIZE + encodeBody(auditLog).length <= segmentSize;
+    }
+
+    @Override
+    public Slice<AuditLog> findBefore(long beforeId, AuditLogFilter filter, int size) {
+
+        long fromNanos = filter.from() == null ? Long.MIN_VALUE : toEpochNanos(filter.from());
+        long toNanos = filter.to() == null ? Long.MAX_VALUE : toEpochNanos(filter.to());
+        List<AuditLog> auditLogs = new ArrayList<>(size + 1);
+        List<Segment> snapshot = List.copyOf(segments);
+        for (int s = snapshot.size() - 1; s >= 0 && auditLogs.size() <= size; s--) {
+            Segment segment = snapshot.get(s);
+            if (segment.baseId >= beforeId) {
+                continue;
+            }
+            List<IndexBlock> blocks = segment.blocks();
+            for (int b = blocks.size() - 1; b >= 0 && auditLogs.size() <= size; b--) {
+                IndexBlock block = blocks.get(b);
+                if (block.firstId() < beforeId && block.maxNanos() >= fromNanos && block.minNanos() < toNanos) {
+                    segment.read(block, beforeId, fromNanos, toNanos, filter, auditLogs, size + 1 - auditLogs.size());
+                }
+            }
+        }
+        boolean hasNext = auditLogs.size() > size;
+        return new SliceImpl<>(hasNext ? auditLogs.subList(0, size) : auditLogs, PageRequest.of(0, size), hasNext);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (activeSegment != null) {
+            activeSegment.force();
+        }
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    private void roll() throws IOException {
+
+        if (activeSegment != null) {
+            activeSegment.seal();
+        }
+        Path segmentFile = directory.resolve(String.format("%020d%s", nextId, SEGMENT_SUFFIX));
+        activeSegment = Segment.open(segmentFile, indexFile(segmentFile), segmentSize, indexInterval);
+        segments.add(activeSegment);
+        logger.debug("Started audit log segment {}", segmentFile);
+        deleteOldSegments();
+    }
+
+    private void deleteOldSegments() throws IOException {
+
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.remove(0);
+            oldest.delete();
+            logger.debug("Deleted audit log segment {}", oldest.segmentFile);
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+
+        if (buffer == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            logger.debug("Could not unmap an audit log segment, it is unmapped when it is garbage collected", e);
+        }
+    }
+
+    private static Path indexFile(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return segmentFile.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    // Timestamps are stored as nanoseconds since the epoch, read as UTC, saturated to the range of a long
+    static long toEpochNanos(LocalDateTime timestamp) {
+
+        long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+        try {
+            return Math.addExact(Math.multiplyExact(seconds, 1_000_000_000L), timestamp.getNano());
+        } catch (ArithmeticException e) {
+            return seconds < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private static LocalDateTime fromEpochNanos(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    private static byte[] encodeBody(AuditLog auditLog) {
+
+        String type = auditLog.getType() == null ? null : auditLog.getType().name();
+        byte[][] texts = Stream.of(type, auditLog.getDroneSerialNumber(), auditLog.getOldValue(),
+                        auditLog.getNewValue(), auditLog.getMessage())
+                .map(text -> text == null ? null : text.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+        int size = Long.BYTES;
+        for (byte[] text : texts) {
+            size += Integer.BYTES + (text == null ? 0 : text.length);
+        }
+        ByteBuffer body = ByteBuffer.allocate(size);
+        body.putLong(auditLog.getMedicationId() == null ? 0 : auditLog.getMedicationId());
+        for (byte[] text : texts) {
+            body.putInt(text == null ? -1 : text.length);
+            if (text != null) {
+                body.put(text);
+            }
+        }
+        return body.array();
+    }
+
+    private record IndexBlock(int start, int end, long firstId, long minNanos, long maxNanos) {
+
+        IndexBlock add(int recordEnd, long epochNanos) {
+            return new IndexBlock(start, recordEnd, firstId, Math.min(minNanos, epochNanos),
+                    Math.max(maxNanos, epochNanos));
+        }
+    }
+
+    /**
+     * A segment file and its index. Only the active segment is appended to, by one thread at a time. Readers see
+     * the indexed blocks up to the published count and the open block, which is replaced on every append. The lock
+     * keeps a segment from being unmapped or deleted while it is read.
+     */
+    private static final class Segment {
+
+        private final long baseId;
+        private final Path segmentFile;
+        private final Path indexFile;
+        private final int indexInterval;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // Mapped while the segment is appended to, then read through the channel
+        private MappedByteBuffer records;
+        private MappedByteBuffer index;
+        private FileChannel channel;
+        private boolean deleted;
+        private volatile IndexBlock[] closedBlocks = new IndexBlock[16];
+        private volatile int closedBlockCount;
+        private volatile IndexBlock openBlock;
+        private int end;
+        private long lastId;
+
+        private Segment(long baseId, Path segmentFile, Path indexFile, MappedByteBuffer records,
+                        MappedByteBuffer index, int indexInterval) {
+            this.baseId = baseId;
+            this.segmentFile = segmentFile;
+            this.indexFile = indexFile;
+            this.records = records;
+            this.index = index;
+            this.indexInterval = indexInterval;
+            this.lastId = baseId - 1;
+        }
+
+        static Segment open(Path segmentFile, Path indexFile, int segmentSize, int indexInterval) throws IOException {
+
+            String name = segmentFile.getFileName().toString();
+            long baseId = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            // Existing files keep their size, in case the configured sizes changed since they were created
+            MappedByteBuffer records = map(segmentFile, existingSize(segmentFile, segmentSize));
+            MappedByteBuffer index = map(indexFile, existingSize(indexFile,
+                    (records.capacity() / indexInterval + 2) * INDEX_ENTRY_SIZE));
+            Segment segment = new Segment(baseId, segmentFile, indexFile, records, index, indexInterval);
+            segment.recover();
+            return segment;
+        }
+
+        private static int existingSize(Path file, int size) throws IOException {
+            long existing = Files.exists(file) ? Files.size(file) : 0;
+            return existing > 0 ? (int) Math.min(Integer.MAX_VALUE, existing) : size;
+        }
+
+        private static MappedByteBuffer map(Path file, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        // Load the indexed blocks, then index the records appended after the last of them
+        private void recover() {
+
+            for (int position = 0; position + INDEX_ENTRY_SIZE <= index.capacity(); position += INDEX_ENTRY_SIZE) {
+                long firstId = index.getLong(position + 2 * Integer.BYTES);
+                if (firstId == 0) {
+                    break;
+                }
+                IndexBlock block = new IndexBlock(index.getInt(position), index.getInt(position + Integer.BYTES),
+                        firstId, index.getLong(position + 2 * Integer.BYTES + Long.BYTES),
+                        index.getLong(position + 2 * Integer.BYTES + 2 * Long.BYTES));
+                addClosedBlock(block);
+                end = block.end();
+            }
+            if (closedBlockCount > 0) {
+                lastId = lastIdOf(closedBlocks[closedBlockCount - 1]);
+            }
+            while (end + RECORD_HEADER_SIZE <= records.capacity()) {
+                int length = records.getInt(end);
+                if (length < RECORD_HEADER_SIZE - Integer.BYTES || end + Integer.BYTES + length > records.capacity()) {
+                    break;
+                }
+                long id = records.getLong(end + Integer.BYTES);
+                long epochNanos = records.getLong(end + Integer.BYTES + Long.BYTES);
+                indexRecord(end, end + Integer.BYTES + length, id, epochNanos);
+            }
+        }
+
+        boolean fits(int recordSize) {
+            return end + recordSize <= records.capacity();
+        }
+
+        void append(long id, long epochNanos, byte[] body) {
+
+            int start = end;
+            records.putLong(start + Integer.BYTES, id);
+            records.putLong(start + Integer.BYTES + Long.BYTES, epochNanos);
+            records.put(start + RECORD_HEADER_SIZE, body);
+            // Written last, so that a partly written record is not read
+            records.putInt(start, RECORD_HEADER_SIZE - Integer.BYTES + body.length);
+            indexRecord(start, start + RECORD_HEADER_SIZE + body.length, id, epochNanos);
+        }
+
+        private void indexRecord(int start, int recordEnd, long id, long epochNanos) {
+
+            IndexBlock block = openBlock == null ? new IndexBlock(start, recordEnd, id, epochNanos, epochNanos)
+                    : openBlock.add(recordEnd, epochNanos);
+            end = recordEnd;
+            lastId = id;
+            if (block.end() - block.start() >= indexInterval) {
+                closeBlock(block);
+            } else {
+                openBlock = block;
+            }
+        }
+
+        /**
+         * Close the open block, so that the index covers every record of a segment that is no longer appended to,
+         * force the segment to storage, then unmap it and cut the files to the size of their content.
+         */
+        void seal() throws IOException {
+
+            if (records == null) {
+                return;
+            }
+            if (openBlock != null) {
+                closeBlock(openBlock);
+            }
+            force();
+            lock.writeLock().lock();
+            try {
+                unmap(records);
+                unmap(index);
+                records = null;
+                index = null;
+                try (FileChannel segment = FileChannel.open(segmentFile, StandardOpenOption.WRITE);
+                     FileChannel segmentIndex = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                    segment.truncate(end);
+                    segmentIndex.truncate((long) closedBlockCount * INDEX_ENTRY_SIZE);
+                }
+                channel = FileChannel.open(segmentFile, StandardOpenOption.READ);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void delete() throws IOException {
+
+            lock.writeLock().lock();
+            try {
+                deleted = true;
+                closeResources();
+                Files.deleteIfExists(segmentFile);
+                Files.deleteIfExists(indexFile);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void close() {
+
+            lock.writeLock().lock();
+            try {
+                closeResources();
+            } catch (IOException e) {
+                logger.warn(String.format("Could not close audit log segment %s", segmentFile), e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void closeResources() throws IOException {
+
+            unmap(records);
+            unmap(index);
+            records = null;
+            index = null;
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        private void closeBlock(IndexBlock block) {
+
+            int position = closedBlockCount * INDEX_ENTRY_SIZE;
+            // An index sized for a larger interval may be full, the remaining blocks are indexed again on recovery
+            if (position + INDEX_ENTRY_SIZE <= index.capacity()) {
+                index.putInt(position, block.start());
+                index.putInt(position + Integer.BYTES, block.end());
+                index.putLong(position + 2 * Integer.BYTES + Long.BYTES, block.minNanos());
+                index.putLong(position + 2 * Integer.BYTES + 2 * Long.BYTES, block.maxNanos());
+                // Written last, an entry without its first id ends the index
+                index.putLong(position + 2 * Integer.BYTES, block.firstId());
+            }
+            addClosedBlock(block);
+            openBlock = null;
+        }
+
+        private void addClosedBlock(IndexBlock block) {
+
+            IndexBlock[] blocks = closedBlocks;
+            if (closedBlockCount == blocks.length) {
+                blocks = Arrays.copyOf(blocks, blocks.length * 2);
+                closedBlocks = blocks;
+            }
+            blocks[closedBlockCount] = block;
+            closedBlockCount++;
+        }
+
+        /**
+         * Blocks of the segment, oldest first. The count is read before the array, so that every counted block is
+         * in the array that is read.
+         */
+        List<IndexBlock> blocks() {
+
+            IndexBlock open = openBlock;
+            int count = closedBlockCount;
+            IndexBlock[] closed = closedBlocks;
+            List<IndexBlock> blocks = new ArrayList<>(count + 1);
+            Collections.addAll(blocks, Arrays.copyOf(closed, count));
+            // The open block read first may have been closed since
+            if (open != null && (count == 0 || closed[count - 1].start() != open.start())) {
+                blocks.add(open);
+            }
+            return blocks;
+        }
+
+        /**
+         * Read the audit logs of a block that match the id and time range and the event of the filter, newest first.
+         */
+        void read(IndexBlock block, long beforeId, long fromNanos, long toNanos, AuditLogFilter filter,
+                  List<AuditLog> auditLogs, int limit) {
+
+            List<AuditLog> matching = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                if (!deleted) {
+                    readBlock(block, beforeId, fromNanos, toNanos, filter, matching);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Could not read audit log segment %s", segmentFile), e);
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int i = matching.size() - 1; i >= 0 && limit > 0; i--, limit--) {
+                auditLogs.add(matching.get(i));
+            }
+        }
+
+        private void readBlock(IndexBlock block, long beforeId, long fromNanos, long toNanos, AuditLogFilter filter,
+                               List<AuditLog> matching) throws IOException {
+
+            ByteBuffer bytes = blockBytes(block);
+            for (int position = 0; position < bytes.limit(); ) {
+                int length = bytes.getInt(position);
+                long id = bytes.getLong(position + Integer.BYTES);
+                long epochNanos = bytes.getLong(position + Integer.BYTES + Long.BYTES);
+                if (id < beforeId && epochNanos >= fromNanos && epochNanos < toNanos) {
+                    AuditLog auditLog = decodeBody(bytes, position + RECORD_HEADER_SIZE);
+                    if (filter.matchesEvent(auditLog)) {
+                        auditLog.setId(id);
+                        auditLog.setTimestamp(fromEpochNanos(epochNanos));
+                        matching.add(auditLog);
+                    }
+                }
+                position += Integer.BYTES + length;
+            }
+        }
+
+        // The records of a block, from the mapping of the active segment or read from the file of a sealed one
+        private ByteBuffer blockBytes(IndexBlock block) throws IOException {
+
+            int size = block.end() - block.start();
+            if (records != null) {
+                return records.slice(block.start(), size);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(size);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, block.start() + bytes.position()) < 0) {
+                    throw new EOFException(String.format("Audit log segment %s ends before position %d",
+                            segmentFile, block.end()));
+                }
+            }
+            return bytes.flip();
+        }
+
+        private static AuditLog decodeBody(ByteBuffer bytes, int position) {
+
+            AuditLog auditLog = new AuditLog();
+            long medicationId = bytes.getLong(position);
+            auditLog.setMedicationId(medicationId == 0 ? null : medicationId);
+            String[] texts = new String[BODY_TEXT_COUNT];
+            position += Long.BYTES;
+            for (int i = 0; i < texts.length; i++) {
+                int length = bytes.getInt(position);
+                position += Integer.BYTES;
+                if (length >= 0) {
+                    byte[] text = new byte[length];
+                    bytes.get(position, text);
+                    texts[i] = new String(text, StandardCharsets.UTF_8);
+                    position += length;
+                }
+            }
+            auditLog.setType(texts[0] == null ? null : AuditEventType.valueOf(texts[0]));
+            auditLog.setDroneSerialNumber(texts[1]);
+            auditLog.setOldValue(texts[2]);
+            auditLog.setNewValue(texts[3]);
+            auditLog.setMessage(texts[4]);
+            return auditLog;
+        }
+
+        void force() {
+            if (records != null) {
+                records.force();
+                index.force();
+            }
+        }
+
+        private long lastIdOf(IndexBlock block) {
+
+            long id = block.firstId();
+            for (int position = block.start(); position < block.end(); ) {
+                id = records.getLong(position + Integer.BYTES);
+                position += Integer.BYTES + records.getInt(position);
+            }
+            return id;
+        }
+    }
+}
@@ -1,30 +1,303 @@
 package com.medi.imesh.drone.service;
 
-import com.medi.imesh.drone.repository.AuditLogRepository;
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.common.ApplicationConstants.AuditLogOverflowPolicy;
+import com.medi.imesh.drone.common.BoundedRingBuffer;
+import com.medi.imesh.drone.common.CursorPagination;
+import com.medi.imesh.drone.dto.CursorPageDTO;
+import com.medi.imesh.drone.exception.ValidationException;
+import com.medi.imesh.drone.repository.AuditLogFilter;
+import com.medi.imesh.drone.repository.AuditLogStore;
 import com.medi.imesh.drone.model.AuditLog;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service class for managing audit logs.
+ * <p>
+ * Audit logs are recorded without waiting for the database. They are added to a bounded lock-free buffer and
+ * written by a periodic flush all at once. When the buffer is full, the overflow policy decides
+ * whether the new audit log or the oldest buffered one is dropped, or whether the caller writes the buffer itself,
+ * in a transaction of its own. Audit logs the store cannot hold are dropped by the flush instead of being written.
+ * The latest audit logs are also kept in memory, so the recent tail is served without reading the database.
+ * <p>
+ * Audit logs are written to and read from the configured {@link AuditLogStore}.
  */
 @Service
-public class AuditLogService {
+public class AuditLogService implements MeterBinder {
+
+    private static final String CURSOR_RESOURCE = "logs";
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogService.class);
 
-    private final AuditLogRepository auditLogRepository;
+    private final AuditLogStore auditLogStore;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditLogOverflowPolicy overflowPolicy;
+    private final BoundedRingBuffer<AuditLog> pendingAuditLogs;
+    // The latest audit logs, overwritten in a circle and tagged with their position to detect slots being rewritten
+    private final AtomicReferenceArray<RecentAuditLog> recentAuditLogs;
+    private final AtomicLong recentPosition = new AtomicLong();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+
+    @Autowired
+    public AuditLogService(
+            AuditLogStore auditLogStore,
+            PlatformTransactionManager transactionManager,
+            @Value("${drone.audit.buffer-capacity:" + ApplicationConstants.AUDIT_LOG_BUFFER_CAPACITY + "}")
+            int bufferCapacity,
+            @Value("${drone.audit.recent-size:" + ApplicationConstants.AUDIT_LOG_RECENT_SIZE + "}")
+            int recentSize,
+            @Value("${drone.audit.overflow-policy:DROP_OLDEST}")
+            AuditLogOverflowPolicy overflowPolicy) {
+        if (recentSize < 1) {
+            throw new IllegalArgumentException(String.format("Invalid recent audit log size %d. Must be at least 1.",
+                    recentSize));
+        }
+        this.auditLogStore = auditLogStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.overflowPolicy = overflowPolicy;
+        this.pendingAuditLogs = new BoundedRingBuffer<>(bufferCapacity);
+        this.recentAuditLogs = new AtomicReferenceArray<>(recentSize);
+    }
 
-    public AuditLogService(AuditLogRepository auditLogRepository) {
-        this.auditLogRepository = auditLogRepository;
+    /**
+     * Get a page of audit logs, newest first.
+     *
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param size   Maximum number of audit logs in the page, or null for the default size
+     * @return A page of audit logs.
+     */
+    public CursorPageDTO<AuditLog> getAuditLogs(String cursor, Integer size) {
+        return getAuditLogs(cursor, size, AuditLogFilter.NONE);
     }
 
     /**
-     * Get all audit logs in the system within the page limit.
+     * Get a page of the audit logs matching a filter, newest first.
      *
-     * @param pageable Pagination data
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param size   Maximum number of audit logs in the page, or null for the default size
+     * @param filter Time range, event type and drone of the audit logs
      * @return A page of audit logs.
      */
-    public Page<AuditLog> getAllAuditLogs(Pageable pageable) {
-        return auditLogRepository.findAll(pageable);
+    public CursorPageDTO<AuditLog> getAuditLogs(String cursor, Integer size, AuditLogFilter filter) {
+
+        if (filter.from() != null && filter.to() != null && !filter.from().isBefore(filter.to())) {
+            throw new ValidationException(String.format("Invalid time range from %s to %s. The start must be " +
+                    "before the end.", filter.from(), filter.to()));
+        }
+        int pageSize = CursorPagination.resolvePageSize(size);
+        long beforeId = cursor == null ? Long.MAX_VALUE : CursorPagination.decodeLong(CURSOR_RESOURCE, cursor);
+        return CursorPagination.toPage(auditLogStore.findBefore(beforeId, filter, pageSize),
+                auditLog -> auditLog, CURSOR_RESOURCE, AuditLog::getId);
+    }
+
+    /**
+     * Get the latest audit logs recorded by this instance, newest first, from memory. Audit logs are listed as soon
+     * as they are recorded, before they are written, so they have no id.
+     *
+     * @param limit Maximum number of audit logs, or null for the default page size
+     * @return The latest audit logs
+     */
+    public List<AuditLog> getRecentAuditLogs(Integer limit) {
+
+        int count = Math.min(CursorPagination.resolvePageSize(limit), recentAuditLogs.length());
+        long end = recentPosition.get();
+        List<AuditLog> auditLogs = new ArrayList<>(count);
+        for (long position = end - 1; position >= Math.max(0, end - count); position--) {
+            RecentAuditLog recent = recentAuditLogs.get((int) (position % recentAuditLogs.length()));
+            // Skip a slot that is being rewritten or not written yet
+            if (recent != null && recent.position() == position) {
+                auditLogs.add(recent.auditLog());
+            }
+        }
+        return auditLogs;
+    }
+
+    /**
+     * Record audit logs to be written with the next flush. Inside a transaction they are recorded after it commits,
+     * so that the changes they describe are not logged if they are rolled back.
+     *
+     * @param auditLogs Audit logs to record
+     */
+    public void recordAll(List<AuditLog> auditLogs) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    auditLogs.forEach(AuditLogService.this::enqueue);
+                }
+            });
+        } else {
+            auditLogs.forEach(this::enqueue);
+        }
+    }
+
+    /**
+     * Write the buffered audit logs to the store at once. Audit logs the store cannot hold are dropped and counted,
+     * as writing them would fail every time. If the write fails, the audit logs the store did not write are put
+     * back into the buffer as far as there is room for them.
+     *
+     * @return Number of audit logs written
+     */
+    @Scheduled(fixedDelay = ApplicationConstants.AUDIT_LOG_FLUSH_INTERVAL)
+    @Transactional
+    public int flush() {
+
+        if (pendingAuditLogs.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<AuditLog> auditLogs = new ArrayList<>(pendingAuditLogs.size());
+        pendingAuditLogs.drainTo(auditLogs, pendingAuditLogs.capacity());
+        int drained = auditLogs.size();
+        auditLogs.removeIf(auditLog -> !auditLogStore.accepts(auditLog));
+        if (auditLogs.size() < drained) {
+            dropped.add(drained - auditLogs.size());
+            logger.warn(String.format("Dropped %d audit logs the store cannot hold", drained - auditLogs.size()));
+        }
+        int saved;
+        try {
+            saved = auditLogStore.saveAll(auditLogs);
+        } catch (RuntimeException e) {
+            requeue(auditLogs);
+            throw e;
+        }
+        if (saved < auditLogs.size()) {
+            requeue(auditLogs.subList(saved, auditLogs.size()));
+        }
+
+        written.add(saved);
+        flushes.increment();
+        flushNanos.add(System.nanoTime() - start);
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Flushed %d audit logs", saved));
+        }
+        return saved;
+    }
+
+    /**
+     * Write the audit logs still buffered when the application stops.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flushInNewTransaction();
+        } catch (RuntimeException e) {
+            logger.error(String.format("Could not write %d audit logs on shutdown", pendingAuditLogs.size()), e);
+        }
+    }
+
+    public int getBufferDepth() {
+        return pendingAuditLogs.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public AuditLogOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("drone.audit.logs", recorded, LongAdder::sum)
+                .tag("result", "recorded")
+                .description("Audit logs recorded for writing")
+                .register(registry);
+        FunctionCounter.builder("drone.audit.logs", written, LongAdder::sum)
+                .tag("result", "written")
+                .description("Audit logs written by a flush")
+                .register(registry);
+        FunctionCounter.builder("drone.audit.logs", dropped, LongAdder::sum)
+                .tag("result", "dropped")
+                .description("Audit logs dropped because the buffer was full or the store cannot hold them")
+                .register(registry);
+        Gauge.builder("drone.audit.buffer.depth", this, AuditLogService::getBufferDepth)
+                .description("Number of audit logs waiting to be written")
+                .register(registry);
+        FunctionTimer.builder("drone.audit.flush", this, service -> service.flushes.sum(),
+                        service -> service.flushNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time taken to write the buffered audit logs")
+                .register(registry);
+    }
+
+    private void enqueue(AuditLog auditLog) {
+
+        long position = recentPosition.getAndIncrement();
+        recentAuditLogs.set((int) (position % recentAuditLogs.length()), new RecentAuditLog(position, auditLog));
+        recorded.increment();
+
+        while (!pendingAuditLogs.offer(auditLog)) {
+            switch (overflowPolicy) {
+                case DROP_NEWEST -> {
+                    dropped.increment();
+                    return;
+                }
+                case DROP_OLDEST -> {
+                    if (pendingAuditLogs.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                case CALLER_RUNS -> {
+                    // Called after the transaction of the caller committed, so a failed write is not its failure
+                    try {
+                        flushInNewTransaction();
+                    } catch (RuntimeException e) {
+                        logger.error("Could not write the full audit log buffer, the new audit log is dropped", e);
+                        dropped.increment();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    // Put audit logs that were not written back into the buffer, as far as there is room for them
+    private void requeue(List<AuditLog> auditLogs) {
+        int requeued = (int) auditLogs.stream().filter(pendingAuditLogs::offer).count();
+        dropped.add(auditLogs.size() - requeued);
+    }
+
+    /**
+     * Flush from a caller that did not go through the transactional proxy. Audit logs are recorded after the
+     * transaction of the caller commits, while its connection is still bound but can no longer be written to, so
+     * the flush runs in a transaction of its own.
+     */
+    private int flushInNewTransaction() {
+        Integer flushedAuditLogs = transactionTemplate.execute(status -> flush());
+        return flushedAuditLogs == null ? 0 : flushedAuditLogs;
+    }
+
+    private record RecentAuditLog(long position, AuditLog auditLog) {
     }
 }
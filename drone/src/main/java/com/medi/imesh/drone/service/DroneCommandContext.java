@@ -0,0 +1,55 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.cache.DroneSnapshot;
+import com.medi.imesh.drone.dto.DroneLoadDTO;
+import com.medi.imesh.drone.dto.MedicationDTO;
+
+import java.util.Optional;
+
+/**
+ * State required to validate a single drone command.
+ * <p>
+ * The drone and the target medication are fetched once when the context is created, so a command never reads the
+ * same data twice. The current load of the drone is taken from the load counters of the fetched drone.
+ * A context is bound to one request.
+ */
+public class DroneCommandContext {
+
+    private final String droneSerialNumber;
+    private final DroneSnapshot drone;
+    private final Long medicationId;
+    private final MedicationDTO medication;
+
+    DroneCommandContext(String droneSerialNumber, DroneSnapshot drone, Long medicationId, MedicationDTO medication) {
+        this.droneSerialNumber = droneSerialNumber;
+        this.drone = drone;
+        this.medicationId = medicationId;
+        this.medication = medication;
+    }
+
+    public String getDroneSerialNumber() {
+        return droneSerialNumber;
+    }
+
+    public Optional<DroneSnapshot> getDrone() {
+        return Optional.ofNullable(drone);
+    }
+
+    public Long getMedicationId() {
+        return medicationId;
+    }
+
+    public Optional<MedicationDTO> getMedication() {
+        return Optional.ofNullable(medication);
+    }
+
+    /**
+     * Get the medications currently loaded in the drone, from the counters maintained on the drone.
+     *
+     * @return Current load of the drone, empty if the drone does not exist
+     */
+    public DroneLoadDTO getCurrentLoad() {
+        return drone == null ? new DroneLoadDTO(0L, 0L)
+                : new DroneLoadDTO((long) drone.getLoadedPackCount(), (long) drone.getLoadedWeight());
+    }
+}
@@ -0,0 +1,169 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.exception.CommandTimeoutException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs the commands that change a drone one at a time per drone.
+ * <p>
+ * A command validates the state of a drone and then changes it, so two commands running concurrently on the same
+ * drone could both pass the validation, e.g. two state changes that are each allowed from the current state but
+ * not one after the other. Commands are therefore routed by serial number to one of a fixed number of single
+ * threaded stripes. Commands of the same drone always run on the same stripe, in the order they were submitted,
+ * while commands of drones on other stripes run in parallel. The caller waits for the command, so it runs in its
+ * own transaction on the stripe thread and its result, or exception, is returned to the caller unchanged.
+ * <p>
+ * A stripe is shared by many drones, so a command also waits for the commands of the other drones of its stripe
+ * submitted before it, e.g. behind a slow command of another drone. This wait is bounded: a command that has not
+ * started after the wait time is not run and the caller gets a CommandTimeoutException. A command that has started
+ * is always waited for, it only runs for as long as its own transaction.
+ * <p>
+ * Loads do not need the dispatcher, they are checked and recorded by a single conditional update of the drone.
+ */
+@Component
+public class DroneCommandDispatcher implements MeterBinder {
+
+    private static final ThreadLocal<ThreadPoolExecutor> CURRENT_STRIPE = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor[] stripes;
+    private final long maxWaitNanos;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public DroneCommandDispatcher() {
+        this(ApplicationConstants.COMMAND_DISPATCHER_STRIPES, ApplicationConstants.COMMAND_DISPATCHER_WAIT);
+    }
+
+    DroneCommandDispatcher(int stripeCount, long maxWaitMillis) {
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.stripes = new ThreadPoolExecutor[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            String threadName = "drone-commands-" + i;
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * Run a command after the commands already submitted for the same drone, and wait for its result. If the caller
+     * is interrupted while waiting, a command that has not started is not run, and a running command is left to
+     * finish.
+     *
+     * @param droneSerialNumber Serial number of the drone the command changes
+     * @param command           Command to run
+     * @return The result of the command
+     * @throws CommandTimeoutException If the command did not start within the wait time, it is then not run
+     */
+    public <T> T execute(String droneSerialNumber, Supplier<T> command) {
+
+        ThreadPoolExecutor stripe = stripes[Math.floorMod(droneSerialNumber.hashCode(), stripes.length)];
+        // A command issued from a command of the same stripe would wait for itself, so it is run in place
+        if (CURRENT_STRIPE.get() == stripe) {
+            return command.get();
+        }
+
+        // Claimed by the stripe thread when the command starts, or by the caller when it stops waiting for the start
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> result = stripe.submit(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            CURRENT_STRIPE.set(stripe);
+            try {
+                return command.get();
+            } finally {
+                CURRENT_STRIPE.remove();
+                executed.increment();
+            }
+        });
+        try {
+            try {
+                return result.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    result.cancel(false);
+                    timedOut.increment();
+                    throw new CommandTimeoutException(String.format("The command of drone %s did not start " +
+                            "within %d ms, earlier commands are still running. Retry the request later.",
+                            droneSerialNumber, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos)));
+                }
+                // The command started in the meantime, it is waited for until it completes
+                return result.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // A command that has not started yet is dropped. A running command is not interrupted, so that it
+            // completes or rolls back its transaction on its own instead of failing halfway through a statement.
+            result.cancel(false);
+            throw new IllegalStateException(String.format("Interrupted while waiting for a command of drone %s",
+                    droneSerialNumber), e);
+        }
+    }
+
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    public int getQueuedCount() {
+
+        int queued = 0;
+        for (ThreadPoolExecutor stripe : stripes) {
+            queued += stripe.getQueue().size();
+        }
+        return queued;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("drone.commands.executed", executed, LongAdder::sum)
+                .description("Drone commands run by the per drone command dispatcher")
+                .register(registry);
+        FunctionCounter.builder("drone.commands.timedout", timedOut, LongAdder::sum)
+                .description("Drone commands rejected because they did not start within the wait time")
+                .register(registry);
+        Gauge.builder("drone.commands.queued", this, DroneCommandDispatcher::getQueuedCount)
+                .description("Drone commands waiting for an earlier command on the same stripe")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+}
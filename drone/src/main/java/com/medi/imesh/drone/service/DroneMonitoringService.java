@@ -1,50 +1,354 @@
 package com.medi.imesh.drone.service;
 
-import com.medi.imesh.drone.repository.AuditLogRepository;
+import com.medi.imesh.drone.exception.ValidationException;
 import com.medi.imesh.drone.repository.DroneRepository;
 import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.event.DroneChangedEvent;
 import com.medi.imesh.drone.model.AuditLog;
-import com.medi.imesh.drone.model.Drone;
+import com.medi.imesh.drone.repository.DroneSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Service responsible for monitoring drone battery levels and logging any issues found.
- * This service periodically checks the battery levels of all drones in the system and logs
- * any that have a battery capacity below a specified threshold.
+ * <p>
+ * A drone is detected as soon as a battery level change drops it below the threshold: every battery change event,
+ * from a battery level update or a telemetry flush, is checked in the transaction that made the change. The drone
+ * is recorded in the audit log and a low battery alert is published to the drone event stream. It is recorded
+ * again only after it was charged above the threshold and dropped below it again.
+ * <p>
+ * The last alert of every low drone is a row of the battery_alert table, shared by all instances, so a drone alerted
+ * by one instance is not alerted again by another one, nor after a restart or a partition handover. An alert is
+ * claimed with a conditional update or an insert in its own transaction, so of several instances alerting the same
+ * drone exactly one succeeds, and the row is removed in the transaction of the battery change that charges the
+ * drone.
+ * <p>
+ * Changes that do not go through these paths are caught by a slow periodic scan of the drones below the threshold
+ * that were not alerted within the re-alert period, read through the battery capacity index. The interval, the
+ * threshold and the re-alert period can be changed at runtime through the batterymonitor actuator endpoint over
+ * JMX, a new interval applies from the next scan.
+ * <p>
+ * When several instances run, the scan runs on the instance holding its lease. With more than one partition
+ * configured, the serial numbers are instead split by hash into partitions leased separately, and every instance
+ * scans the drones of the partitions it holds, selected by the scan query from the stored hash of their serial
+ * numbers.
  */
 @Service
-public class DroneMonitoringService {
+public class DroneMonitoringService implements SchedulingConfigurer {
+
+    private static final String COUNT_ALERTS = "SELECT COUNT(*) FROM battery_alert WHERE drone_serial_number = ?";
+    private static final String RENEW_ALERT = "UPDATE battery_alert SET alerted_at = ? " +
+            "WHERE drone_serial_number = ? AND alerted_at <= ?";
+    private static final String INSERT_ALERT = "INSERT INTO battery_alert (drone_serial_number, alerted_at) " +
+            "VALUES (?, ?)";
+    private static final String RELEASE_ALERT = "DELETE FROM battery_alert WHERE drone_serial_number = ? " +
+            "AND alerted_at = ?";
+    private static final String CLEAR_ALERT = "DELETE FROM battery_alert WHERE drone_serial_number = ?";
+    private static final String CLEAR_CHARGED_ALERTS = "DELETE FROM battery_alert WHERE alerted_at <= ? " +
+            "AND NOT EXISTS (SELECT 1 FROM drone d WHERE d.serial_number = battery_alert.drone_serial_number " +
+            "AND d.battery_capacity < ?)";
+    private static final String FIND_ALERTED_DRONES = "SELECT drone_serial_number FROM battery_alert";
 
     private final DroneRepository droneRepository;
-    private final AuditLogRepository auditLogRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobLeaseService jobLeaseService;
+    private final int partitions;
+    private final Clock clock;
+    private volatile int batteryThreshold;
+    private volatile Duration monitoringInterval;
+    private volatile Duration realertPeriod;
+    private volatile Set<Integer> ownedPartitions = Set.of();
+    private static final String BATTERY_SCAN_JOB = "battery-scan";
     private static final Logger logger = LoggerFactory.getLogger(DroneMonitoringService.class);
 
+    @Autowired
+    public DroneMonitoringService(
+            DroneRepository droneRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            AuditLogService auditLogService, ApplicationEventPublisher eventPublisher, JobLeaseService jobLeaseService,
+            @Value("${drone.monitoring.battery-threshold:" + ApplicationConstants.LOADING_BATTERY_THRESHOLD + "}")
+            int batteryThreshold,
+            @Value("${drone.monitoring.interval:" + ApplicationConstants.MONITORING_INTERVAL + "ms}")
+            Duration monitoringInterval,
+            @Value("${drone.monitoring.realert-period:" + ApplicationConstants.MONITORING_REALERT_PERIOD + "ms}")
+            Duration realertPeriod,
+            @Value("${drone.monitoring.partitions:1}") int partitions) {
+        this(droneRepository, jdbcTemplate, transactionManager, auditLogService, eventPublisher, jobLeaseService,
+                partitions, Clock.systemUTC());
+        updateSettings(batteryThreshold, monitoringInterval, realertPeriod);
+    }
 
-    public DroneMonitoringService(DroneRepository droneRepository, AuditLogRepository auditLogRepository) {
+    DroneMonitoringService(DroneRepository droneRepository, JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager, AuditLogService auditLogService,
+                           ApplicationEventPublisher eventPublisher, JobLeaseService jobLeaseService, int partitions,
+                           Clock clock) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException(String.format("Invalid number of partitions %d. Must be at least 1.",
+                    partitions));
+        }
         this.droneRepository = droneRepository;
-        this.auditLogRepository = auditLogRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.auditLogService = auditLogService;
+        this.eventPublisher = eventPublisher;
+        this.jobLeaseService = jobLeaseService;
+        this.partitions = partitions;
+        this.clock = clock;
+        this.batteryThreshold = ApplicationConstants.LOADING_BATTERY_THRESHOLD;
+        this.monitoringInterval = Duration.ofMillis(ApplicationConstants.MONITORING_INTERVAL);
+        this.realertPeriod = Duration.ofMillis(ApplicationConstants.MONITORING_REALERT_PERIOD);
     }
 
     /**
-     * Periodically checks the battery levels of all drones in the system.
-     * Drones with battery capacity below threshold are logged and recorded in the audit log.
+     * Schedule the battery check, reading the interval again after every check so that it can be changed at runtime.
+     */
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addTriggerTask(this::runScheduledCheck, triggerContext -> {
+            Instant lastExecution = triggerContext.lastActualExecution();
+            return lastExecution == null ? clock.instant() : lastExecution.plus(monitoringInterval);
+        });
+    }
+
+    /**
+     * Run the scheduled battery check on the drones this instance is responsible for. Without partitions the
+     * instance holding the lease scans all drones and keeps the lease for half an interval, so that instances
+     * scheduled slightly later skip the scan. With partitions, the partition leases are renewed on every scan and
+     * held for two intervals, so that the partitions of a stopped instance are taken over after that time.
+     */
+    void runScheduledCheck() {
+
+        Duration interval = monitoringInterval;
+        if (partitions == 1) {
+            jobLeaseService.runIfLeased(BATTERY_SCAN_JOB, interval, interval.dividedBy(2), () -> {
+                checkDronesBatteryLevel();
+                return null;
+            });
+            return;
+        }
+        Set<Integer> held = jobLeaseService.acquirePartitions(BATTERY_SCAN_JOB, partitions, interval.multipliedBy(2));
+        ownedPartitions = held;
+        if (!held.isEmpty()) {
+            checkDronesBatteryLevel(held);
+        }
+    }
+
+    /**
+     * Check a battery level change for a drop below the threshold, in the transaction that made the change.
+     * The drone is claimed in its own transaction before it is recorded, so concurrent changes of the same drone on
+     * any instance record it once, and the claim is released if the change is rolled back. A change that charges
+     * the drone removes its alert in the transaction of the change.
+     *
+     * @param event Drone change event
+     */
+    @EventListener
+    public void onBatteryLevelChanged(DroneChangedEvent event) {
+
+        if (event.getChangeType() != DroneChangedEvent.ChangeType.BATTERY) {
+            return;
+        }
+        String serialNumber = event.getSerialNumber();
+        if (event.getBatteryCapacity() >= batteryThreshold) {
+            jdbcTemplate.update(CLEAR_ALERT, serialNumber);
+            return;
+        }
+        // Most changes of a low drone find it already alerted, without starting a transaction of their own
+        Integer alerts = jdbcTemplate.queryForObject(COUNT_ALERTS, Integer.class, serialNumber);
+        if (alerts != null && alerts > 0) {
+            return;
+        }
+        long now = clock.millis();
+        if (!claimAlert(serialNumber, now, Long.MIN_VALUE)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        transactionTemplate.executeWithoutResult(releaseStatus ->
+                                jdbcTemplate.update(RELEASE_ALERT, serialNumber, now));
+                    }
+                }
+            });
+        }
+
+        String message = String.format("Drone %s has low battery level: %d", serialNumber,
+                event.getBatteryCapacity());
+        logger.info(message);
+        auditLogService.recordAll(List.of(lowBatteryAuditLog(serialNumber, event.getBatteryCapacity(), message)));
+        eventPublisher.publishEvent(new DroneChangedEvent(DroneChangedEvent.ChangeType.LOW_BATTERY, serialNumber,
+                event.getState(), event.getBatteryCapacity(), event.getVersion()));
+    }
+
+    /**
+     * Checks the battery levels of the drones below the threshold, as a safety net for the detection on battery
+     * level changes. Drones that crossed the threshold without being detected, or are still low after the re-alert
+     * period, are logged and recorded in the audit log together.
      */
-    @Scheduled(fixedRate = ApplicationConstants.MONITORING_INTERVAL)
     public void checkDronesBatteryLevel() {
+        checkDronesBatteryLevel(IntStream.range(0, partitions).boxed().collect(Collectors.toSet()));
+    }
+
+    /**
+     * Checks the battery levels of the drones below the threshold among the drones of the given partitions.
+     * The query only returns the low drones of these partitions that were not alerted within the re-alert period,
+     * and each of them is claimed before it is recorded, so that an instance scanning at the same time or alerting
+     * the drone on a battery change does not record it too. Alerts of drones that were charged, or deleted, without
+     * a battery change event are removed once they are older than the interval.
+     *
+     * @param partitionIds Partitions of the drones to check
+     */
+    void checkDronesBatteryLevel(Set<Integer> partitionIds) {
 
-        List<Drone> drones = droneRepository.findAll();
-        for (Drone drone : drones) {
-            if (drone.getBatteryCapacity() < ApplicationConstants.LOADING_BATTERY_THRESHOLD) {
-                String message = String.format("Drone %s has low battery level: %d", drone.getSerialNumber(),
-                        drone.getBatteryCapacity());
-                logger.info(message);
-                auditLogRepository.save(new AuditLog(message));
+        int threshold = batteryThreshold;
+        long now = clock.millis();
+        long realertBefore = now - realertPeriod.toMillis();
+        List<DroneChangedEvent> alerts = new ArrayList<>();
+        List<AuditLog> auditLogs = new ArrayList<>();
+        for (DroneSummary drone : droneRepository.findLowBatteryDronesToAlert(threshold, partitions, partitionIds,
+                realertBefore)) {
+            if (!claimAlert(drone.getSerialNumber(), now, realertBefore)) {
+                continue;
             }
+            String message = String.format("Drone %s has low battery level: %d", drone.getSerialNumber(),
+                    drone.getBatteryCapacity());
+            logger.info(message);
+            alerts.add(new DroneChangedEvent(DroneChangedEvent.ChangeType.LOW_BATTERY, drone.getSerialNumber(),
+                    drone.getState(), drone.getBatteryCapacity(), null));
+            auditLogs.add(lowBatteryAuditLog(drone.getSerialNumber(), drone.getBatteryCapacity(), message));
         }
+
+        if (!auditLogs.isEmpty()) {
+            auditLogService.recordAll(auditLogs);
+        }
+        alerts.forEach(eventPublisher::publishEvent);
+        // Drones that were charged, or deleted, are recorded again when they next drop below the threshold
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update(CLEAR_CHARGED_ALERTS, now - monitoringInterval.toMillis(), threshold));
+    }
+
+    /**
+     * Claim the alert of a drone, in its own transaction so that it is visible to the other instances at once.
+     *
+     * @param serialNumber  Serial number of the drone
+     * @param now           Time of the alert
+     * @param realertBefore An alert at or before this time is replaced, a later one is kept
+     * @return true if the drone was claimed, false if it was alerted after the given time
+     */
+    private boolean claimAlert(String serialNumber, long now, long realertBefore) {
+
+        Boolean claimed = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(RENEW_ALERT, now, serialNumber, realertBefore) > 0) {
+                return true;
+            }
+            try {
+                return jdbcTemplate.update(INSERT_ALERT, serialNumber, now) > 0;
+            } catch (DuplicateKeyException e) {
+                // The drone was alerted within the re-alert period
+                return false;
+            }
+        });
+        return Boolean.TRUE.equals(claimed);
+    }
+
+    /**
+     * Change the settings of the battery check. Drones already recorded are not recorded again because of a new
+     * threshold until they cross it.
+     *
+     * @param batteryThreshold   Battery capacity below which a drone is recorded, or null to keep the current one
+     * @param monitoringInterval Time between two checks, between 10 seconds and a day, or null to keep the current
+     *                           one
+     * @param realertPeriod      Time after which a drone that is still low is recorded again, at most a week, or
+     *                           null to keep the current one
+     */
+    public void updateSettings(Integer batteryThreshold, Duration monitoringInterval, Duration realertPeriod) {
+
+        if (batteryThreshold != null && (batteryThreshold < 1 || batteryThreshold > 100)) {
+            throw new ValidationException(String.format("Invalid battery threshold %d. Threshold must be between 1 " +
+                    "and 100.", batteryThreshold));
+        }
+        Duration minInterval = Duration.ofMillis(ApplicationConstants.MONITORING_MIN_INTERVAL);
+        Duration maxInterval = Duration.ofMillis(ApplicationConstants.MONITORING_MAX_INTERVAL);
+        if (monitoringInterval != null
+                && (monitoringInterval.compareTo(minInterval) < 0 || monitoringInterval.compareTo(maxInterval) > 0)) {
+            throw new ValidationException(String.format("Invalid monitoring interval %s. Interval must be between " +
+                    "%s and %s.", monitoringInterval, minInterval, maxInterval));
+        }
+        Duration maxRealertPeriod = Duration.ofMillis(ApplicationConstants.MONITORING_MAX_REALERT_PERIOD);
+        if (realertPeriod != null && (realertPeriod.isNegative() || realertPeriod.isZero()
+                || realertPeriod.compareTo(maxRealertPeriod) > 0)) {
+            throw new ValidationException(String.format("Invalid re-alert period %s. Period must be positive and at " +
+                    "most %s.", realertPeriod, maxRealertPeriod));
+        }
+        if (batteryThreshold != null) {
+            this.batteryThreshold = batteryThreshold;
+        }
+        if (monitoringInterval != null) {
+            this.monitoringInterval = monitoringInterval;
+        }
+        if (realertPeriod != null) {
+            this.realertPeriod = realertPeriod;
+        }
+    }
+
+    public int getBatteryThreshold() {
+        return batteryThreshold;
+    }
+
+    public Duration getMonitoringInterval() {
+        return monitoringInterval;
+    }
+
+    public Duration getRealertPeriod() {
+        return realertPeriod;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public Set<Integer> getOwnedPartitions() {
+        return ownedPartitions;
+    }
+
+    /**
+     * Get the drones alerted as low by any instance and not known to be charged since.
+     *
+     * @return Serial numbers of the low battery drones
+     */
+    public Set<String> getLowBatteryDrones() {
+        return Set.copyOf(jdbcTemplate.queryForList(FIND_ALERTED_DRONES, String.class));
+    }
+
+    private static AuditLog lowBatteryAuditLog(String serialNumber, int batteryCapacity, String message) {
+        return new AuditLog(ApplicationConstants.AuditEventType.LOW_BATTERY, serialNumber, null, null,
+                String.valueOf(batteryCapacity), message);
     }
 }
@@ -1,28 +1,44 @@
 package com.medi.imesh.drone.service;
 
+import com.medi.imesh.drone.cache.DroneSnapshot;
+import com.medi.imesh.drone.cache.FleetStateCache;
 import com.medi.imesh.drone.repository.DroneMedicationRepository;
 import com.medi.imesh.drone.repository.DroneRepository;
+import com.medi.imesh.drone.exception.PreconditionFailedException;
+import com.medi.imesh.drone.exception.ValidationException;
 import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.common.ApplicationConstants.AuditEventType;
+import com.medi.imesh.drone.common.CursorPagination;
+import com.medi.imesh.drone.dto.CursorPageDTO;
 import com.medi.imesh.drone.dto.DroneDTO;
 import com.medi.imesh.drone.dto.MedicationDTO;
 import com.medi.imesh.drone.dto.MedicationInfoDTO;
+import com.medi.imesh.drone.dto.MedicationLoadDTO;
+import com.medi.imesh.drone.event.DroneChangedEvent;
 import com.medi.imesh.drone.mapper.DroneMapper;
-import com.medi.imesh.drone.mapper.MedicationMapper;
+import com.medi.imesh.drone.model.AuditLog;
 import com.medi.imesh.drone.model.Drone;
-import com.medi.imesh.drone.model.DroneMedication;
-import com.medi.imesh.drone.model.Medication;
+import com.medi.imesh.drone.repository.AuditLogFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing drones.
@@ -32,21 +48,35 @@ import java.util.stream.Collectors;
 @Service
 public class DroneService {
 
+    private static final String CURSOR_RESOURCE = "drones";
+
     private final DroneRepository droneRepository;
     private final DroneMedicationRepository droneMedicationRepository;
     private final DroneValidationService droneValidationService;
+    private final FleetStateCache fleetStateCache;
+    private final LoadCounterService loadCounterService;
     private final MedicationService medicationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuditLogService auditLogService;
     private static final Logger logger = LoggerFactory.getLogger(DroneService.class);
 
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
     public DroneService(DroneRepository droneRepository, DroneMedicationRepository droneMedicationRepository,
-                        DroneValidationService droneValidationService, MedicationService medicationService) {
+                        DroneValidationService droneValidationService, FleetStateCache fleetStateCache,
+                        LoadCounterService loadCounterService, MedicationService medicationService,
+                        ApplicationEventPublisher eventPublisher, AuditLogService auditLogService) {
 
         this.droneRepository = droneRepository;
         this.droneMedicationRepository = droneMedicationRepository;
         this.droneValidationService = droneValidationService;
+        this.fleetStateCache = fleetStateCache;
+        this.loadCounterService = loadCounterService;
         this.medicationService = medicationService;
+        this.eventPublisher = eventPublisher;
+        this.auditLogService = auditLogService;
     }
 
     /**
@@ -59,7 +89,8 @@ public class DroneService {
 
         Drone drone = DroneMapper.dtoToEntity(droneDTO);
         droneValidationService.validateDroneRegistration(droneDTO);
-        Drone savedDrone = droneRepository.save(drone);
+        Drone savedDrone = fleetStateCache.save(drone);
+        eventPublisher.publishEvent(DroneChangedEvent.of(DroneChangedEvent.ChangeType.REGISTERED, savedDrone));
 
         if (logger.isDebugEnabled()) {
             logger.debug(String.format("Drone with serial number %s successfully registered in the system",
@@ -69,18 +100,59 @@ public class DroneService {
     }
 
     /**
-     * Retrieves all drones registered in the system.
+     * Registers a batch of drones in the system in a single transaction. Uniqueness of the whole batch is checked
+     * with one query, and the drones are inserted in JDBC batches without a select per drone.
+     *
+     * @param droneDTOs The drones to register.
+     * @return Number of drones registered.
+     */
+    @Transactional
+    public int registerDrones(List<DroneDTO> droneDTOs) {
+
+        droneValidationService.validateBulkDroneRegistration(droneDTOs);
+        List<Drone> drones = droneDTOs.stream().map(DroneMapper::dtoToEntity).toList();
+        for (Drone savedDrone : fleetStateCache.saveAll(drones)) {
+            eventPublisher.publishEvent(DroneChangedEvent.of(DroneChangedEvent.ChangeType.REGISTERED, savedDrone));
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("%d drones successfully registered in the system", drones.size()));
+        }
+        return drones.size();
+    }
+
+    /**
+     * Retrieves a page of drones registered in the system, ordered by serial number.
      *
-     * @return A List of DroneDTOs representing all drones.
+     * @param cursor Cursor returned with the previous page, or null for the first page.
+     * @param size   Maximum number of drones in the page, or null for the default size.
+     * @return A page of DroneDTOs.
      */
-    public List<DroneDTO> findAllDrones() {
+    public CursorPageDTO<DroneDTO> findDrones(String cursor, Integer size) {
+
+        int pageSize = CursorPagination.resolvePageSize(size);
+        String afterSerialNumber = cursor == null ? "" : CursorPagination.decode(CURSOR_RESOURCE, cursor);
+        return CursorPagination.toPage(droneRepository.findBySerialNumberGreaterThan(afterSerialNumber,
+                        PageRequest.of(0, pageSize, Sort.by("serialNumber"))),
+                DroneMapper::entityToDto, CURSOR_RESOURCE, Drone::getSerialNumber);
+    }
 
-        List<Drone> drones = droneRepository.findAll();
-        List<DroneDTO> droneDTOs = new ArrayList<>();
-        for (Drone drone : drones) {
-            droneDTOs.add(DroneMapper.entityToDto(drone));
+    /**
+     * Streams all drones registered in the system, ordered by serial number.
+     * Each drone is mapped and handed to the consumer, then detached so that the persistence context
+     * does not grow with the size of the fleet.
+     *
+     * @param consumer Consumer of the mapped drones.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllDrones(Consumer<DroneDTO> consumer) {
+
+        try (Stream<Drone> drones = droneRepository.streamAllByOrderBySerialNumber()) {
+            drones.forEach(drone -> {
+                consumer.accept(DroneMapper.entityToDto(drone));
+                entityManager.detach(drone);
+            });
         }
-        return droneDTOs;
     }
 
     /**
@@ -91,10 +163,9 @@ public class DroneService {
      */
     public Optional<DroneDTO> findDroneBySerialNumber(String droneSerialNumber) {
 
-        Optional<Drone> optionalDrone = droneRepository.findBySerialNumber(droneSerialNumber);
-        if (optionalDrone.isPresent()) {
-            Drone drone = optionalDrone.get();
-            DroneDTO droneDTO = DroneMapper.entityToDto(drone);
+        Optional<DroneSnapshot> snapshotOpt = fleetStateCache.find(droneSerialNumber);
+        if (snapshotOpt.isPresent()) {
+            DroneDTO droneDTO = DroneMapper.snapshotToDto(snapshotOpt.get());
             return Optional.of(droneDTO);
         } else {
             return Optional.empty();
@@ -108,15 +179,27 @@ public class DroneService {
      * @return A List of available DroneDTOs.
      */
     public List<DroneDTO> findAvailableDrones() {
+        return findAvailableDrones(null, Sort.Direction.DESC);
+    }
 
-        List<Drone> availableDrones = new ArrayList<>();
-        List<Drone> allDrones = droneRepository.findAll();
-        for (Drone drone : allDrones) {
-            if (drone.getBatteryCapacity() >= 25 && drone.getState() == ApplicationConstants.DroneState.IDLE) {
-                availableDrones.add(drone);
-            }
+    /**
+     * Finds drones available for loading, ordered by battery capacity.
+     * Filtering, ordering and limiting are done by the database using the (state, battery_capacity) index.
+     *
+     * @param limit     Maximum number of drones to return, or null to return all available drones.
+     * @param direction Direction to order the drones by battery capacity.
+     * @return A List of available DroneDTOs.
+     */
+    public List<DroneDTO> findAvailableDrones(Integer limit, Sort.Direction direction) {
+
+        if (limit != null && limit < 1) {
+            throw new ValidationException(String.format("Invalid limit %d. Limit must be at least 1.", limit));
         }
-        return availableDrones.stream().map(DroneMapper::entityToDto).collect(Collectors.toList());
+        Sort sort = Sort.by(direction, "batteryCapacity").and(Sort.by("serialNumber"));
+        return droneRepository.findByStateAndBatteryCapacityGreaterThanEqual(ApplicationConstants.DroneState.IDLE,
+                        ApplicationConstants.LOADING_BATTERY_THRESHOLD, sort,
+                        limit == null ? Limit.unlimited() : Limit.of(limit))
+                .stream().map(DroneMapper::summaryToDto).collect(Collectors.toList());
     }
 
     /**
@@ -127,10 +210,10 @@ public class DroneService {
      */
     public boolean deleteDrone(String droneSerialNumber) {
 
-        droneValidationService.checkIfDroneIsDeletable(droneSerialNumber);
+        droneValidationService.checkIfDroneIsDeletable(droneValidationService.createContext(droneSerialNumber));
         Optional<Drone> drone = droneRepository.findBySerialNumber(droneSerialNumber);
         if (drone.isPresent()) {
-            droneRepository.delete(drone.get());
+            fleetStateCache.delete(drone.get());
             if (logger.isDebugEnabled()) {
                 logger.debug(String.format("Drone with serial number %s successfully deleted from the system",
                         droneSerialNumber));
@@ -145,54 +228,126 @@ public class DroneService {
      *
      * @param droneSerialNumber The serial number of the drone to update.
      * @param newState          The new state to set for the drone.
+     * @return An Optional containing the updated drone, or empty if not found.
      */
-    public void updateDroneState(String droneSerialNumber, ApplicationConstants.DroneState newState) {
+    @Transactional
+    public Optional<DroneDTO> updateDroneState(String droneSerialNumber, ApplicationConstants.DroneState newState) {
+        return updateDroneState(droneSerialNumber, newState, null);
+    }
+
+    /**
+     * Updates the state of a specific drone if it is still at the expected version.
+     *
+     * @param droneSerialNumber The serial number of the drone to update.
+     * @param newState          The new state to set for the drone.
+     * @param expectedVersion   The version the client last saw, or null to update any version.
+     * @return An Optional containing the updated drone, or empty if not found.
+     */
+    @Transactional
+    public Optional<DroneDTO> updateDroneState(String droneSerialNumber, ApplicationConstants.DroneState newState,
+                                               Long expectedVersion) {
 
-        droneValidationService.validateDroneStateChange(droneSerialNumber, newState);
+        droneValidationService.validateDroneStateChange(droneValidationService.createContext(droneSerialNumber),
+                newState);
 
         Optional<Drone> droneOpt = droneRepository.findBySerialNumber(droneSerialNumber);
         if (droneOpt.isPresent()) {
             Drone drone = droneOpt.get();
+            checkVersion(drone, expectedVersion);
             ApplicationConstants.DroneState oldDroneState = drone.getState();
             drone.setState(newState);
-            droneRepository.save(drone);
+            Drone savedDrone = fleetStateCache.save(drone);
+            eventPublisher.publishEvent(DroneChangedEvent.of(DroneChangedEvent.ChangeType.STATE, savedDrone));
+            auditLogService.recordAll(List.of(new AuditLog(AuditEventType.STATE_CHANGED, droneSerialNumber, null,
+                    oldDroneState.name(), newState.name(), String.format("Drone %s changed state from %s to %s",
+                    droneSerialNumber, oldDroneState, newState))));
 
             if (logger.isDebugEnabled()) {
                 logger.debug(String.format(String.format("Successfully changed the state of drone %s from %s to %s",
                         droneSerialNumber, oldDroneState.toString(), newState.toString())));
             }
+            return Optional.of(DroneMapper.entityToDto(savedDrone));
         }
+        return Optional.empty();
     }
 
     /**
      * Loads medication onto a specific drone.
-     * Assumes checks for drone's capacity and battery level are done externally.
+     * The state, battery and capacity of the drone are checked by the same statement that adds the pack to its
+     * load counters, so the load is correct under concurrent loads without a separate read. The validations are only
+     * run when the drone rejects the load, to report why.
      *
      * @param droneSerialNumber The serial number of the drone to load.
      * @param medicationId      The ID of the medication to load onto the drone.
-     * @return true if the medication is successfully loaded, false otherwise.
+     * @return true if the medication is successfully loaded.
+     * @throws ValidationException If the drone or the medication does not exist, or the drone cannot take the pack.
      */
+    @Transactional
     public boolean loadDroneWithMedication(String droneSerialNumber, Long medicationId) {
 
-        droneValidationService.checkIfDroneIsLoadable(droneSerialNumber);
-        droneValidationService.validateDroneLoadCapacity(droneSerialNumber, medicationId);
-
-        Optional<Drone> droneOpt = droneRepository.findBySerialNumber(droneSerialNumber);
         Optional<MedicationDTO> medicationDTOOpt = medicationService.findMedicationById(medicationId);
+        if (medicationDTOOpt.isEmpty() || !loadCounterService.tryRecordLoad(droneSerialNumber, medicationId,
+                medicationDTOOpt.get().getWeight(), 1)) {
+            DroneCommandContext context = droneValidationService.createContext(droneSerialNumber, medicationId);
+            droneValidationService.checkIfDroneIsLoadable(context);
+            droneValidationService.validateDroneLoadCapacity(context);
+            throw rejectedLoad(droneSerialNumber);
+        }
 
-        if (droneOpt.isPresent() && medicationDTOOpt.isPresent()) {
-            Drone drone = droneOpt.get();
-            MedicationDTO medicationDTO = medicationDTOOpt.get();
+        // Add the pack to the row of this medication in the drone, or create the row for the first pack.
+        droneMedicationRepository.addPacks(droneSerialNumber, medicationId, 1);
+        auditLogService.recordAll(List.of(medicationLoadedAuditLog(droneSerialNumber, medicationId, 1)));
+        return true;
+    }
 
-            // Create a new DroneMedication instance to represent this specific loading.
-            DroneMedication droneMedication = new DroneMedication();
-            droneMedication.setDrone(drone);
-            droneMedication.setMedication(MedicationMapper.dtoToEntity(medicationDTO));
+    /**
+     * Loads packs of several medications onto a specific drone in a single transaction.
+     * The combined weight is checked once, together with the state and battery of the drone, by the statement that
+     * adds it to the load counters. The packs of each medication are then added with a single upsert. Either all
+     * the packs are loaded or, if the drone rejects the load, none are.
+     *
+     * @param droneSerialNumber The serial number of the drone to load.
+     * @param medicationLoads   The medications and number of packs of each to load onto the drone.
+     * @return The number of packs loaded onto the drone.
+     */
+    @Transactional
+    public int loadDroneWithMedications(String droneSerialNumber, List<MedicationLoadDTO> medicationLoads) {
 
-            droneMedicationRepository.save(droneMedication);
-            return true;
+        // Repeated medications are merged, so each medication is looked up and counted once.
+        Map<Long, Integer> packsByMedicationId = new LinkedHashMap<>();
+        for (MedicationLoadDTO medicationLoad : medicationLoads) {
+            packsByMedicationId.merge(medicationLoad.getMedicationId(), medicationLoad.getQuantity(), Integer::sum);
         }
-        return false;
+
+        long totalWeight = 0;
+        int numberOfPacks = 0;
+        for (Map.Entry<Long, Integer> entry : packsByMedicationId.entrySet()) {
+            MedicationDTO medicationDTO = medicationService.findMedicationById(entry.getKey())
+                    .orElseThrow(() -> new ValidationException(String.format("Medication with ID %d does not " +
+                            "exist in the system.", entry.getKey())));
+            totalWeight += (long) medicationDTO.getWeight() * entry.getValue();
+            numberOfPacks += entry.getValue();
+        }
+        if (totalWeight > Integer.MAX_VALUE
+                || !loadCounterService.tryRecordLoad(droneSerialNumber, packsByMedicationId, (int) totalWeight)) {
+            DroneCommandContext context = droneValidationService.createContext(droneSerialNumber);
+            droneValidationService.checkIfDroneIsLoadable(context);
+            droneValidationService.validateDroneLoadCapacity(context, totalWeight);
+            throw rejectedLoad(droneSerialNumber);
+        }
+
+        List<AuditLog> auditLogs = new ArrayList<>(packsByMedicationId.size());
+        for (Map.Entry<Long, Integer> entry : packsByMedicationId.entrySet()) {
+            droneMedicationRepository.addPacks(droneSerialNumber, entry.getKey(), entry.getValue());
+            auditLogs.add(medicationLoadedAuditLog(droneSerialNumber, entry.getKey(), entry.getValue()));
+        }
+        auditLogService.recordAll(auditLogs);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Loaded %d packs of %d medications onto the drone %s",
+                    numberOfPacks, packsByMedicationId.size(), droneSerialNumber));
+        }
+        return numberOfPacks;
     }
 
     /**
@@ -203,25 +358,35 @@ public class DroneService {
      */
     public List<MedicationInfoDTO> getLoadedMedicationsForDrone(String droneSerialNumber) {
 
-        droneValidationService.checkDroneExists(droneSerialNumber);
+        droneValidationService.checkDroneExists(droneValidationService.createContext(droneSerialNumber));
 
-        List<DroneMedication> droneMedications = droneMedicationRepository.findByDroneSerialNumber(droneSerialNumber);
-
-        // Use a Map to accumulate counts and weights by medicationId
-        Map<Long, MedicationInfoDTO> medicationInfoMap = new HashMap<>();
-
-        for (DroneMedication droneMedication : droneMedications) {
-            Medication medication = droneMedication.getMedication();
-            MedicationInfoDTO medicationInfoDTO = medicationInfoMap.getOrDefault(medication.getId(),
-                    new MedicationInfoDTO(medication.getId(), medication.getName(), 0, 0));
+        // Packs are grouped and summed by the database, so one row is returned per medication.
+        return droneMedicationRepository.findLoadedMedicationInfo(droneSerialNumber);
+    }
 
-            medicationInfoDTO.setNumberOfPacks(medicationInfoDTO.getNumberOfPacks() + 1);
-            medicationInfoDTO.setTotalWeight(medicationInfoDTO.getTotalWeight() + medication.getWeight());
+    /**
+     * Retrieves the audit history of a specific drone, newest first. The audit logs of drones that were deleted
+     * remain available through the audit logs filtered by drone.
+     *
+     * @param droneSerialNumber The serial number of the drone to query.
+     * @param cursor            Cursor returned with the previous page, or null for the first page.
+     * @param size              Maximum number of audit logs in the page, or null for the default size.
+     * @param filter            Time range and event type of the audit logs. Its drone, when set, must be the
+     *                          queried drone.
+     * @return A page of the audit logs of the drone.
+     * @throws ValidationException If the filter is on another drone.
+     */
+    public CursorPageDTO<AuditLog> getDroneAuditLogs(String droneSerialNumber, String cursor, Integer size,
+                                                     AuditLogFilter filter) {
 
-            medicationInfoMap.put(medication.getId(), medicationInfoDTO);
+        if (filter.droneSerialNumber() != null && !filter.droneSerialNumber().equals(droneSerialNumber)) {
+            throw new ValidationException(String.format("Audit log filter on drone %s does not match drone %s.",
+                    filter.droneSerialNumber(), droneSerialNumber));
         }
+        droneValidationService.checkDroneExists(droneValidationService.createContext(droneSerialNumber));
 
-        return new ArrayList<>(medicationInfoMap.values());
+        return auditLogService.getAuditLogs(cursor, size,
+                new AuditLogFilter(filter.from(), filter.to(), filter.type(), droneSerialNumber));
     }
 
     /**
@@ -233,13 +398,17 @@ public class DroneService {
     @Transactional
     public boolean unloadAllMedicationsFromDrone(String droneSerialNumber) {
 
-        droneValidationService.checkDroneExists(droneSerialNumber);
+        DroneCommandContext context = droneValidationService.createContext(droneSerialNumber);
+        droneValidationService.checkDroneExists(context);
 
-        Optional<Drone> droneOptional = droneRepository.findBySerialNumber(droneSerialNumber);
-        if (droneOptional.isPresent()) {
+        if (context.getDrone().isPresent()) {
+            loadCounterService.recordUnloadAll(droneSerialNumber);
             droneMedicationRepository.deleteAllByDroneSerialNumber(droneSerialNumber);
+            auditLogService.recordAll(List.of(new AuditLog(AuditEventType.MEDICATIONS_UNLOADED, droneSerialNumber,
+                    null, null, null, String.format("Unloaded all medications from the drone %s",
+                    droneSerialNumber))));
             if (logger.isDebugEnabled()) {
-                logger.debug(String.format("Unloaded all medications from the drone %s", droneOptional));
+                logger.debug(String.format("Unloaded all medications from the drone %s", droneSerialNumber));
             }
             return true;
         }
@@ -254,15 +423,10 @@ public class DroneService {
      */
     public Optional<Integer> getDroneBatteryLevel(String droneSerialNumber) {
 
-        droneValidationService.checkDroneExists(droneSerialNumber);
+        DroneCommandContext context = droneValidationService.createContext(droneSerialNumber);
+        droneValidationService.checkDroneExists(context);
 
-        Optional<Drone> droneOptional = droneRepository.findBySerialNumber(droneSerialNumber);
-        if (droneOptional.isPresent()) {
-            Drone drone = droneOptional.get();
-            return Optional.of(drone.getBatteryCapacity());
-        } else {
-            return Optional.empty();
-        }
+        return context.getDrone().map(DroneSnapshot::getBatteryCapacity);
     }
 
     /**
@@ -270,18 +434,65 @@ public class DroneService {
      *
      * @param droneSerialNumber The serial number of the drone to update.
      * @param newBatteryLevel   The new battery level to set for the drone.
+     * @return An Optional containing the updated drone, or empty if not found.
      */
-    public void updateDroneBatteryLevel(String droneSerialNumber, int newBatteryLevel) {
+    @Transactional
+    public Optional<DroneDTO> updateDroneBatteryLevel(String droneSerialNumber, int newBatteryLevel) {
+        return updateDroneBatteryLevel(droneSerialNumber, newBatteryLevel, null);
+    }
 
-        droneValidationService.checkDroneExists(droneSerialNumber);
+    /**
+     * Updates the battery level of a specific drone if it is still at the expected version.
+     *
+     * @param droneSerialNumber The serial number of the drone to update.
+     * @param newBatteryLevel   The new battery level to set for the drone.
+     * @param expectedVersion   The version the client last saw, or null to update any version.
+     * @return An Optional containing the updated drone, or empty if not found.
+     */
+    @Transactional
+    public Optional<DroneDTO> updateDroneBatteryLevel(String droneSerialNumber, int newBatteryLevel,
+                                                      Long expectedVersion) {
+
+        droneValidationService.checkDroneExists(droneValidationService.createContext(droneSerialNumber));
 
-        droneRepository.findBySerialNumber(droneSerialNumber).ifPresent(drone -> {
+        Optional<DroneDTO> updatedDrone = droneRepository.findBySerialNumber(droneSerialNumber).map(drone -> {
+            checkVersion(drone, expectedVersion);
             drone.setBatteryCapacity(newBatteryLevel);
-            droneRepository.save(drone);
+            Drone savedDrone = fleetStateCache.save(drone);
+            eventPublisher.publishEvent(DroneChangedEvent.of(DroneChangedEvent.ChangeType.BATTERY, savedDrone));
+            return DroneMapper.entityToDto(savedDrone);
         });
         if (logger.isDebugEnabled()) {
             logger.debug(String.format("Battery capacity of drone %s was updated to %d", droneSerialNumber,
                     newBatteryLevel));
         }
+        return updatedDrone;
+    }
+
+    private static AuditLog medicationLoadedAuditLog(String droneSerialNumber, Long medicationId, int packs) {
+        return new AuditLog(AuditEventType.MEDICATION_LOADED, droneSerialNumber, medicationId, null,
+                String.valueOf(packs), String.format("Loaded %d packs of medication %d onto the drone %s", packs,
+                medicationId, droneSerialNumber));
+    }
+
+    /**
+     * Error for a load that the drone rejected although the validations passed, because the drone changed between
+     * the load and the validations.
+     */
+    private ValidationException rejectedLoad(String droneSerialNumber) {
+        return new ValidationException(String.format("Drone with serial number %s changed while it was being " +
+                "loaded. Please try again.", droneSerialNumber));
+    }
+
+    /**
+     * Check that a drone is at the version expected by a conditional request.
+     * The version read here is also sent with the update, so a change made in between fails the update.
+     */
+    private void checkVersion(Drone drone, Long expectedVersion) {
+
+        if (expectedVersion != null && !expectedVersion.equals(drone.getVersion())) {
+            throw new PreconditionFailedException(String.format("Drone %s is at version %d, not the expected " +
+                    "version %d.", drone.getSerialNumber(), drone.getVersion(), expectedVersion));
+        }
     }
 }
@@ -4,15 +4,35 @@ import com.medi.imesh.drone.exception.ValidationException;
 import com.medi.imesh.drone.common.ApplicationConstants;
 import com.medi.imesh.drone.dto.DroneDTO;
 
+import java.util.List;
+
 
 /**
  * Service interface for validating drone-related operations.
  * <p>
  * This interface provides methods for validating various aspects of drone
- * management.
+ * management. Checks on an existing drone are evaluated against a {@link DroneCommandContext}, which is created
+ * once per request and shared by every check run for that request.
  */
 public interface DroneValidationService {
 
+    /**
+     * Creates the validation context for a command on a drone.
+     *
+     * @param droneSerialNumber Serial Number of the drone
+     * @return Context holding the state of the drone
+     */
+    DroneCommandContext createContext(String droneSerialNumber);
+
+    /**
+     * Creates the validation context for a command that loads a medication onto a drone.
+     *
+     * @param droneSerialNumber Serial Number of the drone
+     * @param medicationId      ID of the medication
+     * @return Context holding the state of the drone and the medication
+     */
+    DroneCommandContext createContext(String droneSerialNumber, Long medicationId);
+
     /**
      * Validates the registration of a drone.
      *
@@ -22,46 +42,63 @@ public interface DroneValidationService {
     void validateDroneRegistration(DroneDTO droneDTO) throws ValidationException;
 
     /**
-     * Validates the load capacity of the drone.
+     * Validates the registration of a batch of drones. Serial numbers must be unique within the batch and must
+     * not be registered in the system yet.
      *
-     * @param droneSerialNumber Serial Number of the drone
-     * @param medicationId      ID of the medication
+     * @param droneDTOs the drones to validate
+     * @throws ValidationException if validation fails for any drone of the batch
+     */
+    void validateBulkDroneRegistration(List<DroneDTO> droneDTOs) throws ValidationException;
+
+    /**
+     * Validates the load capacity of the drone for the medication in the context.
+     *
+     * @param context Validation context of the command
      * @throws ValidationException if validation fails
      */
-    void validateDroneLoadCapacity(String droneSerialNumber, Long medicationId) throws ValidationException;
+    void validateDroneLoadCapacity(DroneCommandContext context) throws ValidationException;
+
+    /**
+     * Validates the load capacity of the drone for several medications loaded together.
+     *
+     * @param context          Validation context of the command
+     * @param additionalWeight Combined weight of the medications to load
+     * @throws ValidationException if validation fails
+     */
+    void validateDroneLoadCapacity(DroneCommandContext context, long additionalWeight) throws ValidationException;
 
     /**
      * Validates the legality of changing a drone's state.
      *
-     * @param droneSerialNumber The drone's unique identifier.
-     * @param newState          The intended new state for the drone.
+     * @param context  Validation context of the command
+     * @param newState The intended new state for the drone.
      * @throws ValidationException If the state change is not allowed.
      */
-    public void validateDroneStateChange(String droneSerialNumber, ApplicationConstants.DroneState newState)
+    void validateDroneStateChange(DroneCommandContext context, ApplicationConstants.DroneState newState)
             throws ValidationException;
 
     /**
      * Checks if the drone is loadable based on battery capacity and current state.
      *
-     * @param droneSerialNumber Serial Number of the drone
+     * @param context Validation context of the command
      * @throws ValidationException if validation fails
      */
-    void checkIfDroneIsLoadable(String droneSerialNumber) throws ValidationException;
+    void checkIfDroneIsLoadable(DroneCommandContext context) throws ValidationException;
 
     /**
-     * Checks if the drone is loadable based on load and current state.
+     * Checks if the drone is deletable based on load and current state.
      *
-     * @param droneSerialNumber Serial Number of the drone
+     * @param context Validation context of the command
      * @throws ValidationException if validation fails
      */
-    void checkIfDroneIsDeletable(String droneSerialNumber) throws ValidationException;
+    void checkIfDroneIsDeletable(DroneCommandContext context) throws ValidationException;
 
     /**
      * Check if the drone exists in the system.
      *
-     * @param droneSerialNumber Serial Number of the drone
+     * @param context Validation context of the command
      * @throws ValidationException if validation fails
      */
-    void checkDroneExists(String droneSerialNumber) throws ValidationException;
+    void checkDroneExists(DroneCommandContext context) throws ValidationException;
 
 }
@@ -1,16 +1,18 @@
 package com.medi.imesh.drone.service;
 
+import com.medi.imesh.drone.cache.DroneSnapshot;
+import com.medi.imesh.drone.cache.FleetStateCache;
 import com.medi.imesh.drone.exception.ValidationException;
-import com.medi.imesh.drone.repository.DroneMedicationRepository;
-import com.medi.imesh.drone.repository.DroneRepository;
 import com.medi.imesh.drone.common.ApplicationConstants;
 import com.medi.imesh.drone.dto.DroneDTO;
 import com.medi.imesh.drone.dto.MedicationDTO;
-import com.medi.imesh.drone.model.Drone;
+import com.medi.imesh.drone.repository.DroneRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Service implementation for drone validation operations.
@@ -19,11 +21,32 @@ import java.util.Optional;
 public class DroneValidationServiceImpl implements DroneValidationService {
 
     @Autowired
-    private DroneRepository droneRepository;
+    private FleetStateCache fleetStateCache;
     @Autowired
     private MedicationService medicationService;
     @Autowired
-    private DroneMedicationRepository droneMedicationRepository;
+    private DroneRepository droneRepository;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DroneCommandContext createContext(String droneSerialNumber) {
+        return createContext(droneSerialNumber, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DroneCommandContext createContext(String droneSerialNumber, Long medicationId) {
+
+        DroneSnapshot drone = fleetStateCache.find(droneSerialNumber).orElse(null);
+        MedicationDTO medication = medicationId == null ? null :
+                medicationService.findMedicationById(medicationId).orElse(null);
+        // The current load is read from the counters maintained on the drone, so no query is needed for it.
+        return new DroneCommandContext(droneSerialNumber, drone, medicationId, medication);
+    }
 
     /**
      * {@inheritDoc}
@@ -34,15 +57,34 @@ public class DroneValidationServiceImpl implements DroneValidationService {
         String droneSerialNumber = droneDTO.getSerialNumber();
 
         // Check if the drone is already registered in the system.
-        if (droneExistsInSystem(droneSerialNumber)) {
+        if (fleetStateCache.exists(droneSerialNumber)) {
             throw new ValidationException(String.format("Drone with serial number %s already exists in the system.",
                     droneSerialNumber));
         }
 
-        // Check if the battery level is not below the threshold if the drone is in LOADING state
-        if (!ApplicationConstants.DroneState.IDLE.equals(droneDTO.getState())) {
-            throw new ValidationException(String.format("Cannot register a drone with %s state. Initial drone state " +
-                    "should be IDLE.", droneDTO.getState().toString()));
+        validateInitialState(droneDTO);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void validateBulkDroneRegistration(List<DroneDTO> droneDTOs) throws ValidationException {
+
+        Set<String> serialNumbers = new LinkedHashSet<>();
+        for (DroneDTO droneDTO : droneDTOs) {
+            if (!serialNumbers.add(droneDTO.getSerialNumber())) {
+                throw new ValidationException(String.format("Drone with serial number %s appears more than once " +
+                        "in the request.", droneDTO.getSerialNumber()));
+            }
+            validateInitialState(droneDTO);
+        }
+
+        // Check the whole batch against the registered drones with one query instead of one lookup per drone
+        List<String> existingSerialNumbers = droneRepository.findExistingSerialNumbers(serialNumbers);
+        if (!existingSerialNumbers.isEmpty()) {
+            throw new ValidationException(String.format("Drones with serial numbers %s already exist in the system.",
+                    String.join(", ", existingSerialNumbers)));
         }
     }
 
@@ -50,20 +92,17 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * {@inheritDoc}
      */
     @Override
-    public void validateDroneLoadCapacity(String droneSerialNumber, Long medicationId) throws ValidationException {
+    public void validateDroneLoadCapacity(DroneCommandContext context) throws ValidationException {
 
-        Drone drone = droneRepository.findBySerialNumber(droneSerialNumber)
-                .orElseThrow(() -> new ValidationException(String.format("Drone with serial number %s does not " +
-                        "exist in the system.", droneSerialNumber)));
+        DroneSnapshot drone = requireDrone(context);
 
         // Get existing weight of the drone
-        int totalLoadedWeight = droneMedicationRepository.findByDroneSerialNumber(droneSerialNumber).stream()
-                .mapToInt(dm -> dm.getMedication().getWeight()).sum();
+        long totalLoadedWeight = context.getCurrentLoad().getTotalWeight();
 
-        MedicationDTO medicationDTO = medicationService.findMedicationById(medicationId)
+        MedicationDTO medicationDTO = context.getMedication()
                 .orElseThrow(() -> new ValidationException(String.format("Medication with ID %d does not exist in " +
-                        "the system.", medicationId)));
-        int newTotalWeight = totalLoadedWeight + medicationDTO.getWeight();
+                        "the system.", context.getMedicationId())));
+        long newTotalWeight = totalLoadedWeight + medicationDTO.getWeight();
 
         if (newTotalWeight > drone.getWeightLimit()) {
             throw new ValidationException(String.format("Loading this medication would exceed the drone's weight " +
@@ -76,25 +115,40 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * {@inheritDoc}
      */
     @Override
-    public void validateDroneStateChange(String droneSerialNumber, ApplicationConstants.DroneState newState)
+    public void validateDroneLoadCapacity(DroneCommandContext context, long additionalWeight)
             throws ValidationException {
 
-        Drone drone = droneRepository.findBySerialNumber(droneSerialNumber)
-                .orElseThrow(() -> new ValidationException(String.format("Drone with serial number %s does not " +
-                        "exist in the system.", droneSerialNumber)));
+        DroneSnapshot drone = requireDrone(context);
+
+        long totalLoadedWeight = context.getCurrentLoad().getTotalWeight();
+        if (totalLoadedWeight + additionalWeight > drone.getWeightLimit()) {
+            throw new ValidationException(String.format("Loading these medications would exceed the drone's " +
+                            "weight limit. Current load: %d, Medications weight: %d, Weight limit: %d",
+                    totalLoadedWeight, additionalWeight, drone.getWeightLimit()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void validateDroneStateChange(DroneCommandContext context, ApplicationConstants.DroneState newState)
+            throws ValidationException {
+
+        DroneSnapshot drone = requireDrone(context);
 
         switch (newState) {
             case LOADING:
                 validateTransitionToLoading(drone);
                 break;
             case LOADED:
-                validateTransitionToLoaded(drone);
+                validateTransitionToLoaded(context, drone);
                 break;
             case DELIVERING:
                 validateTransitionToDelivering(drone);
                 break;
             case DELIVERED:
-                validateTransitionToDelivered(drone);
+                validateTransitionToDelivered(context, drone);
                 break;
             case RETURNING:
                 validateTransitionToReturning(drone);
@@ -111,21 +165,18 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * {@inheritDoc}
      */
     @Override
-    public void checkIfDroneIsLoadable(String droneSerialNumber) throws ValidationException {
+    public void checkIfDroneIsLoadable(DroneCommandContext context) throws ValidationException {
 
-        if (!droneExistsInSystem(droneSerialNumber)) {
-            throw new ValidationException(String.format("Drone with serial number %s does not exist in the system.",
-                    droneSerialNumber));
-        }
+        DroneSnapshot drone = requireDrone(context);
 
-        if (!isDroneInLoadingState(droneSerialNumber)) {
+        if (!ApplicationConstants.DroneState.LOADING.equals(drone.getState())) {
             throw new ValidationException(String.format("Drone with serial number %s is not in LOADING state.",
-                    droneSerialNumber));
+                    context.getDroneSerialNumber()));
         }
 
-        if (isBatteryCapacityBelowThreshold(droneSerialNumber, ApplicationConstants.LOADING_BATTERY_THRESHOLD)) {
+        if (isBatteryCapacityBelowThreshold(drone, ApplicationConstants.LOADING_BATTERY_THRESHOLD)) {
             throw new ValidationException(String.format("Drone with serial number %s has a battery capacity below %d.",
-                    droneSerialNumber, ApplicationConstants.LOADING_BATTERY_THRESHOLD));
+                    context.getDroneSerialNumber(), ApplicationConstants.LOADING_BATTERY_THRESHOLD));
         }
     }
 
@@ -133,76 +184,64 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * {@inheritDoc}
      */
     @Override
-    public void checkDroneExists(String droneSerialNumber) throws ValidationException {
-
-        if (!droneExistsInSystem(droneSerialNumber)) {
-            throw new ValidationException(String.format("Drone with serial number %s does not exist in the system.",
-                    droneSerialNumber));
-        }
+    public void checkDroneExists(DroneCommandContext context) throws ValidationException {
+        requireDrone(context);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void checkIfDroneIsDeletable(String droneSerialNumber) throws ValidationException {
+    public void checkIfDroneIsDeletable(DroneCommandContext context) throws ValidationException {
 
-        Drone drone = droneRepository.findBySerialNumber(droneSerialNumber)
-                .orElseThrow(() -> new ValidationException(String.format("Drone with serial number %s does not " +
-                        "exist in the system.", droneSerialNumber)));
+        DroneSnapshot drone = requireDrone(context);
 
         if (ApplicationConstants.DroneState.IDLE != drone.getState()) {
             throw new ValidationException(String.format("Drone with serial number %s cannot be deleted since it " +
-                    "is not in IDLE state.", droneSerialNumber));
+                    "is not in IDLE state.", context.getDroneSerialNumber()));
         }
 
-        if (containsMedication(droneSerialNumber)) {
+        if (containsMedication(context)) {
             throw new ValidationException(String.format("Drone with serial number %s cannot be deleted since it " +
-                            "contains medication.", droneSerialNumber));
+                            "contains medication.", context.getDroneSerialNumber()));
         }
     }
 
     /**
-     * Checks if a drone exists in the system based on its serial number.
+     * Checks that a drone is registered in the IDLE state.
      *
-     * @param droneSerialNumber the serial number of the drone to check
-     * @return {@code true} if a drone with the specified serial number exists, otherwise {@code false}
+     * @param droneDTO Drone to register
+     * @throws ValidationException If the drone is in another state
      */
-    private boolean droneExistsInSystem(String droneSerialNumber) {
-        return droneRepository.findBySerialNumber(droneSerialNumber).isPresent();
+    private void validateInitialState(DroneDTO droneDTO) throws ValidationException {
+        if (!ApplicationConstants.DroneState.IDLE.equals(droneDTO.getState())) {
+            throw new ValidationException(String.format("Cannot register a drone with %s state. Initial drone state " +
+                    "should be IDLE.", droneDTO.getState().toString()));
+        }
     }
 
     /**
-     * Checks if the specified drone is in the LOADING state.
+     * Gets the drone of the context, failing if it is not registered in the system.
      *
-     * @param droneSerialNumber the serial number of the drone to check.
-     * @return {@code true} if the drone is in the LOADING state, {@code false} otherwise.
+     * @param context Validation context of the command
+     * @return Snapshot of the drone
+     * @throws ValidationException If the drone does not exist
      */
-    private boolean isDroneInLoadingState(String droneSerialNumber) {
-
-        Optional<Drone> droneOpt = droneRepository.findBySerialNumber(droneSerialNumber);
-        if (droneOpt.isPresent()) {
-            Drone drone = droneOpt.get();
-            return ApplicationConstants.DroneState.LOADING.equals(drone.getState());
-        }
-        return false;
+    private DroneSnapshot requireDrone(DroneCommandContext context) throws ValidationException {
+        return context.getDrone()
+                .orElseThrow(() -> new ValidationException(String.format("Drone with serial number %s does not " +
+                        "exist in the system.", context.getDroneSerialNumber())));
     }
 
     /**
      * Checks if a drone's battery capacity is below a specified threshold.
      *
-     * @param droneSerialNumber the serial number of the drone to check.
-     * @param threshold         the minimum battery capacity percentage required.
+     * @param drone     the drone to check.
+     * @param threshold the minimum battery capacity percentage required.
      * @return {@code true} if the drone's battery capacity is below the threshold, {@code false} otherwise.
      */
-    private boolean isBatteryCapacityBelowThreshold(String droneSerialNumber, int threshold) {
-
-        Optional<Drone> droneOpt = droneRepository.findBySerialNumber(droneSerialNumber);
-        if (droneOpt.isPresent()) {
-            Drone drone = droneOpt.get();
-            return drone.getBatteryCapacity() < threshold;
-        }
-        return false;
+    private boolean isBatteryCapacityBelowThreshold(DroneSnapshot drone, int threshold) {
+        return drone.getBatteryCapacity() < threshold;
     }
 
     /**
@@ -212,7 +251,7 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * @param drone The drone in question.
      * @throws ValidationException If validation fails.
      */
-    private void validateTransitionToLoading(Drone drone) throws ValidationException {
+    private void validateTransitionToLoading(DroneSnapshot drone) throws ValidationException {
 
         String droneSerialNumber = drone.getSerialNumber();
 
@@ -221,7 +260,7 @@ public class DroneValidationServiceImpl implements DroneValidationService {
             throw new ValidationException("Drone can only transition to LOADING from IDLE or LOADED states.");
         }
 
-        if (isBatteryCapacityBelowThreshold(droneSerialNumber, ApplicationConstants.LOADING_BATTERY_THRESHOLD)) {
+        if (isBatteryCapacityBelowThreshold(drone, ApplicationConstants.LOADING_BATTERY_THRESHOLD)) {
             throw new ValidationException(String.format("Drone with serial number %s has a battery capacity below %d.",
                     droneSerialNumber, ApplicationConstants.LOADING_BATTERY_THRESHOLD));
         }
@@ -230,12 +269,14 @@ public class DroneValidationServiceImpl implements DroneValidationService {
     /**
      * Ensures a drone has medication loaded and current state is LOADING before transitioning to LOADED.
      *
-     * @param drone The drone in question.
+     * @param context Validation context of the command
+     * @param drone   The drone in question.
      * @throws ValidationException If no medication is loaded.
      */
-    private void validateTransitionToLoaded(Drone drone) throws ValidationException {
+    private void validateTransitionToLoaded(DroneCommandContext context, DroneSnapshot drone)
+            throws ValidationException {
 
-        if (!containsMedication(drone.getSerialNumber())) {
+        if (!containsMedication(context)) {
             throw new ValidationException("Cannot change to LOADED state without medications.");
         }
 
@@ -250,7 +291,7 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * @param drone The drone in question.
      * @throws ValidationException If current state is not LOADED.
      */
-    private void validateTransitionToDelivering(Drone drone) throws ValidationException {
+    private void validateTransitionToDelivering(DroneSnapshot drone) throws ValidationException {
         if (drone.getState() != ApplicationConstants.DroneState.LOADED) {
             throw new ValidationException("Drone must be in LOADED state to transition to DELIVERING.");
         }
@@ -260,16 +301,18 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * Validates transition to DELIVERED state from DELIVERING only.
      * Checks if all medications are unloaded before the state change to DELIVERED.
      *
-     * @param drone The drone in question.
+     * @param context Validation context of the command
+     * @param drone   The drone in question.
      * @throws ValidationException If validation fails.
      */
-    private void validateTransitionToDelivered(Drone drone) throws ValidationException {
+    private void validateTransitionToDelivered(DroneCommandContext context, DroneSnapshot drone)
+            throws ValidationException {
 
         if (drone.getState() != ApplicationConstants.DroneState.DELIVERING) {
             throw new ValidationException("Drone must be in DELIVERING state to transition to DELIVERED.");
         }
 
-        if (containsMedication(drone.getSerialNumber())) {
+        if (containsMedication(context)) {
             throw new ValidationException("Drone must have all medications unloaded before transitioning to " +
                     "DELIVERED state.");
         }
@@ -281,7 +324,7 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * @param drone The drone in question.
      * @throws ValidationException If current state is not DELIVERED.
      */
-    private void validateTransitionToReturning(Drone drone) throws ValidationException {
+    private void validateTransitionToReturning(DroneSnapshot drone) throws ValidationException {
         if (drone.getState() != ApplicationConstants.DroneState.DELIVERED) {
             throw new ValidationException("Drone must be in DELIVERED state to transition to RETURNING.");
         }
@@ -293,7 +336,7 @@ public class DroneValidationServiceImpl implements DroneValidationService {
      * @param drone The drone in question.
      * @throws ValidationException If current state doesn't allow transition to IDLE.
      */
-    private void validateTransitionToIdle(Drone drone) throws ValidationException {
+    private void validateTransitionToIdle(DroneSnapshot drone) throws ValidationException {
         if (!(drone.getState() == ApplicationConstants.DroneState.LOADING ||
                 drone.getState() == ApplicationConstants.DroneState.LOADED ||
                 drone.getState() == ApplicationConstants.DroneState.RETURNING)) {
@@ -305,11 +348,11 @@ public class DroneValidationServiceImpl implements DroneValidationService {
     /**
      * Checks if a drone contains medication.
      *
-     * @param droneSerialNumber The serial number of the drone to check.
+     * @param context Validation context of the command
      * @return True if there is medication in the drone, false otherwise.
      */
-    private boolean containsMedication(String droneSerialNumber) {
-        return !droneMedicationRepository.findByDroneSerialNumber(droneSerialNumber).isEmpty();
+    private boolean containsMedication(DroneCommandContext context) {
+        return !context.getCurrentLoad().isEmpty();
     }
 
 }
@@ -0,0 +1,311 @@
+package com.medi.imesh.drone.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Service class for the leases that let a scheduled job run on one application instance at a time.
+ * <p>
+ * A lease is a row of the job_lease table holding the instance that owns the job and the time until which it owns
+ * it. It is acquired with a single conditional update that only matches an expired lease or one the instance
+ * already owns, so of several instances acquiring the same lease exactly one succeeds. A lease that is not released,
+ * e.g. because its instance stopped, expires at its lock-until time. Leases are acquired and released in their own
+ * transactions, so they are visible to the other instances while the job runs.
+ * <p>
+ * A job can also be split into partitions that are leased separately. Every instance claims a fair share of the
+ * partitions, based on the number of instances currently taking part in the job, and renews its partitions on
+ * every run. The leases of a partitioned job are found by the job name stored with each of them.
+ */
+@Service
+public class JobLeaseService implements MeterBinder {
+
+    private static final String ACQUIRE_LEASE = "UPDATE job_lease SET locked_until = ?, locked_at = ?, " +
+            "locked_by = ? WHERE name = ? AND (locked_until <= ? OR locked_by = ?)";
+    private static final String INSERT_LEASE = "INSERT INTO job_lease (name, job_name, locked_until, locked_at, " +
+            "locked_by) VALUES (?, ?, ?, ?, ?)";
+    private static final String RELEASE_LEASE = "UPDATE job_lease SET locked_until = ? WHERE name = ? " +
+            "AND locked_by = ?";
+    private static final String FIND_ACTIVE_LEASES = "SELECT name, locked_by FROM job_lease WHERE job_name = ? " +
+            "AND locked_until > ?";
+    private static final String PARTITION_SEPARATOR = "#";
+    private static final String MEMBER_SEPARATOR = "@";
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final String instanceId;
+    // Leases held by this instance, with the time they were acquired
+    private final Map<String, Long> ownedLeases = new ConcurrentHashMap<>();
+    private final Set<String> knownJobs = ConcurrentHashMap.newKeySet();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private volatile MeterRegistry meterRegistry;
+
+    @Autowired
+    public JobLeaseService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           @Value("${drone.scheduling.instance-id:}") String instanceId) {
+        this(jdbcTemplate, transactionManager, Clock.systemUTC(),
+                instanceId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : instanceId);
+    }
+
+    JobLeaseService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, Clock clock,
+                    String instanceId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clock = clock;
+        this.instanceId = instanceId;
+    }
+
+    /**
+     * Run a job if this instance can acquire its lease, and release the lease afterwards.
+     *
+     * @param jobName       Name of the job
+     * @param lockAtMostFor Time after which the lease expires if it is not released, longer than the job runs
+     * @param lockAtLeastFor Time for which the lease is kept after the job, so that instances whose schedule is
+     *                       slightly behind do not run the job again
+     * @param job           Job to run
+     * @return The result of the job, or empty if another instance holds the lease
+     */
+    public <T> Optional<T> runIfLeased(String jobName, Duration lockAtMostFor, Duration lockAtLeastFor,
+                                       Supplier<T> job) {
+
+        if (!tryAcquire(jobName, lockAtMostFor)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(job.get());
+        } finally {
+            release(jobName, lockAtLeastFor);
+        }
+    }
+
+    /**
+     * Acquire the lease of a job, or renew it if this instance already holds it.
+     *
+     * @param leaseName     Name of the lease
+     * @param lockAtMostFor Time for which the lease is held if it is not released or renewed
+     * @return true if this instance holds the lease
+     */
+    public boolean tryAcquire(String leaseName, Duration lockAtMostFor) {
+
+        registerOwnershipGauge(jobName(leaseName));
+        long start = System.nanoTime();
+        long now = clock.millis();
+        long lockedUntil = now + lockAtMostFor.toMillis();
+        Boolean leased = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(ACQUIRE_LEASE, lockedUntil, now, instanceId, leaseName, now, instanceId) > 0) {
+                return true;
+            }
+            try {
+                return jdbcTemplate.update(INSERT_LEASE, leaseName, jobName(leaseName), lockedUntil, now,
+                        instanceId) > 0;
+            } catch (DuplicateKeyException e) {
+                // Another instance holds the lease
+                return false;
+            }
+        });
+        acquireNanos.add(System.nanoTime() - start);
+
+        if (Boolean.TRUE.equals(leased)) {
+            acquired.increment();
+            ownedLeases.put(leaseName, now);
+            return true;
+        }
+        rejected.increment();
+        ownedLeases.remove(leaseName);
+        return false;
+    }
+
+    /**
+     * Release a lease held by this instance, keeping it for at least the given time after it was acquired.
+     *
+     * @param leaseName      Name of the lease
+     * @param lockAtLeastFor Time after the acquisition for which the lease is kept
+     */
+    public void release(String leaseName, Duration lockAtLeastFor) {
+
+        Long lockedAt = ownedLeases.remove(leaseName);
+        long now = clock.millis();
+        long lockedUntil = lockedAt == null ? now : Math.max(now, lockedAt + lockAtLeastFor.toMillis());
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.update(RELEASE_LEASE, lockedUntil, leaseName, instanceId));
+        } catch (RuntimeException e) {
+            // The lease expires at its lock-until time anyway
+            logger.warn(String.format("Could not release lease %s", leaseName), e);
+        }
+    }
+
+    /**
+     * Claim this instance's share of the partitions of a job. The partitions it holds are renewed, up to its fair
+     * share, and free partitions are claimed until it holds its share. When instances join, the ones holding more
+     * than their share release the extra partitions, which are then claimed by the others.
+     *
+     * @param jobName       Name of the partitioned job
+     * @param partitions    Number of partitions
+     * @param leaseDuration Time for which the partitions are held if they are not renewed, longer than the time
+     *                      between two runs of the job
+     * @return The partitions this instance holds until its next run
+     */
+    public Set<Integer> acquirePartitions(String jobName, int partitions, Duration leaseDuration) {
+
+        renewMembership(jobName, leaseDuration);
+        Set<String> members = new HashSet<>();
+        Map<Integer, String> owners = new HashMap<>();
+        findActiveLeases(jobName, members, owners, partitions);
+        members.addAll(owners.values());
+        members.add(instanceId);
+        int fairShare = (partitions + members.size() - 1) / members.size();
+
+        Set<Integer> held = new TreeSet<>();
+        for (Map.Entry<Integer, String> owner : owners.entrySet()) {
+            if (!instanceId.equals(owner.getValue())) {
+                continue;
+            }
+            String leaseName = partitionLeaseName(jobName, owner.getKey());
+            if (held.size() >= fairShare) {
+                release(leaseName, Duration.ZERO);
+            } else if (tryAcquire(leaseName, leaseDuration)) {
+                held.add(owner.getKey());
+            }
+        }
+        for (int partition = 0; partition < partitions && held.size() < fairShare; partition++) {
+            if (!owners.containsKey(partition) && tryAcquire(partitionLeaseName(jobName, partition), leaseDuration)) {
+                held.add(partition);
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Partition of a key, e.g. of a drone serial number, spreading keys evenly over the partitions.
+     * The hash of a string is the same on every instance.
+     *
+     * @param key        Key to partition
+     * @param partitions Number of partitions
+     * @return Partition of the key, between 0 and the number of partitions
+     */
+    public static int partitionOf(String key, int partitions) {
+        return Math.floorMod(key.hashCode(), partitions);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Number of leases of a job this instance holds, 1 for an unpartitioned job it currently runs.
+     */
+    public int getOwnedLeaseCount(String jobName) {
+        return (int) ownedLeases.keySet().stream().filter(leaseName -> jobName(leaseName).equals(jobName)).count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionTimer.builder("drone.leases.acquire", this, service -> service.acquired.sum() + service.rejected.sum(),
+                        service -> service.acquireNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time taken to acquire or renew the lease of a scheduled job")
+                .register(registry);
+        FunctionCounter.builder("drone.leases.attempts", acquired, LongAdder::sum)
+                .tag("result", "acquired")
+                .description("Attempts to acquire the lease of a scheduled job")
+                .register(registry);
+        FunctionCounter.builder("drone.leases.attempts", rejected, LongAdder::sum)
+                .tag("result", "rejected")
+                .description("Attempts to acquire the lease of a scheduled job")
+                .register(registry);
+        meterRegistry = registry;
+        knownJobs.forEach(jobName -> registerOwnershipGauge(registry, jobName));
+    }
+
+    private void registerOwnershipGauge(String jobName) {
+
+        MeterRegistry registry = meterRegistry;
+        if (knownJobs.add(jobName) && registry != null) {
+            registerOwnershipGauge(registry, jobName);
+        }
+    }
+
+    private void registerOwnershipGauge(MeterRegistry registry, String jobName) {
+        Gauge.builder("drone.leases.owned", this, service -> service.getOwnedLeaseCount(jobName))
+                .tag("job", jobName)
+                .description("Leases of a scheduled job held by this instance")
+                .register(registry);
+    }
+
+    // Record that this instance takes part in a partitioned job, so that the others leave it a share of the
+    // partitions even while it holds none
+    private void renewMembership(String jobName, Duration leaseDuration) {
+
+        String leaseName = jobName + MEMBER_SEPARATOR + instanceId;
+        long now = clock.millis();
+        long lockedUntil = now + leaseDuration.toMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (jdbcTemplate.update(ACQUIRE_LEASE, lockedUntil, now, instanceId, leaseName, now, instanceId) == 0) {
+                jdbcTemplate.update(INSERT_LEASE, leaseName, jobName, lockedUntil, now, instanceId);
+            }
+        });
+    }
+
+    private void findActiveLeases(String jobName, Set<String> members, Map<Integer, String> owners, int partitions) {
+
+        List<Map<String, Object>> leases = jdbcTemplate.queryForList(FIND_ACTIVE_LEASES, jobName, clock.millis());
+        for (Map<String, Object> lease : leases) {
+            String leaseName = (String) lease.get("name");
+            String owner = (String) lease.get("locked_by");
+            if (leaseName.startsWith(jobName + MEMBER_SEPARATOR)) {
+                members.add(owner);
+            } else if (leaseName.startsWith(jobName + PARTITION_SEPARATOR)) {
+                try {
+                    int partition = Integer.parseInt(leaseName.substring(jobName.length() + 1));
+                    if (partition < partitions) {
+                        owners.put(partition, owner);
+                    }
+                } catch (NumberFormatException e) {
+                    // Not a partition of this job
+                }
+            }
+        }
+    }
+
+    private static String partitionLeaseName(String jobName, int partition) {
+        return jobName + PARTITION_SEPARATOR + partition;
+    }
+
+    private static String jobName(String leaseName) {
+        int separator = leaseName.indexOf(PARTITION_SEPARATOR);
+        return separator < 0 ? leaseName : leaseName.substring(0, separator);
+    }
+}
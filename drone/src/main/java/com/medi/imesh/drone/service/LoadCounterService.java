@@ -0,0 +1,148 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.cache.FleetStateCache;
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.MedicationInfoDTO;
+import com.medi.imesh.drone.repository.DroneMedicationRepository;
+import com.medi.imesh.drone.repository.DroneRepository;
+import com.medi.imesh.drone.repository.MedicationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Service maintaining the materialized load counters.
+ * <p>
+ * Each drone keeps the total weight and number of packs loaded in it, and each medication keeps the number of its
+ * packs loaded in drones. The counters are updated in the same transaction as the load or unload that changes them,
+ * so capacity and deletability checks are constant time reads. A periodic reconciliation recomputes the counters
+ * from the loaded medications and repairs any drift, on one application instance at a time.
+ */
+@Service
+public class LoadCounterService {
+
+    private final DroneRepository droneRepository;
+    private final MedicationRepository medicationRepository;
+    private final DroneMedicationRepository droneMedicationRepository;
+    private final FleetStateCache fleetStateCache;
+    private final JobLeaseService jobLeaseService;
+    private static final String RECONCILIATION_JOB = "load-counter-reconciliation";
+    private static final Duration RECONCILIATION_INTERVAL =
+            Duration.ofMillis(ApplicationConstants.COUNTER_RECONCILIATION_INTERVAL);
+    private static final Logger logger = LoggerFactory.getLogger(LoadCounterService.class);
+
+    public LoadCounterService(DroneRepository droneRepository, MedicationRepository medicationRepository,
+                              DroneMedicationRepository droneMedicationRepository, FleetStateCache fleetStateCache,
+                              JobLeaseService jobLeaseService) {
+        this.droneRepository = droneRepository;
+        this.medicationRepository = medicationRepository;
+        this.droneMedicationRepository = droneMedicationRepository;
+        this.fleetStateCache = fleetStateCache;
+        this.jobLeaseService = jobLeaseService;
+    }
+
+    /**
+     * Records packs of a medication loaded onto a drone, if the drone can take them. The drone must be in LOADING
+     * state, have enough battery and room for the weight, which is checked by the counter update itself. Must be
+     * called in the transaction that inserts the load, and nothing is changed if it returns false.
+     *
+     * @param droneSerialNumber Serial number of the drone
+     * @param medicationId      ID of the loaded medication
+     * @param weight            Total weight of the loaded packs
+     * @param packs             Number of loaded packs
+     * @return true if the load was recorded, false if the drone cannot take it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryRecordLoad(String droneSerialNumber, Long medicationId, int weight, int packs) {
+
+        if (!addToDroneLoad(droneSerialNumber, weight, packs)) {
+            return false;
+        }
+        medicationRepository.addToInFlightCount(medicationId, packs);
+        return true;
+    }
+
+    /**
+     * Records packs of several medications loaded onto a drone together, if the drone can take them. The drone
+     * counters are updated and checked once for the whole load. Must be called in the transaction that inserts the
+     * loads, and nothing is changed if it returns false.
+     *
+     * @param droneSerialNumber   Serial number of the drone
+     * @param packsByMedicationId Number of loaded packs of each medication
+     * @param weight              Total weight of all the loaded packs
+     * @return true if the load was recorded, false if the drone cannot take it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryRecordLoad(String droneSerialNumber, Map<Long, Integer> packsByMedicationId, int weight) {
+
+        int packs = packsByMedicationId.values().stream().mapToInt(Integer::intValue).sum();
+        if (!addToDroneLoad(droneSerialNumber, weight, packs)) {
+            return false;
+        }
+        for (Map.Entry<Long, Integer> entry : packsByMedicationId.entrySet()) {
+            medicationRepository.addToInFlightCount(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Records that all medications are unloaded from a drone. Must be called in the transaction that deletes the
+     * loads, before they are deleted.
+     *
+     * @param droneSerialNumber Serial number of the drone
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUnloadAll(String droneSerialNumber) {
+
+        for (MedicationInfoDTO loaded : droneMedicationRepository.findLoadedMedicationInfo(droneSerialNumber)) {
+            medicationRepository.addToInFlightCount(loaded.getMedicationId(), -loaded.getNumberOfPacks());
+        }
+        droneRepository.clearLoad(droneSerialNumber);
+        fleetStateCache.evict(droneSerialNumber);
+    }
+
+    /**
+     * Periodically recomputes the load counters and repairs the ones that drifted from the loaded medications.
+     * Only the instance holding the reconciliation lease runs it, the others skip it until their next run.
+     *
+     * @return Number of drones and medications whose counters were repaired, 0 if another instance runs it
+     */
+    @Scheduled(fixedDelay = ApplicationConstants.COUNTER_RECONCILIATION_INTERVAL,
+            initialDelay = ApplicationConstants.COUNTER_RECONCILIATION_INTERVAL)
+    @Transactional
+    public int reconcile() {
+        return jobLeaseService.runIfLeased(RECONCILIATION_JOB, RECONCILIATION_INTERVAL,
+                RECONCILIATION_INTERVAL.dividedBy(2), this::repairLoadCounters).orElse(0);
+    }
+
+    private int repairLoadCounters() {
+
+        int repairedDrones = droneRepository.reconcileLoadCounters();
+        int repairedMedications = medicationRepository.reconcileInFlightCounts();
+        if (repairedDrones > 0) {
+            fleetStateCache.clear();
+        }
+        if (repairedDrones > 0 || repairedMedications > 0) {
+            logger.warn(String.format("Repaired load counters of %d drones and %d medications", repairedDrones,
+                    repairedMedications));
+        }
+        return repairedDrones + repairedMedications;
+    }
+
+    private boolean addToDroneLoad(String droneSerialNumber, int weight, int packs) {
+
+        int updated = droneRepository.addToLoadIfFits(droneSerialNumber, weight, packs,
+                ApplicationConstants.DroneState.LOADING, ApplicationConstants.LOADING_BATTERY_THRESHOLD);
+        if (updated == 0) {
+            return false;
+        }
+        fleetStateCache.evict(droneSerialNumber);
+        return true;
+    }
+}
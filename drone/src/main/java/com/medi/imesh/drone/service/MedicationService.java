@@ -1,17 +1,29 @@
 package com.medi.imesh.drone.service;
 
+import com.medi.imesh.drone.cache.MedicationCache;
+import com.medi.imesh.drone.common.CursorPagination;
+import com.medi.imesh.drone.dto.CursorPageDTO;
 import com.medi.imesh.drone.repository.MedicationRepository;
 import com.medi.imesh.drone.dto.MedicationDTO;
 import com.medi.imesh.drone.mapper.MedicationMapper;
 import com.medi.imesh.drone.model.Medication;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing medications.
@@ -20,16 +32,45 @@ import java.util.Optional;
 @Service
 public class MedicationService {
 
+    private static final String CURSOR_RESOURCE = "medications";
+
     private final MedicationValidationService medicationValidationService;
     private final MedicationRepository medicationRepository;
+    private final MedicationCache medicationCache;
+    private final boolean preloadCache;
     private static final Logger logger = LoggerFactory.getLogger(MedicationService.class);
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     public MedicationService(MedicationValidationService medicationValidationService,
-                             MedicationRepository medicationRepository) {
+                             MedicationRepository medicationRepository, MedicationCache medicationCache,
+                             @Value("${medication.cache.preload:false}") boolean preloadCache) {
 
         this.medicationValidationService = medicationValidationService;
         this.medicationRepository = medicationRepository;
+        this.medicationCache = medicationCache;
+        this.preloadCache = preloadCache;
+    }
+
+    /**
+     * Loads the medication catalog into the medication cache once the application has started,
+     * up to the size of the cache. Enabled with the medication.cache.preload property.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadMedicationCache() {
+
+        if (!preloadCache) {
+            return;
+        }
+        Slice<Medication> medications = medicationRepository.findByIdGreaterThan(0L,
+                PageRequest.of(0, medicationCache.getMaxSize(), Sort.by("id")));
+        for (Medication medication : medications) {
+            medicationCache.put(MedicationMapper.entityToDto(medication));
+        }
+        logger.info(String.format("Preloaded %d medications into the medication cache",
+                medications.getNumberOfElements()));
     }
 
     /**
@@ -42,6 +83,7 @@ public class MedicationService {
 
         Medication medication = MedicationMapper.dtoToEntity(medicationDTO);
         Medication savedMedication = medicationRepository.save(medication);
+        medicationCache.evict(savedMedication.getId());
         if (logger.isDebugEnabled()) {
             logger.debug(String.format("Saved medication with ID %d in the system", savedMedication.getId()));
         }
@@ -50,16 +92,22 @@ public class MedicationService {
 
     /**
      * Finds a medication by its unique ID.
+     * Medications are served from the medication cache and only read from the database on a cache miss.
      *
      * @param id The ID of the medication to find.
      * @return An Optional containing the found medication, or empty if no medication is found.
      */
     public Optional<MedicationDTO> findMedicationById(Long id) {
 
+        Optional<MedicationDTO> cachedMedication = medicationCache.get(id);
+        if (cachedMedication.isPresent()) {
+            return cachedMedication;
+        }
         Optional<Medication> medicationOpt = medicationRepository.findById(id);
         if (medicationOpt.isPresent()) {
             Medication medication = medicationOpt.get();
             MedicationDTO medicationDTO = MedicationMapper.entityToDto(medication);
+            medicationCache.put(medicationDTO);
             return Optional.of(medicationDTO);
         } else {
             return Optional.empty();
@@ -67,18 +115,36 @@ public class MedicationService {
     }
 
     /**
-     * Retrieves all medications stored in the database.
+     * Retrieves a page of medications ordered by their ID.
      *
-     * @return A List of all medications.
+     * @param cursor Cursor returned with the previous page, or null for the first page.
+     * @param size   Maximum number of medications in the page, or null for the default size.
+     * @return A page of medications.
      */
-    public List<MedicationDTO> findAllMedications() {
+    public CursorPageDTO<MedicationDTO> findMedications(String cursor, Integer size) {
 
-        List<Medication> medications = medicationRepository.findAll();
-        List<MedicationDTO> medicationDTOs = new ArrayList<>();
-        for (Medication medication : medications) {
-            medicationDTOs.add(MedicationMapper.entityToDto(medication));
+        int pageSize = CursorPagination.resolvePageSize(size);
+        long afterId = cursor == null ? 0 : CursorPagination.decodeLong(CURSOR_RESOURCE, cursor);
+        return CursorPagination.toPage(medicationRepository.findByIdGreaterThan(afterId,
+                        PageRequest.of(0, pageSize, Sort.by("id"))),
+                MedicationMapper::entityToDto, CURSOR_RESOURCE, Medication::getId);
+    }
+
+    /**
+     * Streams all medications stored in the database, ordered by their ID.
+     * Each medication is detached once it has been handed to the consumer.
+     *
+     * @param consumer Consumer of the mapped medications.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllMedications(Consumer<MedicationDTO> consumer) {
+
+        try (Stream<Medication> medications = medicationRepository.streamAllByOrderById()) {
+            medications.forEach(medication -> {
+                consumer.accept(MedicationMapper.entityToDto(medication));
+                entityManager.detach(medication);
+            });
         }
-        return medicationDTOs;
     }
 
     /**
@@ -92,6 +158,7 @@ public class MedicationService {
         medicationValidationService.checkIfMedicationIsDeletable(id);
         if (medicationRepository.existsById(id)) {
             medicationRepository.deleteById(id);
+            medicationCache.evict(id);
             if (logger.isDebugEnabled()) {
                 logger.debug(String.format("Deleted medication with ID %d from the system", id));
             }
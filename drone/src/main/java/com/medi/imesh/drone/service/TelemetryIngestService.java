@@ -0,0 +1,301 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.cache.DroneSnapshot;
+import com.medi.imesh.drone.cache.FleetStateCache;
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.BatteryReadingDTO;
+import com.medi.imesh.drone.dto.TelemetryIngestResultDTO;
+import com.medi.imesh.drone.event.DroneChangedEvent;
+import com.medi.imesh.drone.model.Drone;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service class for ingesting the battery levels reported by drones.
+ * <p>
+ * Readings are not written one by one. They are collected in a last-write-wins buffer keyed by serial number, so
+ * a drone that reports several times between two flushes is written once with its latest level, and a reading
+ * that matches the level already buffered or stored is dropped. The buffer is flushed periodically with a single
+ * JDBC batch update. The update bypasses the persistence context, so the flushed drones are evicted from the
+ * second-level cache and the fleet state cache, and the cached drone lookups by serial number are evicted as
+ * Hibernate would do for a bulk update of the drone table.
+ * <p>
+ * Serial numbers that are not registered are remembered for a while, so a drone that keeps reporting before it is
+ * registered does not query the database for every reading. They are forgotten as soon as a drone is registered.
+ */
+@Service
+public class TelemetryIngestService implements MeterBinder {
+
+    private static final String UPDATE_BATTERY_LEVEL = "UPDATE drone SET battery_capacity = ?, " +
+            "version = version + 1 WHERE serial_number = ?";
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryIngestService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final FleetStateCache fleetStateCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConcurrentMap<String, DroneChangedEvent> pendingReadings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> unknownSerialNumbers = new ConcurrentHashMap<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder unknownDrones = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+
+    public TelemetryIngestService(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                                  FleetStateCache fleetStateCache, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.fleetStateCache = fleetStateCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Buffers the battery levels reported by drones until the next flush.
+     *
+     * @param readings Battery levels reported by drones
+     * @return Number of readings accepted, dropped as duplicates and rejected for unknown drones
+     */
+    public TelemetryIngestResultDTO ingest(List<BatteryReadingDTO> readings) {
+
+        int acceptedReadings = 0;
+        int duplicateReadings = 0;
+        int unknownDroneReadings = 0;
+        for (BatteryReadingDTO reading : readings) {
+            String serialNumber = reading.getSerialNumber();
+            int batteryLevel = reading.getBatteryLevel();
+
+            Optional<DroneSnapshot> drone = findDrone(serialNumber);
+            if (drone.isEmpty()) {
+                unknownDroneReadings++;
+                continue;
+            }
+            DroneChangedEvent pendingReading = pendingReadings.get(serialNumber);
+            int currentLevel = pendingReading != null ? pendingReading.getBatteryCapacity()
+                    : drone.get().getBatteryCapacity();
+            if (currentLevel == batteryLevel) {
+                duplicateReadings++;
+                continue;
+            }
+            DroneChangedEvent batteryReading = new DroneChangedEvent(DroneChangedEvent.ChangeType.BATTERY, serialNumber,
+                    drone.get().getState(), batteryLevel, null);
+            if (pendingReadings.put(serialNumber, batteryReading) != null) {
+                coalesced.increment();
+            }
+            acceptedReadings++;
+        }
+        accepted.add(acceptedReadings);
+        duplicates.add(duplicateReadings);
+        unknownDrones.add(unknownDroneReadings);
+        return new TelemetryIngestResultDTO(acceptedReadings, duplicateReadings, unknownDroneReadings);
+    }
+
+    /**
+     * Writes the buffered battery levels with a single batch update. If the transaction does not commit, the
+     * readings are put back into the buffer unless a newer reading arrived in the meantime.
+     * <p>
+     * The change events are the buffered readings themselves, the state of each drone is the one it had when its
+     * reading was buffered and the version assigned by the database is not known. They are published in the
+     * transaction, so the listeners that only act on committed changes receive them after commit.
+     *
+     * @return Number of drones whose battery level was written
+     */
+    @Scheduled(fixedDelay = ApplicationConstants.TELEMETRY_FLUSH_INTERVAL)
+    @Transactional
+    public int flush() {
+
+        if (pendingReadings.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<DroneChangedEvent> readings = new ArrayList<>(pendingReadings.size());
+        for (String serialNumber : pendingReadings.keySet()) {
+            DroneChangedEvent reading = pendingReadings.remove(serialNumber);
+            if (reading != null) {
+                readings.add(reading);
+            }
+        }
+
+        boolean requeueAfterCompletion = requeueUnlessCommitted(readings);
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_BATTERY_LEVEL, readings, ApplicationConstants.JDBC_BATCH_SIZE,
+                    (statement, reading) -> {
+                        statement.setInt(1, reading.getBatteryCapacity());
+                        statement.setString(2, reading.getSerialNumber());
+                    });
+        } catch (RuntimeException e) {
+            if (!requeueAfterCompletion) {
+                requeue(readings);
+            }
+            throw e;
+        }
+        for (DroneChangedEvent reading : readings) {
+            eventPublisher.publishEvent(reading);
+            fleetStateCache.evict(reading.getSerialNumber());
+        }
+        evictFromSecondLevelCache(readings);
+
+        flushes.increment();
+        flushNanos.add(System.nanoTime() - start);
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Flushed the battery levels of %d drones", readings.size()));
+        }
+        return readings.size();
+    }
+
+    /**
+     * Forget the unknown serial number of a drone once its registration is committed, so that its next reading
+     * is accepted.
+     *
+     * @param event Drone change event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDroneRegistered(DroneChangedEvent event) {
+
+        if (event.getChangeType() == DroneChangedEvent.ChangeType.REGISTERED) {
+            unknownSerialNumbers.remove(event.getSerialNumber());
+        }
+    }
+
+    public int getBufferDepth() {
+        return pendingReadings.size();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("drone.telemetry.readings", accepted, LongAdder::sum)
+                .tag("result", "accepted")
+                .description("Battery readings buffered for the next flush")
+                .register(registry);
+        FunctionCounter.builder("drone.telemetry.readings", duplicates, LongAdder::sum)
+                .tag("result", "duplicate")
+                .description("Battery readings dropped because the level did not change")
+                .register(registry);
+        FunctionCounter.builder("drone.telemetry.readings", unknownDrones, LongAdder::sum)
+                .tag("result", "unknown")
+                .description("Battery readings rejected because the drone is not registered")
+                .register(registry);
+        FunctionCounter.builder("drone.telemetry.coalesced", coalesced, LongAdder::sum)
+                .description("Buffered battery readings replaced by a newer reading before they were flushed")
+                .register(registry);
+        Gauge.builder("drone.telemetry.buffer.depth", this, TelemetryIngestService::getBufferDepth)
+                .description("Number of drones with a battery level waiting to be flushed")
+                .register(registry);
+        FunctionTimer.builder("drone.telemetry.flush", this, service -> service.flushes.sum(),
+                        service -> service.flushNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time taken to write the buffered battery levels")
+                .register(registry);
+    }
+
+    /**
+     * Find the snapshot of a drone, without going to the database for a serial number that was recently found not
+     * to be registered. The remembered serial numbers are dropped all at once if there are too many of them.
+     */
+    private Optional<DroneSnapshot> findDrone(String serialNumber) {
+
+        Long unknownUntil = unknownSerialNumbers.get(serialNumber);
+        if (unknownUntil != null) {
+            if (unknownUntil - System.nanoTime() > 0) {
+                return Optional.empty();
+            }
+            unknownSerialNumbers.remove(serialNumber, unknownUntil);
+        }
+        Optional<DroneSnapshot> drone = fleetStateCache.find(serialNumber);
+        if (drone.isEmpty() && serialNumber != null) {
+            if (unknownSerialNumbers.size() >= ApplicationConstants.TELEMETRY_UNKNOWN_DRONE_CACHE_SIZE) {
+                unknownSerialNumbers.clear();
+            }
+            long ttl = TimeUnit.MILLISECONDS.toNanos(ApplicationConstants.TELEMETRY_UNKNOWN_DRONE_TTL);
+            unknownSerialNumbers.put(serialNumber, System.nanoTime() + ttl);
+        }
+        return drone;
+    }
+
+    /**
+     * Put the readings back into the buffer if the surrounding transaction does not commit, whether the batch
+     * update or the commit failed.
+     *
+     * @return true if the readings are requeued after the transaction completes, false if there is no transaction
+     */
+    private boolean requeueUnlessCommitted(List<DroneChangedEvent> readings) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    requeue(readings);
+                }
+            }
+        });
+        return true;
+    }
+
+    private void requeue(List<DroneChangedEvent> readings) {
+        readings.forEach(reading -> pendingReadings.putIfAbsent(reading.getSerialNumber(), reading));
+    }
+
+    /**
+     * Evict the updated drones and the cached drone lookups from the second-level cache. Inside a transaction they
+     * are evicted again after it completes, so that an entry cached from the old row before the commit does not
+     * survive.
+     */
+    private void evictFromSecondLevelCache(List<DroneChangedEvent> readings) {
+
+        evictDrones(readings);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictDrones(readings);
+                }
+            });
+        }
+    }
+
+    private void evictDrones(List<DroneChangedEvent> readings) {
+
+        Cache secondLevelCache = entityManagerFactory.getCache();
+        for (DroneChangedEvent reading : readings) {
+            secondLevelCache.evict(Drone.class, reading.getSerialNumber());
+        }
+        // The cached lookups hold the old rows and are only invalidated by updates made through Hibernate
+        secondLevelCache.unwrap(org.hibernate.Cache.class)
+                .evictQueryRegion(ApplicationConstants.DRONE_QUERY_CACHE_REGION);
+    }
+}
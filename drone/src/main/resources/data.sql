@@ -5,14 +5,14 @@ INSERT INTO medication (code, image_url, name, weight) VALUES
 ('MED_101', 'http://example.com/med4.png', 'Amoxicillin', 80),
 ('MED112', 'http://example.com/med5.png', 'Cephalexin', 200);
 
-INSERT INTO drone (serial_number, battery_capacity, model, state, weight_limit) VALUES
-('DR001', 100, 'Lightweight', 'IDLE', 100),
-('DR002', 20, 'Lightweight', 'IDLE', 100),
-('DR003', 90, 'Middleweight', 'IDLE', 200),
-('DR004', 90, 'Middleweight', 'IDLE', 200),
-('DR005', 80, 'Cruiserweight', 'IDLE', 300),
-('DR006', 20, 'Cruiserweight', 'IDLE', 300),
-('DR007', 70, 'Heavyweight', 'IDLE', 400),
-('DR008', 10, 'Heavyweight', 'IDLE', 400),
-('DR009', 60, 'Heavyweight', 'IDLE', 500),
-('DR010', 60, 'Heavyweight', 'IDLE', 500);
\ No newline at end of file
+INSERT INTO drone (serial_number, serial_number_hash, battery_capacity, model, state, weight_limit) VALUES
+('DR001', 65289955, 100, 'Lightweight', 'IDLE', 100),
+('DR002', 65289956, 20, 'Lightweight', 'IDLE', 100),
+('DR003', 65289957, 90, 'Middleweight', 'IDLE', 200),
+('DR004', 65289958, 90, 'Middleweight', 'IDLE', 200),
+('DR005', 65289959, 80, 'Cruiserweight', 'IDLE', 300),
+('DR006', 65289960, 20, 'Cruiserweight', 'IDLE', 300),
+('DR007', 65289961, 70, 'Heavyweight', 'IDLE', 400),
+('DR008', 65289962, 10, 'Heavyweight', 'IDLE', 400),
+('DR009', 65289963, 60, 'Heavyweight', 'IDLE', 500),
+('DR010', 65289985, 60, 'Heavyweight', 'IDLE', 500);
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.medi.imesh.drone.cache;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.model.Drone;
+import com.medi.imesh.drone.repository.DroneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FleetStateCacheTest {
+
+    @Mock
+    private DroneRepository droneRepository;
+
+    @Mock
+    private Clock clock;
+
+    private FleetStateCache fleetStateCache;
+
+    private Drone drone;
+
+    @BeforeEach
+    void setUp() {
+
+        lenient().when(clock.millis()).thenReturn(0L);
+        fleetStateCache = new FleetStateCache(droneRepository, clock, 1000);
+        drone = new Drone();
+        drone.setSerialNumber("DR001");
+        drone.setModel("Lightweight");
+        drone.setWeightLimit(100);
+        drone.setBatteryCapacity(80);
+        drone.setState(ApplicationConstants.DroneState.IDLE);
+        drone.setVersion(1L);
+    }
+
+    @Test
+    void find_WhenCalledTwice_LoadsFromRepositoryOnce() {
+
+        when(droneRepository.findBySerialNumber("DR001")).thenReturn(Optional.of(drone));
+
+        Optional<DroneSnapshot> first = fleetStateCache.find("DR001");
+        Optional<DroneSnapshot> second = fleetStateCache.find("DR001");
+
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertEquals(80, second.get().getBatteryCapacity());
+        assertEquals(1, fleetStateCache.getMissCount());
+        assertEquals(1, fleetStateCache.getHitCount());
+        verify(droneRepository, times(1)).findBySerialNumber("DR001");
+    }
+
+    @Test
+    void find_WhenDroneDoesNotExist_ReturnsEmptyAndDoesNotCache() {
+
+        when(droneRepository.findBySerialNumber("DR404")).thenReturn(Optional.empty());
+
+        assertFalse(fleetStateCache.find("DR404").isPresent());
+        assertEquals(0, fleetStateCache.size());
+    }
+
+    @Test
+    void find_AfterSnapshotExpired_ReloadsFromRepository() {
+
+        when(droneRepository.findBySerialNumber("DR001")).thenReturn(Optional.of(drone));
+        fleetStateCache.find("DR001");
+
+        // Written by another instance, so this cache is not told
+        drone.setBatteryCapacity(20);
+        when(clock.millis()).thenReturn(999L);
+        assertEquals(80, fleetStateCache.find("DR001").get().getBatteryCapacity());
+        when(clock.millis()).thenReturn(1000L);
+        assertEquals(20, fleetStateCache.find("DR001").get().getBatteryCapacity());
+
+        verify(droneRepository, times(2)).findBySerialNumber("DR001");
+    }
+
+    @Test
+    void find_WhenDroneIsWrittenWhileLoading_KeepsTheWrittenSnapshot() {
+
+        Drone staleDrone = new Drone();
+        staleDrone.setSerialNumber("DR001");
+        staleDrone.setBatteryCapacity(80);
+        staleDrone.setVersion(1L);
+        drone.setBatteryCapacity(50);
+        drone.setVersion(2L);
+        when(droneRepository.saveAndFlush(drone)).thenReturn(drone);
+        // The write commits after the read has loaded the drone, and before the read caches it
+        when(droneRepository.findBySerialNumber("DR001")).thenAnswer(invocation -> {
+            fleetStateCache.save(drone);
+            return Optional.of(staleDrone);
+        });
+
+        assertEquals(50, fleetStateCache.find("DR001").get().getBatteryCapacity());
+        assertEquals(50, fleetStateCache.find("DR001").get().getBatteryCapacity());
+        assertEquals(1, fleetStateCache.getHitCount());
+    }
+
+    @Test
+    void find_WhenDroneIsEvictedWhileLoading_DoesNotCacheTheLoadedSnapshot() {
+
+        when(droneRepository.findBySerialNumber("DR001")).thenAnswer(invocation -> {
+            fleetStateCache.evict("DR001");
+            return Optional.of(drone);
+        });
+
+        assertTrue(fleetStateCache.find("DR001").isPresent());
+        assertEquals(0, fleetStateCache.size());
+    }
+
+    @Test
+    void save_WritesThroughAndRefreshesSnapshot() {
+
+        when(droneRepository.findBySerialNumber("DR001")).thenReturn(Optional.of(drone));
+        fleetStateCache.find("DR001");
+
+        drone.setState(ApplicationConstants.DroneState.LOADING);
+        when(droneRepository.saveAndFlush(drone)).thenReturn(drone);
+        fleetStateCache.save(drone);
+
+        assertEquals(ApplicationConstants.DroneState.LOADING, fleetStateCache.find("DR001").get().getState());
+        verify(droneRepository).saveAndFlush(drone);
+        verify(droneRepository, times(1)).findBySerialNumber("DR001");
+    }
+
+    @Test
+    void delete_RemovesSnapshot() {
+
+        when(droneRepository.saveAndFlush(drone)).thenReturn(drone);
+        fleetStateCache.save(drone);
+        assertEquals(1, fleetStateCache.size());
+
+        fleetStateCache.delete(drone);
+
+        assertEquals(0, fleetStateCache.size());
+        verify(droneRepository).delete(drone);
+    }
+}
@@ -0,0 +1,65 @@
+package com.medi.imesh.drone.cache;
+
+import com.medi.imesh.drone.dto.MedicationDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MedicationCacheTest {
+
+    @Test
+    void put_WhenFull_EvictsLeastRecentlyUsedMedication() {
+
+        MedicationCache medicationCache = new MedicationCache(2);
+        medicationCache.put(medication(1L, "Aspirin"));
+        medicationCache.put(medication(2L, "Ibuprofen"));
+        medicationCache.get(1L);
+
+        medicationCache.put(medication(3L, "Cephalexin"));
+
+        assertEquals(2, medicationCache.size());
+        assertEquals(1, medicationCache.getEvictionCount());
+        assertTrue(medicationCache.get(1L).isPresent());
+        assertFalse(medicationCache.get(2L).isPresent());
+        assertTrue(medicationCache.get(3L).isPresent());
+    }
+
+    @Test
+    void get_ReturnsCopyOfCachedMedication() {
+
+        MedicationCache medicationCache = new MedicationCache(2);
+        medicationCache.put(medication(1L, "Aspirin"));
+
+        medicationCache.get(1L).get().setName("Changed");
+        Optional<MedicationDTO> cached = medicationCache.get(1L);
+
+        assertEquals("Aspirin", cached.get().getName());
+    }
+
+    @Test
+    void getHitRate_ReturnsRatioOfHits() {
+
+        MedicationCache medicationCache = new MedicationCache(2);
+        assertEquals(0, medicationCache.getHitRate());
+        medicationCache.put(medication(1L, "Aspirin"));
+
+        medicationCache.get(1L);
+        medicationCache.get(1L);
+        medicationCache.get(1L);
+        medicationCache.get(2L);
+
+        assertEquals(0.75, medicationCache.getHitRate());
+    }
+
+    private MedicationDTO medication(Long id, String name) {
+
+        MedicationDTO medication = new MedicationDTO();
+        medication.setId(id);
+        medication.setName(name);
+        return medication;
+    }
+}
@@ -0,0 +1,86 @@
+package com.medi.imesh.drone.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedRingBufferTest {
+
+    @Test
+    void offer_WhenBufferIsFull_RejectsElementUntilOneIsTaken() {
+
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void offerAndPoll_FromConcurrentThreads_DeliverEveryElementOnce() throws Exception {
+
+        int producers = 4;
+        int elementsPerProducer = 50_000;
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(64);
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(producers * elementsPerProducer);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers * 2);
+        List<Future<?>> results = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            int first = producer * elementsPerProducer;
+            results.add(executor.submit(() -> {
+                for (int i = first; i < first + elementsPerProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+            results.add(executor.submit(() -> {
+                while (remaining.get() > 0) {
+                    Integer element = buffer.poll();
+                    if (element == null) {
+                        Thread.onSpinWait();
+                    } else {
+                        if (!taken.add(element)) {
+                            duplicates.incrementAndGet();
+                        }
+                        remaining.decrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(0, duplicates.get());
+        assertEquals(producers * elementsPerProducer, taken.size());
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,35 @@
+package com.medi.imesh.drone.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadPinningMonitorTest {
+
+    @Test
+    void findApplicationSite_ReturnsInnermostApplicationMethod() {
+
+        List<String> frames = List.of("org.h2.engine.SessionLocal.lock",
+                "com.zaxxer.hikari.pool.HikariProxyConnection.prepareStatement",
+                "jdk.proxy2.$Proxy120.findBySerialNumber",
+                "com.medi.imesh.drone.service.DroneService.findDroneBySerialNumber",
+                "com.medi.imesh.drone.controller.DroneController.getDroneBySerialNumber");
+
+        assertEquals("com.medi.imesh.drone.service.DroneService.findDroneBySerialNumber",
+                VirtualThreadPinningMonitor.findApplicationSite(frames));
+        assertTrue(VirtualThreadPinningMonitor.isDataAccess(frames));
+    }
+
+    @Test
+    void findApplicationSite_WhenStackHasNoApplicationMethod_ReturnsUnknown() {
+
+        List<String> frames = List.of("java.lang.Object.wait", "org.apache.tomcat.util.net.NioEndpoint.run");
+
+        assertEquals(VirtualThreadPinningMonitor.UNKNOWN_SITE, VirtualThreadPinningMonitor.findApplicationSite(frames));
+        assertFalse(VirtualThreadPinningMonitor.isDataAccess(frames));
+    }
+}
@@ -2,33 +2,61 @@ package com.medi.imesh.drone.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.BatteryReadingDTO;
+import com.medi.imesh.drone.dto.BatteryTelemetryRequestDTO;
 import com.medi.imesh.drone.dto.DroneDTO;
+import com.medi.imesh.drone.dto.DroneLoadRequestDTO;
+import com.medi.imesh.drone.dto.DroneRegistrationRequestDTO;
+import com.medi.imesh.drone.dto.TelemetryIngestResultDTO;
+import com.medi.imesh.drone.dto.MedicationLoadDTO;
+import com.medi.imesh.drone.dto.DroneStateUpdateDTO;
+import com.medi.imesh.drone.event.DroneChangedEvent;
+import com.medi.imesh.drone.event.DroneEventBroadcaster;
+import com.medi.imesh.drone.exception.PreconditionFailedException;
+import com.medi.imesh.drone.service.DroneCommandDispatcher;
 import com.medi.imesh.drone.service.DroneService;
+import com.medi.imesh.drone.service.TelemetryIngestService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(DroneController.class)
+@Import(DroneCommandDispatcher.class)
 public class DroneControllerTest {
 
     @Autowired
@@ -37,6 +65,12 @@ public class DroneControllerTest {
     @MockBean
     private DroneService droneService;
 
+    @MockBean
+    private TelemetryIngestService telemetryIngestService;
+
+    @MockBean
+    private DroneEventBroadcaster droneEventBroadcaster;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -64,6 +98,98 @@ public class DroneControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(droneDTO)));
     }
 
+    @Test
+    public void registerDrones_WhenValidInput_Returns201() throws Exception {
+
+        DroneDTO droneDTO = new DroneDTO();
+        droneDTO.setSerialNumber("DR101");
+        droneDTO.setModel("Lightweight");
+        droneDTO.setState(ApplicationConstants.DroneState.IDLE);
+        droneDTO.setBatteryCapacity(100);
+        droneDTO.setWeightLimit(200);
+        DroneRegistrationRequestDTO registrationRequestDTO = new DroneRegistrationRequestDTO();
+        registrationRequestDTO.setDrones(List.of(droneDTO));
+
+        given(droneService.registerDrones(anyList())).willReturn(1);
+
+        mockMvc.perform(post("/drones/register/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(registrationRequestDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.numberOfDrones").value(1));
+    }
+
+    @Test
+    public void registerDrones_WithInvalidDrone_Returns400() throws Exception {
+
+        DroneDTO droneDTO = new DroneDTO();
+        droneDTO.setSerialNumber("DR101");
+        DroneRegistrationRequestDTO registrationRequestDTO = new DroneRegistrationRequestDTO();
+        registrationRequestDTO.setDrones(List.of(droneDTO));
+
+        mockMvc.perform(post("/drones/register/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(registrationRequestDTO)))
+                .andExpect(status().isBadRequest());
+        verify(droneService, never()).registerDrones(anyList());
+    }
+
+    @Test
+    public void ingestBatteryTelemetry_WhenValidInput_Returns202() throws Exception {
+
+        BatteryTelemetryRequestDTO telemetryRequestDTO = new BatteryTelemetryRequestDTO();
+        telemetryRequestDTO.setReadings(List.of(new BatteryReadingDTO("DR001", 80),
+                new BatteryReadingDTO("DR002", 60), new BatteryReadingDTO("DR404", 50)));
+        given(telemetryIngestService.ingest(anyList())).willReturn(new TelemetryIngestResultDTO(2, 0, 1));
+
+        mockMvc.perform(post("/drones/telemetry/battery")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(telemetryRequestDTO)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.unknownDrones").value(1));
+    }
+
+    @Test
+    public void ingestBatteryTelemetry_WithInvalidBatteryLevel_Returns400() throws Exception {
+
+        BatteryTelemetryRequestDTO telemetryRequestDTO = new BatteryTelemetryRequestDTO();
+        telemetryRequestDTO.setReadings(List.of(new BatteryReadingDTO("DR001", 101)));
+
+        mockMvc.perform(post("/drones/telemetry/battery")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(telemetryRequestDTO)))
+                .andExpect(status().isBadRequest());
+        verify(telemetryIngestService, never()).ingest(anyList());
+    }
+
+    @Test
+    public void streamDroneEvents_WithFilters_SubscribesToBroadcaster() throws Exception {
+
+        given(droneEventBroadcaster.subscribe("DR001", ApplicationConstants.DroneState.LOADING, null))
+                .willReturn(new SseEmitter());
+
+        mockMvc.perform(get("/drones/events")
+                        .param("serialNumber", "DR001")
+                        .param("state", "LOADING")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        verify(droneEventBroadcaster).subscribe("DR001", ApplicationConstants.DroneState.LOADING, null);
+    }
+
+    @Test
+    public void streamDroneEvents_WithType_SubscribesToLowBatteryAlerts() throws Exception {
+
+        given(droneEventBroadcaster.subscribe(null, null, DroneChangedEvent.ChangeType.LOW_BATTERY))
+                .willReturn(new SseEmitter());
+
+        mockMvc.perform(get("/drones/events")
+                        .param("type", "LOW_BATTERY")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        verify(droneEventBroadcaster).subscribe(null, null, DroneChangedEvent.ChangeType.LOW_BATTERY);
+    }
+
     @Test
     public void getDroneById_WhenExists_Returns200() throws Exception {
 
@@ -90,6 +216,119 @@ public class DroneControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void getAvailableDrones_WithLimitAndOrder_Returns200() throws Exception {
+
+        DroneDTO droneDTO = new DroneDTO();
+        droneDTO.setSerialNumber("DR001");
+        droneDTO.setBatteryCapacity(90);
+
+        given(droneService.findAvailableDrones(1, Sort.Direction.ASC)).willReturn(List.of(droneDTO));
+
+        mockMvc.perform(get("/drones/available")
+                        .param("limit", "1")
+                        .param("order", "asc")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(droneDTO))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void streamAllDrones_WritesOneDronePerLine() throws Exception {
+
+        DroneDTO droneDTO1 = new DroneDTO();
+        droneDTO1.setSerialNumber("DR001");
+        DroneDTO droneDTO2 = new DroneDTO();
+        droneDTO2.setSerialNumber("DR002");
+        doAnswer(invocation -> {
+            Consumer<DroneDTO> consumer = invocation.getArgument(0);
+            consumer.accept(droneDTO1);
+            consumer.accept(droneDTO2);
+            return null;
+        }).when(droneService).streamAllDrones(any(Consumer.class));
+
+        MvcResult mvcResult = mockMvc.perform(get("/drones/stream")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(droneDTO1) + "\n"
+                        + objectMapper.writeValueAsString(droneDTO2) + "\n"));
+    }
+
+    @Test
+    public void getAvailableDrones_WithInvalidOrder_Returns400() throws Exception {
+
+        mockMvc.perform(get("/drones/available")
+                        .param("order", "sideways")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getDroneById_WithMatchingIfNoneMatch_Returns304() throws Exception {
+
+        DroneDTO droneDTO = new DroneDTO();
+        droneDTO.setSerialNumber("DR001");
+        droneDTO.setVersion(5L);
+        given(droneService.findDroneBySerialNumber("DR001")).willReturn(Optional.of(droneDTO));
+
+        mockMvc.perform(get("/drones/{serialNumber}", "DR001"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"5\""));
+
+        mockMvc.perform(get("/drones/{serialNumber}", "DR001")
+                        .header("If-None-Match", "\"5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void updateDroneState_WithStaleIfMatch_Returns412() throws Exception {
+
+        DroneStateUpdateDTO stateUpdateDTO = new DroneStateUpdateDTO();
+        stateUpdateDTO.setNewState(ApplicationConstants.DroneState.LOADING);
+        given(droneService.updateDroneState("DR001", ApplicationConstants.DroneState.LOADING, 4L))
+                .willThrow(new PreconditionFailedException("Drone DR001 is at version 5, not the expected version 4."));
+
+        mockMvc.perform(put("/drones/{serialNumber}/state", "DR001")
+                        .header("If-Match", "\"4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(stateUpdateDTO)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void loadDroneWithMedications_WhenValidInput_ReturnsNumberOfPacks() throws Exception {
+
+        DroneLoadRequestDTO loadRequestDTO = new DroneLoadRequestDTO();
+        loadRequestDTO.setMedications(List.of(new MedicationLoadDTO(1L, 30), new MedicationLoadDTO(2L, 10)));
+        given(droneService.loadDroneWithMedications(anyString(), anyList())).willReturn(40);
+
+        mockMvc.perform(post("/drones/{droneSerialNumber}/load", "DR001")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loadRequestDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfPacks").value(40));
+    }
+
+    @Test
+    public void loadDroneWithMedications_WithInvalidQuantity_Returns400() throws Exception {
+
+        DroneLoadRequestDTO loadRequestDTO = new DroneLoadRequestDTO();
+        loadRequestDTO.setMedications(List.of(new MedicationLoadDTO(1L, 0)));
+
+        mockMvc.perform(post("/drones/{droneSerialNumber}/load", "DR001")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loadRequestDTO)))
+                .andExpect(status().isBadRequest());
+        verify(droneService, never()).loadDroneWithMedications(anyString(), anyList());
+    }
+
     @Test
     public void deleteDrone_WhenExists_Returns204() throws Exception {
 
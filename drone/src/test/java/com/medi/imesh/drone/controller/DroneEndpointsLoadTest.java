@@ -0,0 +1,145 @@
+package com.medi.imesh.drone.controller;
+
+import com.medi.imesh.drone.DroneApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares throughput and 99th percentile latency of the /drones endpoints on platform threads and on virtual
+ * threads. The application is started once per mode on a random port with its own in-memory database, warmed up,
+ * and then driven by concurrent clients over HTTP with a mix of list, lookup and aggregation requests.
+ * <p>
+ * The test is tagged "load" and left out of the default build. Virtual threads need Java 21, so run it with
+ * {@code mvn test -Pvirtual-threads,load-test} on Java 21, it is skipped on older Java versions.
+ */
+@Tag("load")
+class DroneEndpointsLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DroneEndpointsLoadTest.class);
+
+    private static final int CLIENTS = 64;
+    private static final int REQUESTS_PER_CLIENT = 200;
+    private static final int WARM_UP_REQUESTS = 1000;
+    private static final int SEEDED_DRONES = 10;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Test
+    void droneEndpoints_OnPlatformAndVirtualThreads_ServeAllRequests() throws Exception {
+
+        assumeTrue(Runtime.version().feature() >= 21, String.format("Virtual threads need Java 21, running on " +
+                "Java %d", Runtime.version().feature()));
+
+        LoadResult platform = runLoad("platform");
+        logger.info("Platform threads: {}", platform);
+        LoadResult virtual = runLoad("virtual-threads");
+        logger.info("Virtual threads: {}", virtual);
+        logger.info(String.format("Virtual threads compared to platform threads: %.2fx throughput, %.2fx p99 latency",
+                virtual.requestsPerSecond() / platform.requestsPerSecond(),
+                (double) virtual.p99Micros() / platform.p99Micros()));
+    }
+
+    private LoadResult runLoad(String mode) throws Exception {
+
+        List<String> properties = new ArrayList<>(List.of("server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:load_" + mode.replace('-', '_'),
+                "spring.jmx.enabled=false"));
+        if (!mode.equals("platform")) {
+            properties.add("spring.profiles.active=" + mode);
+        }
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DroneApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run()) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+                send(baseUrl, i);
+            }
+
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+            AtomicInteger failed = new AtomicInteger();
+            List<Future<?>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int client = 0; client < CLIENTS; client++) {
+                int firstRequest = client * REQUESTS_PER_CLIENT;
+                results.add(clients.submit(() -> {
+                    for (int i = firstRequest; i < firstRequest + REQUESTS_PER_CLIENT; i++) {
+                        long requestStart = System.nanoTime();
+                        int status = send(baseUrl, i);
+                        latencies[i] = System.nanoTime() - requestStart;
+                        if (status != 200) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(5, TimeUnit.MINUTES);
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            clients.shutdown();
+
+            assertEquals(0, failed.get(), "Requests failed on " + mode);
+            Arrays.sort(latencies);
+            return new LoadResult(latencies.length, elapsedNanos,
+                    latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1000);
+        }
+    }
+
+    // Spread the requests over the endpoints and the seeded drones
+    private int send(String baseUrl, int request) throws Exception {
+
+        String serialNumber = String.format("DR%03d", request % SEEDED_DRONES + 1);
+        String path = switch (request % 4) {
+            case 0 -> "/drones?size=5";
+            case 1 -> "/drones/" + serialNumber;
+            case 2 -> "/drones/available?limit=5";
+            default -> "/drones/" + serialNumber + "/medications";
+        };
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        return httpClient.send(httpRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private record LoadResult(int requests, long elapsedNanos, long p99Micros) {
+
+        double requestsPerSecond() {
+            return requests / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests from %d clients in %d ms, %.0f requests/s, p99 %.2f ms", requests,
+                    CLIENTS, elapsedNanos / 1_000_000, requestsPerSecond(), p99Micros / 1000.0);
+        }
+    }
+}
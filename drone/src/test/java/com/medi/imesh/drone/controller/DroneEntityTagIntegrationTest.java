@@ -0,0 +1,93 @@
+package com.medi.imesh.drone.controller;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.DroneDTO;
+import com.medi.imesh.drone.service.DroneService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Round-trips the entity tag of a drone through conditional writes and reads against the running application, so
+ * the tag returned by a write is the one of the row it wrote.
+ */
+@SpringBootTest
+class DroneEntityTagIntegrationTest {
+
+    private static final String SERIAL_NUMBER = "ETAG001";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private DroneService droneService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        if (droneService.findDroneBySerialNumber(SERIAL_NUMBER).isEmpty()) {
+            DroneDTO droneDTO = new DroneDTO();
+            droneDTO.setSerialNumber(SERIAL_NUMBER);
+            droneDTO.setModel("Lightweight");
+            droneDTO.setWeightLimit(100);
+            droneDTO.setBatteryCapacity(100);
+            droneDTO.setState(ApplicationConstants.DroneState.IDLE);
+            droneService.registerDrone(droneDTO);
+        }
+    }
+
+    @Test
+    void conditionalWrites_ReturnTheTagOfTheWrittenVersion() throws Exception {
+
+        String readTag = etagOf(mockMvc.perform(get("/drones/{serialNumber}", SERIAL_NUMBER))
+                .andExpect(status().isOk()));
+
+        String batteryTag = etagOf(mockMvc.perform(put("/drones/{serialNumber}/batteryLevel", SERIAL_NUMBER)
+                        .header("If-Match", readTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"batteryLevel\": 80}"))
+                .andExpect(status().isOk()));
+        assertNotEquals(readTag, batteryTag);
+
+        // The tag returned by the write is current, the one read before it is not
+        mockMvc.perform(get("/drones/{serialNumber}", SERIAL_NUMBER).header("If-None-Match", batteryTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/drones/{serialNumber}", SERIAL_NUMBER).header("If-None-Match", readTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", batteryTag));
+
+        String stateTag = etagOf(mockMvc.perform(put("/drones/{serialNumber}/state", SERIAL_NUMBER)
+                        .header("If-Match", batteryTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"newState\": \"LOADING\"}"))
+                .andExpect(status().isOk()));
+        assertNotEquals(batteryTag, stateTag);
+
+        mockMvc.perform(put("/drones/{serialNumber}/batteryLevel", SERIAL_NUMBER)
+                        .header("If-Match", batteryTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"batteryLevel\": 70}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/drones/{serialNumber}", SERIAL_NUMBER).header("If-None-Match", stateTag))
+                .andExpect(status().isNotModified());
+    }
+
+    private static String etagOf(ResultActions resultActions) {
+        return resultActions.andReturn().getResponse().getHeader("ETag");
+    }
+}
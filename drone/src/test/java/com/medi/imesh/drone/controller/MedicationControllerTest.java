@@ -1,6 +1,7 @@
 package com.medi.imesh.drone.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medi.imesh.drone.dto.CursorPageDTO;
 import com.medi.imesh.drone.dto.MedicationDTO;
 import com.medi.imesh.drone.service.MedicationService;
 import org.junit.jupiter.api.Test;
@@ -17,10 +18,12 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -78,17 +81,21 @@ public class MedicationControllerTest {
     }
 
     @Test
-    public void getAllMedications_ReturnsListOfMedications() throws Exception {
+    public void getMedications_ReturnsPageOfMedications() throws Exception {
         MedicationDTO medicationDTO1 = new MedicationDTO();
         MedicationDTO medicationDTO2 = new MedicationDTO();
-        List<MedicationDTO> allMedications = Arrays.asList(medicationDTO1, medicationDTO2);
+        List<MedicationDTO> medications = Arrays.asList(medicationDTO1, medicationDTO2);
+        CursorPageDTO<MedicationDTO> page = new CursorPageDTO<>(medications, "bWVkaWNhdGlvbnM6Mg");
 
-        given(medicationService.findAllMedications()).willReturn(allMedications);
+        given(medicationService.findMedications(isNull(), any())).willReturn(page);
 
         mockMvc.perform(get("/medications")
+                        .param("size", "2")
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(allMedications)));
+                .andExpect(content().json(objectMapper.writeValueAsString(page)))
+                .andExpect(jsonPath("$.nextCursor").value("bWVkaWNhdGlvbnM6Mg"))
+                .andExpect(jsonPath("$.hasNext").value(true));
     }
 
     @Test
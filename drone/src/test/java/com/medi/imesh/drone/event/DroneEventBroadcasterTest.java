@@ -0,0 +1,185 @@
+package com.medi.imesh.drone.event;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DroneEventBroadcasterTest {
+
+    private ExecutorService dispatcher;
+    private CountDownLatch dispatcherBlocked;
+    private DroneEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        // Hold the single dispatcher thread until a test releases it, so queued events stay queued
+        dispatcher = Executors.newSingleThreadExecutor();
+        dispatcherBlocked = new CountDownLatch(1);
+        dispatcher.execute(() -> {
+            try {
+                dispatcherBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        broadcaster = new DroneEventBroadcaster(2, ApplicationConstants.EVENT_SEND_TIMEOUT, dispatcher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcherBlocked.countDown();
+        broadcaster.shutdown();
+    }
+
+    private DroneChangedEvent event(String serialNumber, ApplicationConstants.DroneState state) {
+        return new DroneChangedEvent(DroneChangedEvent.ChangeType.STATE, serialNumber, state, 80, 1L);
+    }
+
+    private void drainDispatcher() throws InterruptedException {
+        dispatcherBlocked.countDown();
+        dispatcher.shutdown();
+        assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void onDroneChanged_SendsOnlyEventsMatchingTheSubscriberFilter() throws InterruptedException {
+
+        broadcaster.subscribe("DR001", null);
+        broadcaster.subscribe(null, ApplicationConstants.DroneState.LOADING);
+
+        broadcaster.onDroneChanged(event("DR001", ApplicationConstants.DroneState.IDLE));
+        broadcaster.onDroneChanged(event("DR002", ApplicationConstants.DroneState.LOADING));
+        broadcaster.onDroneChanged(event("DR003", ApplicationConstants.DroneState.IDLE));
+        drainDispatcher();
+
+        assertEquals(2, broadcaster.getDeliveredCount());
+        assertEquals(2, broadcaster.getSubscriberCount());
+        assertEquals(0, broadcaster.getEvictionCount());
+    }
+
+    @Test
+    void onDroneChanged_WithTypeFilter_SendsOnlyLowBatteryAlerts() throws InterruptedException {
+
+        broadcaster.subscribe(null, null, DroneChangedEvent.ChangeType.LOW_BATTERY);
+
+        broadcaster.onDroneChanged(new DroneChangedEvent(DroneChangedEvent.ChangeType.BATTERY, "DR001",
+                ApplicationConstants.DroneState.IDLE, 20, 2L));
+        broadcaster.onDroneChanged(new DroneChangedEvent(DroneChangedEvent.ChangeType.LOW_BATTERY, "DR001",
+                ApplicationConstants.DroneState.IDLE, 20, 2L));
+        drainDispatcher();
+
+        assertEquals(1, broadcaster.getDeliveredCount());
+    }
+
+    @Test
+    void onDroneChanged_WhenSubscriberBufferIsFull_DisconnectsOnlyThatSubscriber() throws InterruptedException {
+
+        broadcaster.subscribe("DR001", null);
+        broadcaster.subscribe("DR002", null);
+
+        for (int i = 0; i < 3; i++) {
+            broadcaster.onDroneChanged(event("DR001", ApplicationConstants.DroneState.IDLE));
+        }
+        broadcaster.onDroneChanged(event("DR002", ApplicationConstants.DroneState.IDLE));
+
+        assertEquals(1, broadcaster.getEvictionCount());
+        assertEquals(1, broadcaster.getSubscriberCount());
+        drainDispatcher();
+        assertEquals(1, broadcaster.getDeliveredCount());
+    }
+
+    @Test
+    void evictStuckSubscribers_DisconnectsBlockedSubscriberAndKeepsServingOthers() throws Exception {
+
+        ExecutorService cachedDispatcher = Executors.newCachedThreadPool();
+        DroneEventBroadcaster stuckBroadcaster = new DroneEventBroadcaster(2, 0, cachedDispatcher);
+        BlockingEmitter stuckEmitter = new BlockingEmitter();
+        try {
+            stuckBroadcaster.subscribe(stuckEmitter, "DR001", null, null);
+            stuckBroadcaster.subscribe("DR002", null);
+
+            stuckBroadcaster.onDroneChanged(event("DR001", ApplicationConstants.DroneState.IDLE));
+            assertTrue(stuckEmitter.sending.await(5, TimeUnit.SECONDS));
+            stuckBroadcaster.evictStuckSubscribers();
+
+            assertEquals(1, stuckBroadcaster.getEvictionCount());
+            assertEquals(1, stuckBroadcaster.getSubscriberCount());
+            assertTrue(stuckEmitter.interrupted.await(5, TimeUnit.SECONDS));
+
+            stuckBroadcaster.onDroneChanged(event("DR002", ApplicationConstants.DroneState.IDLE));
+            cachedDispatcher.shutdown();
+            assertTrue(cachedDispatcher.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(1, stuckBroadcaster.getDeliveredCount());
+        } finally {
+            stuckBroadcaster.shutdown();
+        }
+    }
+
+    @Test
+    void onDroneChanged_WhenDispatcherBacklogIsFull_DisconnectsTheSubscriberThatCannotBeDrained() throws Exception {
+
+        // One thread, held by the blocking task, and room for one waiting subscriber
+        ThreadPoolExecutor boundedDispatcher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1));
+        CountDownLatch released = new CountDownLatch(1);
+        boundedDispatcher.execute(() -> {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        DroneEventBroadcaster boundedBroadcaster = new DroneEventBroadcaster(2, ApplicationConstants.EVENT_SEND_TIMEOUT,
+                boundedDispatcher);
+        try {
+            boundedBroadcaster.subscribe("DR001", null);
+            boundedBroadcaster.subscribe("DR002", null);
+
+            boundedBroadcaster.onDroneChanged(event("DR001", ApplicationConstants.DroneState.IDLE));
+            boundedBroadcaster.onDroneChanged(event("DR002", ApplicationConstants.DroneState.IDLE));
+
+            assertEquals(1, boundedBroadcaster.getEvictionCount());
+            assertEquals(1, boundedBroadcaster.getSubscriberCount());
+            released.countDown();
+            boundedDispatcher.shutdown();
+            assertTrue(boundedDispatcher.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(1, boundedBroadcaster.getDeliveredCount());
+        } finally {
+            released.countDown();
+            boundedBroadcaster.shutdown();
+        }
+    }
+
+    /**
+     * Emitter of a client that stopped reading, its sends block until the sending thread is interrupted.
+     */
+    private static final class BlockingEmitter extends SseEmitter {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IOException("Client stopped reading", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.common.ApplicationConstants.AuditEventType;
+import com.medi.imesh.drone.model.AuditLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the audit log pages by drone or event type are read through the indexes ending with the id, in
+ * id order, whatever the order of the timestamps.
+ */
+@DataJpaTest
+class AuditLogRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 4, 1, 10, 0);
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final List<Long> droneIds = new ArrayList<>();
+
+    /**
+     * Writes audit logs of two drones whose timestamps go back in time as their ids grow, as with a clock set
+     * back, so that an order by timestamp would differ from the id order.
+     */
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 6; i++) {
+            AuditLog auditLog = auditLog(i % 2 == 0 ? AuditEventType.LOW_BATTERY : AuditEventType.STATE_CHANGED,
+                    "DR002", START.minusMinutes(i));
+            droneIds.add(entityManager.persistAndGetId(auditLog, Long.class));
+            entityManager.persist(auditLog(AuditEventType.LOW_BATTERY, "DR008", START.minusMinutes(i)));
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void findDroneAuditLogsBefore_PagesTheDroneNewestIdFirst() {
+
+        List<Long> ids = new ArrayList<>();
+        long beforeId = Long.MAX_VALUE;
+        Slice<AuditLog> page;
+        do {
+            page = auditLogRepository.findDroneAuditLogsBefore("DR002", beforeId, null, null, newestFirst(4));
+            page.forEach(auditLog -> {
+                assertEquals("DR002", auditLog.getDroneSerialNumber());
+                ids.add(auditLog.getId());
+            });
+            beforeId = page.getContent().get(page.getNumberOfElements() - 1).getId();
+        } while (page.hasNext());
+
+        Collections.reverse(ids);
+        assertEquals(droneIds, ids);
+    }
+
+    @Test
+    void findDroneAuditLogsBefore_WithTimeRange_ChecksTheTimestampOfTheRowsInIdOrder() {
+
+        Slice<AuditLog> page = auditLogRepository.findDroneAuditLogsBefore("DR002", AuditEventType.LOW_BATTERY,
+                Long.MAX_VALUE, START.minusMinutes(3), null, newestFirst(20));
+
+        assertEquals(List.of(droneIds.get(2), droneIds.get(0)), page.map(AuditLog::getId).getContent());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    void findTypeAuditLogsBefore_WithOpenEndedTimeRange_PagesTheTypeNewestIdFirst() {
+
+        Slice<AuditLog> page = auditLogRepository.findTypeAuditLogsBefore(AuditEventType.STATE_CHANGED,
+                Long.MAX_VALUE, null, START, newestFirst(2));
+
+        assertEquals(List.of(droneIds.get(5), droneIds.get(3)), page.map(AuditLog::getId).getContent());
+        assertTrue(page.hasNext());
+    }
+
+    @Test
+    void droneAndTypeQueries_ReadTheIndexesEndingWithTheId() {
+
+        assertTrue(explain("SELECT * FROM audit_log WHERE drone_serial_number = 'DR002' AND id < 100 " +
+                "ORDER BY id DESC FETCH FIRST 21 ROWS ONLY").contains("IDX_AUDIT_LOG_DRONE_ID"));
+        assertTrue(explain("SELECT * FROM audit_log WHERE type = 'LOW_BATTERY' AND id < 100 " +
+                "ORDER BY id DESC FETCH FIRST 21 ROWS ONLY").contains("IDX_AUDIT_LOG_TYPE_ID"));
+    }
+
+    private String explain(String sql) {
+        return entityManager.getEntityManager().createNativeQuery("EXPLAIN " + sql).getSingleResult().toString();
+    }
+
+    private static Pageable newestFirst(int size) {
+        return PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "id"));
+    }
+
+    private static AuditLog auditLog(AuditEventType type, String droneSerialNumber, LocalDateTime timestamp) {
+        AuditLog auditLog = new AuditLog(type, droneSerialNumber, null, null, null, type + " " + droneSerialNumber);
+        auditLog.setTimestamp(timestamp);
+        return auditLog;
+    }
+}
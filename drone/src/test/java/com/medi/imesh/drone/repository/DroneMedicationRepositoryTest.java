@@ -0,0 +1,141 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.dto.MedicationInfoDTO;
+import com.medi.imesh.drone.model.DroneMedication;
+import com.medi.imesh.drone.model.Medication;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the database-side aggregation of loaded medications against the previous
+ * approach of loading every row and grouping in memory, and checks the upsert of loaded packs.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class DroneMedicationRepositoryTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DroneMedicationRepositoryTest.class);
+
+    private static final String DRONE_SERIAL_NUMBER = "DR010";
+    private static final int PACKS_PER_MEDICATION = 100;
+    private static final long[] MEDICATION_IDS = {1L, 2L, 3L};
+
+    @Autowired
+    private DroneMedicationRepository droneMedicationRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (long medicationId : MEDICATION_IDS) {
+            for (int i = 0; i < PACKS_PER_MEDICATION; i++) {
+                droneMedicationRepository.addPacks(DRONE_SERIAL_NUMBER, medicationId, 1);
+            }
+        }
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void addPacks_WhenMedicationIsAlreadyLoaded_IncrementsQuantityOfSingleRow() {
+
+        droneMedicationRepository.addPacks(DRONE_SERIAL_NUMBER, 1L, 5);
+        entityManager.clear();
+
+        List<DroneMedication> rows = droneMedicationRepository.findByDroneSerialNumber(DRONE_SERIAL_NUMBER);
+        assertEquals(MEDICATION_IDS.length, rows.size());
+        DroneMedication aspirin = rows.stream().filter(row -> row.getMedication().getId() == 1L).findFirst()
+                .orElseThrow();
+        assertEquals(PACKS_PER_MEDICATION + 5, aspirin.getQuantity());
+    }
+
+    @Test
+    void addPacks_WhenMedicationIsNotLoaded_InsertsRowWithQuantity() {
+
+        assertEquals(1, droneMedicationRepository.addPacks(DRONE_SERIAL_NUMBER, 4L, 3));
+        entityManager.clear();
+
+        List<DroneMedication> rows = droneMedicationRepository.findByDroneSerialNumber(DRONE_SERIAL_NUMBER);
+        assertEquals(MEDICATION_IDS.length + 1, rows.size());
+        DroneMedication inserted = rows.stream().filter(row -> row.getMedication().getId() == 4L).findFirst()
+                .orElseThrow();
+        assertEquals(3, inserted.getQuantity());
+    }
+
+    @Test
+    void addPacks_WhenMedicationDoesNotExist_InsertsNothing() {
+
+        assertEquals(0, droneMedicationRepository.addPacks(DRONE_SERIAL_NUMBER, 9999L, 1));
+    }
+
+    @Test
+    void findLoadedMedicationInfo_WhenDroneCarriesHundredsOfPacks_AggregatesInSingleQuery() {
+        statistics.clear();
+        long start = System.nanoTime();
+        List<MedicationInfoDTO> legacy = aggregateInMemory(
+                droneMedicationRepository.findByDroneSerialNumber(DRONE_SERIAL_NUMBER));
+        long legacyNanos = System.nanoTime() - start;
+        long legacyEntityLoads = statistics.getEntityLoadCount();
+        entityManager.clear();
+
+        statistics.clear();
+        start = System.nanoTime();
+        List<MedicationInfoDTO> aggregated = droneMedicationRepository.findLoadedMedicationInfo(DRONE_SERIAL_NUMBER);
+        long aggregatedNanos = System.nanoTime() - start;
+
+        assertEquals(MEDICATION_IDS.length, aggregated.size());
+        assertEquals(legacy.size(), aggregated.size());
+        for (int i = 0; i < legacy.size(); i++) {
+            assertEquals(legacy.get(i).getMedicationId(), aggregated.get(i).getMedicationId());
+            assertEquals(legacy.get(i).getMedicationName(), aggregated.get(i).getMedicationName());
+            assertEquals(PACKS_PER_MEDICATION, aggregated.get(i).getNumberOfPacks());
+            assertEquals(legacy.get(i).getTotalWeight(), aggregated.get(i).getTotalWeight());
+        }
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(legacyEntityLoads >= MEDICATION_IDS.length);
+
+        logger.info("Loaded medications for {} packs: in-memory grouping {} ms ({} entities), "
+                        + "database aggregation {} ms (0 entities)",
+                MEDICATION_IDS.length * PACKS_PER_MEDICATION, legacyNanos / 1_000_000, legacyEntityLoads,
+                aggregatedNanos / 1_000_000);
+    }
+
+    private List<MedicationInfoDTO> aggregateInMemory(List<DroneMedication> droneMedications) {
+        Map<Long, MedicationInfoDTO> medicationInfoMap = new LinkedHashMap<>();
+        for (DroneMedication droneMedication : droneMedications) {
+            Medication medication = droneMedication.getMedication();
+            MedicationInfoDTO info = medicationInfoMap.computeIfAbsent(medication.getId(),
+                    id -> new MedicationInfoDTO(id, medication.getName(), 0, 0));
+            info.setNumberOfPacks(info.getNumberOfPacks() + droneMedication.getQuantity());
+            info.setTotalWeight(info.getTotalWeight() + droneMedication.getQuantity() * medication.getWeight());
+        }
+        List<MedicationInfoDTO> result = new ArrayList<>(medicationInfoMap.values());
+        result.sort(Comparator.comparing(MedicationInfoDTO::getMedicationId));
+        return result;
+    }
+}
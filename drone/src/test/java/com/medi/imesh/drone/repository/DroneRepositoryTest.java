@@ -0,0 +1,134 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.model.Drone;
+import com.medi.imesh.drone.model.Medication;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that repeated drone and medication reads are served by the second-level and query caches.
+ * <p>
+ * A read-write cache entry is only readable by sessions started after it was cached, so the cache tests read in
+ * separate sessions outside the test transaction.
+ */
+@DataJpaTest
+class DroneRepositoryTest {
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void findBySerialNumber_WhenRepeated_IsServedWithoutSql() {
+
+        droneRepository.findBySerialNumber("DR007");
+        long firstReadStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+
+        Optional<Drone> drone = droneRepository.findBySerialNumber("DR007");
+
+        assertTrue(drone.isPresent());
+        assertEquals(1, firstReadStatements);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void saveAll_WhenDronesAreNew_InsertsInBatchesWithoutSelect() {
+
+        List<Drone> drones = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Drone drone = new Drone();
+            drone.setSerialNumber(String.format("BULK%03d", i));
+            drone.setModel("Lightweight");
+            drone.setWeightLimit(200);
+            drone.setBatteryCapacity(100);
+            drone.setState(ApplicationConstants.DroneState.IDLE);
+            drones.add(drone);
+        }
+
+        droneRepository.saveAll(drones);
+        entityManager.flush();
+
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(120, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 3);
+        assertEquals(List.of("BULK000", "BULK119"), droneRepository.findExistingSerialNumbers(
+                List.of("BULK000", "BULK119", "BULK120")).stream().sorted().toList());
+    }
+
+    @Test
+    void addToLoadIfFits_OnlyUpdatesLoadingDronesWithBatteryAndRemainingCapacity() {
+
+        assertEquals(0, addToLoadIfFits("DR009", 500));
+
+        entityManager.find(Drone.class, "DR009").setState(ApplicationConstants.DroneState.LOADING);
+        entityManager.find(Drone.class, "DR002").setState(ApplicationConstants.DroneState.LOADING);
+        entityManager.flush();
+
+        assertEquals(1, addToLoadIfFits("DR009", 500));
+        assertEquals(0, addToLoadIfFits("DR009", 1));
+        assertEquals(0, addToLoadIfFits("DR002", 100));
+        entityManager.clear();
+        assertEquals(500, entityManager.find(Drone.class, "DR009").getLoadedWeight());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void find_WhenEntityWasLoadedBefore_IsServedFromSecondLevelCache() {
+
+        try (EntityManager firstSession = entityManagerFactory.createEntityManager()) {
+            firstSession.find(Medication.class, 1L);
+        }
+        statistics.clear();
+
+        Medication medication;
+        try (EntityManager secondSession = entityManagerFactory.createEntityManager()) {
+            medication = secondSession.find(Medication.class, 1L);
+        }
+
+        assertEquals("Aspirin", medication.getName());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    private int addToLoadIfFits(String serialNumber, int weight) {
+        return droneRepository.addToLoadIfFits(serialNumber, weight, 1, ApplicationConstants.DroneState.LOADING,
+                ApplicationConstants.LOADING_BATTERY_THRESHOLD);
+    }
+}
@@ -0,0 +1,81 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.common.ApplicationConstants.AuditEventType;
+import com.medi.imesh.drone.model.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class JpaAuditLogStoreTest {
+
+    private static final Pageable NEWEST_FIRST = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "id"));
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private JpaAuditLogStore jpaAuditLogStore;
+
+    @Test
+    void saveAll_InsertsAuditLogsInJdbcBatches() {
+
+        List<AuditLog> auditLogs = List.of(new AuditLog("Drone DR002 has low battery level: 20"),
+                new AuditLog("Drone DR008 has low battery level: 10"));
+
+        assertEquals(2, jpaAuditLogStore.saveAll(auditLogs));
+
+        verify(jdbcTemplate).batchUpdate(eq("INSERT INTO audit_log (type, drone_serial_number, medication_id, " +
+                        "old_value, new_value, message, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)"),
+                eq(auditLogs), eq(ApplicationConstants.JDBC_BATCH_SIZE),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(auditLogRepository, never()).saveAll(auditLogs);
+    }
+
+    @Test
+    void findBefore_WithoutTimeRange_LeavesBothEndsOpen() {
+
+        jpaAuditLogStore.findBefore(11L, AuditLogFilter.NONE, 20);
+
+        verify(auditLogRepository).findBefore(11L, null, null, NEWEST_FIRST);
+    }
+
+    @Test
+    void findBefore_WithDrone_ReadsTheDroneQuery() {
+
+        jpaAuditLogStore.findBefore(11L, new AuditLogFilter(null, null, null, "DR002"), 20);
+
+        verify(auditLogRepository).findDroneAuditLogsBefore("DR002", 11L, null, null, NEWEST_FIRST);
+    }
+
+    @Test
+    void findBefore_WithEventType_ReadsTheTypeQuery() {
+
+        LocalDateTime from = LocalDateTime.of(2024, 4, 1, 10, 0);
+        LocalDateTime to = from.plusHours(1);
+
+        jpaAuditLogStore.findBefore(11L, new AuditLogFilter(from, to, AuditEventType.LOW_BATTERY, null), 20);
+
+        verify(auditLogRepository).findTypeAuditLogsBefore(AuditEventType.LOW_BATTERY, 11L, from, to, NEWEST_FIRST);
+    }
+}
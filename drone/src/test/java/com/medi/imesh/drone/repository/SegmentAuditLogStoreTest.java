@@ -0,0 +1,253 @@
+package com.medi.imesh.drone.repository;
+
+import com.medi.imesh.drone.common.ApplicationConstants.AuditEventType;
+import com.medi.imesh.drone.model.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Slice;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes audit logs to small segments with a fine index, so that the tests cross many segments and blocks.
+ */
+class SegmentAuditLogStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 4, 1, 10, 0);
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int INDEX_INTERVAL = 128;
+    private static final int MAX_SEGMENTS = 100;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void findBefore_ReturnsAuditLogsNewestFirstAcrossSegments() {
+
+        SegmentAuditLogStore store = openStore();
+        store.saveAll(auditLogs(1, 100));
+
+        assertTrue(store.getSegmentCount() > 1);
+        Slice<AuditLog> newest = store.findBefore(Long.MAX_VALUE, AuditLogFilter.NONE, 3);
+        assertEquals(List.of(100L, 99L, 98L), ids(newest.getContent()));
+        assertEquals("Drone DR100 has low battery level: 10", newest.getContent().get(0).getMessage());
+        assertEquals(START.plusSeconds(99), newest.getContent().get(0).getTimestamp());
+        assertTrue(newest.hasNext());
+
+        assertEquals(descendingIds(100, 1), ids(readAll(store, null, null)));
+    }
+
+    @Test
+    void findBefore_WithTimeRange_ReturnsOnlyAuditLogsOfTheRange() {
+
+        SegmentAuditLogStore store = openStore();
+        store.saveAll(auditLogs(1, 100));
+
+        List<AuditLog> range = readAll(store, START.plusSeconds(20), START.plusSeconds(30));
+
+        assertEquals(descendingIds(30, 21), ids(range));
+        assertEquals(List.of(), ids(readAll(store, START.minusDays(1), START)));
+    }
+
+    @Test
+    void findBefore_WithDroneAndEventType_ReturnsOnlyTheMatchingEventsWithTheirFields() {
+
+        SegmentAuditLogStore store = openStore();
+        List<AuditLog> auditLogs = new ArrayList<>();
+        for (int number = 1; number <= 60; number++) {
+            String serialNumber = number % 2 == 0 ? "DR001" : "DR002";
+            AuditLog auditLog = number % 3 == 0
+                    ? new AuditLog(AuditEventType.MEDICATION_LOADED, serialNumber, (long) number, null, "2",
+                    "Loaded 2 packs")
+                    : new AuditLog(AuditEventType.LOW_BATTERY, serialNumber, null, null, "10", "Low battery");
+            auditLog.setTimestamp(START.plusSeconds(number - 1));
+            auditLogs.add(auditLog);
+        }
+        store.saveAll(auditLogs);
+
+        List<AuditLog> loads = readAll(store, new AuditLogFilter(null, null, AuditEventType.MEDICATION_LOADED,
+                "DR001"));
+
+        assertEquals(LongStream.iterate(60, id -> id > 0, id -> id - 6).boxed().toList(), ids(loads));
+        AuditLog newest = loads.get(0);
+        assertEquals("DR001", newest.getDroneSerialNumber());
+        assertEquals(60L, newest.getMedicationId());
+        assertNull(newest.getOldValue());
+        assertEquals("2", newest.getNewValue());
+        assertEquals("Loaded 2 packs", newest.getMessage());
+        assertEquals(30, readAll(store, new AuditLogFilter(null, null, null, "DR002")).size());
+    }
+
+    @Test
+    void open_AfterRestart_RecoversAuditLogsAndContinuesTheIds() {
+
+        SegmentAuditLogStore store = openStore();
+        store.saveAll(auditLogs(1, 50));
+        store.close();
+
+        SegmentAuditLogStore reopened = openStore();
+        reopened.saveAll(auditLogs(51, 60));
+
+        assertEquals(descendingIds(60, 1), ids(readAll(reopened, null, null)));
+        assertEquals(descendingIds(60, 51), ids(readAll(reopened, START.plusSeconds(50), null)));
+    }
+
+    @Test
+    void findBefore_WhenStoreIsEmpty_ReturnsEmptySlice() {
+
+        Slice<AuditLog> slice = openStore().findBefore(Long.MAX_VALUE, AuditLogFilter.NONE, 10);
+
+        assertTrue(slice.getContent().isEmpty());
+        assertFalse(slice.hasNext());
+    }
+
+    @Test
+    void saveAll_WhenMoreSegmentsThanKept_DeletesTheOldestSegments() throws IOException {
+
+        SegmentAuditLogStore store = openStore(3);
+        store.saveAll(auditLogs(1, 100));
+
+        assertEquals(3, store.getSegmentCount());
+        assertEquals(6, listFiles().size());
+        List<Long> retained = ids(readAll(store, null, null));
+        long oldest = retained.get(retained.size() - 1);
+        assertTrue(oldest > 1);
+        assertEquals(descendingIds(100, oldest), retained);
+    }
+
+    @Test
+    void saveAll_WhenAnAuditLogDoesNotFitInASegment_AppendsNoneOfTheBatch() {
+
+        SegmentAuditLogStore store = openStore();
+        store.saveAll(auditLogs(1, 5));
+        List<AuditLog> batch = new ArrayList<>(auditLogs(6, 10));
+        batch.add(3, new AuditLog("x".repeat(SEGMENT_SIZE)));
+
+        assertFalse(store.accepts(batch.get(3)));
+        assertTrue(store.accepts(batch.get(2)));
+        assertThrows(IllegalArgumentException.class, () -> store.saveAll(batch));
+        assertEquals(descendingIds(5, 1), ids(readAll(store, null, null)));
+
+        store.saveAll(auditLogs(6, 10));
+        assertEquals(descendingIds(10, 1), ids(readAll(store, null, null)));
+    }
+
+    @Test
+    void saveAll_WhenSegmentIsFull_CutsItToTheSizeOfItsRecords() throws IOException {
+
+        SegmentAuditLogStore store = openStore();
+        store.saveAll(auditLogs(1, 50));
+        store.saveAll(auditLogs(51, 100));
+
+        List<Path> segmentFiles = listFiles().stream()
+                .filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        for (Path sealed : segmentFiles.subList(0, segmentFiles.size() - 1)) {
+            assertTrue(Files.size(sealed) < SEGMENT_SIZE, sealed + " is not cut to its records");
+        }
+        assertEquals(SEGMENT_SIZE, Files.size(segmentFiles.get(segmentFiles.size() - 1)));
+        assertEquals(descendingIds(100, 1), ids(readAll(store, null, null)));
+    }
+
+    @Test
+    void findBefore_WhileSegmentsAreSealedAndDeleted_ReadsConsistentPages() throws Exception {
+
+        SegmentAuditLogStore store = openStore(3);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> reads = reader.submit(() -> {
+                int pages = 0;
+                while (writing.get()) {
+                    List<Long> page = ids(store.findBefore(Long.MAX_VALUE, AuditLogFilter.NONE, 20).getContent());
+                    for (int i = 1; i < page.size(); i++) {
+                        assertTrue(page.get(i) < page.get(i - 1));
+                    }
+                    pages++;
+                }
+                return pages;
+            });
+            for (int first = 1; first <= 2000; first += 10) {
+                store.saveAll(auditLogs(first, first + 9));
+            }
+            writing.set(false);
+
+            assertTrue(reads.get(10, TimeUnit.SECONDS) > 0);
+            assertEquals(3, store.getSegmentCount());
+        } finally {
+            writing.set(false);
+            reader.shutdownNow();
+        }
+    }
+
+    private SegmentAuditLogStore openStore() {
+        return openStore(MAX_SEGMENTS);
+    }
+
+    private SegmentAuditLogStore openStore(int maxSegments) {
+        SegmentAuditLogStore store = new SegmentAuditLogStore(directory, SEGMENT_SIZE, INDEX_INTERVAL, maxSegments);
+        store.open();
+        return store;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    // Page through the audit logs the way the service does, with the id of the last audit log of every page
+    private static List<AuditLog> readAll(SegmentAuditLogStore store, LocalDateTime from, LocalDateTime to) {
+        return readAll(store, new AuditLogFilter(from, to, null, null));
+    }
+
+    private static List<AuditLog> readAll(SegmentAuditLogStore store, AuditLogFilter filter) {
+
+        List<AuditLog> auditLogs = new ArrayList<>();
+        long beforeId = Long.MAX_VALUE;
+        Slice<AuditLog> page;
+        do {
+            page = store.findBefore(beforeId, filter, 7);
+            auditLogs.addAll(page.getContent());
+            if (!page.getContent().isEmpty()) {
+                beforeId = page.getContent().get(page.getContent().size() - 1).getId();
+            }
+        } while (page.hasNext());
+        return auditLogs;
+    }
+
+    // Audit logs numbered from first to last, one second apart
+    private static List<AuditLog> auditLogs(int first, int last) {
+        return IntStream.rangeClosed(first, last).mapToObj(number -> {
+            AuditLog auditLog = new AuditLog(String.format("Drone DR%03d has low battery level: 10", number));
+            auditLog.setTimestamp(START.plusSeconds(number - 1));
+            return auditLog;
+        }).toList();
+    }
+
+    private static List<Long> ids(List<AuditLog> auditLogs) {
+        return auditLogs.stream().map(AuditLog::getId).toList();
+    }
+
+    private static List<Long> descendingIds(long from, long to) {
+        return LongStream.rangeClosed(to, from).map(id -> from + to - id).boxed().toList();
+    }
+}
@@ -1,23 +1,40 @@
 package com.medi.imesh.drone.service;
 
+import com.medi.imesh.drone.common.ApplicationConstants.AuditEventType;
+import com.medi.imesh.drone.common.ApplicationConstants.AuditLogOverflowPolicy;
+import com.medi.imesh.drone.dto.CursorPageDTO;
+import com.medi.imesh.drone.exception.ValidationException;
 import com.medi.imesh.drone.model.AuditLog;
-import com.medi.imesh.drone.repository.AuditLogRepository;
+import com.medi.imesh.drone.repository.AuditLogFilter;
+import com.medi.imesh.drone.repository.AuditLogStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -26,34 +43,200 @@ public class AuditLogServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(auditLogStore.accepts(any())).thenReturn(true);
+        when(auditLogStore.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0, List.class).size());
+        auditLogService = new AuditLogService(auditLogStore, transactionManager, 4, 3, AuditLogOverflowPolicy.DROP_OLDEST);
     }
 
     @Mock
-    private AuditLogRepository auditLogRepository;
+    private AuditLogStore auditLogStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
-    @InjectMocks
     private AuditLogService auditLogService;
 
     @Test
-    void getAllAuditLogs_ReturnsAllLogsPaged() {
+    void getAuditLogs_ReturnsNewestLogsWithCursorToOlderLogs() {
 
         AuditLog log1 = new AuditLog("Drone 1 has low battery level: 20%");
+        log1.setId(12L);
         AuditLog log2 = new AuditLog("Drone 2 has low battery level: 15%");
+        log2.setId(11L);
         List<AuditLog> mockLogs = Arrays.asList(log1, log2);
-        Pageable pageable = PageRequest.of(0, 2);
-        Page<AuditLog> mockPage = new PageImpl<>(mockLogs, pageable, mockLogs.size());
 
-        when(auditLogRepository.findAll(any(Pageable.class))).thenReturn(mockPage);
+        when(auditLogStore.findBefore(Long.MAX_VALUE, AuditLogFilter.NONE, 2))
+                .thenReturn(new SliceImpl<>(mockLogs, PageRequest.of(0, 2), true));
+        when(auditLogStore.findBefore(11L, AuditLogFilter.NONE, 2))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 2), false));
 
-        Page<AuditLog> retrievedPage = auditLogService.getAllAuditLogs(pageable);
+        CursorPageDTO<AuditLog> retrievedPage = auditLogService.getAuditLogs(null, 2);
 
-        assertNotNull(retrievedPage, "The retrieved page of audit logs should not be null.");
-        assertEquals(2, retrievedPage.getTotalElements(), "The total elements in the retrieved " +
-                "page should match the mock data.");
-        assertEquals(mockLogs, retrievedPage.getContent(), "The content of the retrieved page should match " +
+        assertNotNull(retrievedPage.getNextCursor(), "A cursor should be returned when more logs exist.");
+        assertEquals(mockLogs, retrievedPage.getItems(), "The content of the retrieved page should match " +
                 "the mock data.");
 
-        verify(auditLogRepository).findAll(pageable);
+        CursorPageDTO<AuditLog> lastPage = auditLogService.getAuditLogs(retrievedPage.getNextCursor(), 2);
+
+        assertNull(lastPage.getNextCursor(), "No cursor should be returned for the last page.");
+        verify(auditLogStore).findBefore(11L, AuditLogFilter.NONE, 2);
+    }
+
+    @Test
+    void getAuditLogs_WithFilter_ReadsMatchingLogsFromStore() {
+
+        LocalDateTime from = LocalDateTime.of(2024, 4, 1, 10, 0);
+        LocalDateTime to = from.plusHours(1);
+        AuditLogFilter filter = new AuditLogFilter(from, to, AuditEventType.LOW_BATTERY, "DR002");
+        when(auditLogStore.findBefore(Long.MAX_VALUE, filter, 20))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 20), false));
+
+        assertEquals(List.of(), auditLogService.getAuditLogs(null, null, filter).getItems());
+        assertThrows(ValidationException.class, () -> auditLogService.getAuditLogs(null, null,
+                new AuditLogFilter(to, from, null, null)));
+    }
+
+    @Test
+    void recordAll_BuffersAuditLogsUntilTheFlushWritesThemInOneBatch() {
+
+        auditLogService.recordAll(auditLogs("first", "second"));
+
+        verify(auditLogStore, never()).saveAll(anyList());
+        assertEquals(2, auditLogService.getBufferDepth());
+
+        assertEquals(2, auditLogService.flush());
+        assertEquals(List.of("first", "second"), messages(captureWrittenAuditLogs(1).get(0)));
+        assertEquals(0, auditLogService.getBufferDepth());
+        assertEquals(0, auditLogService.flush());
+    }
+
+    @Test
+    void recordAll_InsideTransaction_BuffersAuditLogsAfterCommit() {
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditLogService.recordAll(auditLogs("committed"));
+            assertEquals(0, auditLogService.getBufferDepth());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(1, auditLogService.getBufferDepth());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void recordAll_WhenBufferIsFullAndPolicyDropsOldest_KeepsNewestAuditLogs() {
+
+        auditLogService.recordAll(auditLogs("1", "2", "3", "4", "5", "6"));
+        auditLogService.flush();
+
+        assertEquals(List.of("3", "4", "5", "6"), messages(captureWrittenAuditLogs(1).get(0)));
+        assertEquals(2, auditLogService.getDroppedCount());
+    }
+
+    @Test
+    void recordAll_WhenBufferIsFullAndPolicyDropsNewest_KeepsOldestAuditLogs() {
+
+        auditLogService = new AuditLogService(auditLogStore, transactionManager, 4, 3, AuditLogOverflowPolicy.DROP_NEWEST);
+
+        auditLogService.recordAll(auditLogs("1", "2", "3", "4", "5", "6"));
+        auditLogService.flush();
+
+        assertEquals(List.of("1", "2", "3", "4"), messages(captureWrittenAuditLogs(1).get(0)));
+        assertEquals(2, auditLogService.getDroppedCount());
+    }
+
+    @Test
+    void recordAll_WhenBufferIsFullAndCallerRuns_WritesBufferAndKeepsAllAuditLogs() {
+
+        auditLogService = new AuditLogService(auditLogStore, transactionManager, 4, 3, AuditLogOverflowPolicy.CALLER_RUNS);
+
+        auditLogService.recordAll(auditLogs("1", "2", "3", "4", "5", "6"));
+        auditLogService.flush();
+
+        List<List<AuditLog>> batches = captureWrittenAuditLogs(2);
+        assertEquals(List.of("1", "2", "3", "4"), messages(batches.get(0)));
+        assertEquals(List.of("5", "6"), messages(batches.get(1)));
+        assertEquals(0, auditLogService.getDroppedCount());
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    @Test
+    void flush_WhenInsertFails_PutsAuditLogsBackIntoBuffer() {
+
+        doThrow(new IllegalStateException("Database unavailable")).when(auditLogStore).saveAll(anyList());
+        auditLogService.recordAll(auditLogs("first", "second"));
+
+        assertThrows(IllegalStateException.class, () -> auditLogService.flush());
+
+        assertEquals(2, auditLogService.getBufferDepth());
+    }
+
+    @Test
+    void flush_WhenStoreWritesPartOfTheBatch_PutsOnlyTheOthersBackIntoBuffer() {
+
+        when(auditLogStore.saveAll(anyList())).thenReturn(1, 1);
+        auditLogService.recordAll(auditLogs("first", "second"));
+
+        assertEquals(1, auditLogService.flush());
+        assertEquals(1, auditLogService.getBufferDepth());
+        assertEquals(1, auditLogService.flush());
+
+        assertEquals(List.of("second"), messages(captureWrittenAuditLogs(2).get(1)));
+        assertEquals(0, auditLogService.getBufferDepth());
+        assertEquals(0, auditLogService.getDroppedCount());
     }
 
+    @Test
+    void flush_WhenStoreCannotHoldAnAuditLog_DropsAndCountsIt() {
+
+        when(auditLogStore.accepts(argThat(auditLog -> auditLog.getMessage().equals("oversize")))).thenReturn(false);
+        auditLogService.recordAll(auditLogs("first", "oversize", "second"));
+
+        assertEquals(2, auditLogService.flush());
+
+        assertEquals(List.of("first", "second"), messages(captureWrittenAuditLogs(1).get(0)));
+        assertEquals(0, auditLogService.getBufferDepth());
+        assertEquals(1, auditLogService.getDroppedCount());
+    }
+
+    @Test
+    void recordAll_WhenCallerRunsAndTheWriteFails_DropsTheNewAuditLogWithoutFailingTheCaller() {
+
+        auditLogService = new AuditLogService(auditLogStore, transactionManager, 4, 3, AuditLogOverflowPolicy.CALLER_RUNS);
+        doThrow(new IllegalStateException("Database unavailable")).when(auditLogStore).saveAll(anyList());
+
+        auditLogService.recordAll(auditLogs("1", "2", "3", "4", "5"));
+
+        assertEquals(4, auditLogService.getBufferDepth());
+        assertEquals(1, auditLogService.getDroppedCount());
+    }
+
+    @Test
+    void getRecentAuditLogs_ReturnsLatestAuditLogsNewestFirstWithoutReadingTheDatabase() {
+
+        auditLogService.recordAll(auditLogs("1", "2", "3", "4"));
+
+        assertEquals(List.of("4", "3", "2"), messages(auditLogService.getRecentAuditLogs(null)));
+        assertEquals(List.of("4"), messages(auditLogService.getRecentAuditLogs(1)));
+        assertThrows(ValidationException.class, () -> auditLogService.getRecentAuditLogs(0));
+        verify(auditLogStore, never()).findBefore(anyLong(), any(), anyInt());
+    }
+
+    private static List<AuditLog> auditLogs(String... messages) {
+        return Arrays.stream(messages).map(AuditLog::new).toList();
+    }
+
+    private static List<String> messages(List<AuditLog> auditLogs) {
+        return auditLogs.stream().map(AuditLog::getMessage).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<AuditLog>> captureWrittenAuditLogs(int batches) {
+        ArgumentCaptor<List<AuditLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(auditLogStore, times(batches)).saveAll(captor.capture());
+        return captor.getAllValues();
+    }
 }
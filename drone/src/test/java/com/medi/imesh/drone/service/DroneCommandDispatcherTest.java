@@ -0,0 +1,185 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.exception.CommandTimeoutException;
+import com.medi.imesh.drone.exception.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DroneCommandDispatcherTest {
+
+    private final DroneCommandDispatcher dispatcher = new DroneCommandDispatcher(4, 5000);
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void execute_WithCommandsOfSameDrone_RunsThemOneAtATime() throws Exception {
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(callers.submit(() -> dispatcher.execute("DR001", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.yield();
+                return running.decrementAndGet();
+            })));
+        }
+        for (Future<Integer> result : results) {
+            assertEquals(0, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, maxRunning.get());
+        assertEquals(50, dispatcher.getExecutedCount());
+    }
+
+    @Test
+    void execute_WithCommandsOfDronesOnOtherStripes_RunsThemInParallel() throws Exception {
+
+        // Find two serial numbers that are routed to different stripes
+        String first = "DR001";
+        String second = "DR002";
+        for (int i = 3; Math.floorMod(first.hashCode(), 4) == Math.floorMod(second.hashCode(), 4); i++) {
+            second = String.format("DR%03d", i);
+        }
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        String secondSerialNumber = second;
+
+        Future<?> firstResult = callers.submit(() -> dispatcher.execute(first, () -> awaitOther(bothStarted,
+                finished, first)));
+        Future<?> secondResult = callers.submit(() -> dispatcher.execute(secondSerialNumber, () ->
+                awaitOther(bothStarted, finished, secondSerialNumber)));
+
+        firstResult.get(5, TimeUnit.SECONDS);
+        secondResult.get(5, TimeUnit.SECONDS);
+        assertEquals(2, finished.size());
+    }
+
+    @Test
+    void execute_WhenCommandFails_RethrowsItsException() {
+
+        assertThrows(ValidationException.class, () -> dispatcher.execute("DR001", () -> {
+            throw new ValidationException("Drone is not loadable.");
+        }));
+    }
+
+    @Test
+    void execute_FromCommandOfSameStripe_RunsInPlace() {
+
+        int result = dispatcher.execute("DR001", () -> dispatcher.execute("DR001", () -> 42));
+
+        assertEquals(42, result);
+    }
+
+    @Test
+    void execute_WhenCallersAreInterrupted_LetsRunningCommandFinishAndDropsQueuedCommand() throws Exception {
+
+        CountDownLatch commandStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommand = new CountDownLatch(1);
+        AtomicBoolean commandInterrupted = new AtomicBoolean();
+        AtomicBoolean queuedCommandRan = new AtomicBoolean();
+        List<Throwable> callerFailures = Collections.synchronizedList(new ArrayList<>());
+        Thread runningCaller = new Thread(() -> callCapturingFailure(callerFailures, () -> {
+            commandStarted.countDown();
+            try {
+                return releaseCommand.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                commandInterrupted.set(true);
+                return false;
+            }
+        }));
+        runningCaller.start();
+        assertTrue(commandStarted.await(5, TimeUnit.SECONDS));
+        Thread queuedCaller = new Thread(() -> callCapturingFailure(callerFailures,
+                () -> queuedCommandRan.getAndSet(true)));
+        queuedCaller.start();
+        while (dispatcher.getQueuedCount() == 0) {
+            Thread.yield();
+        }
+
+        runningCaller.interrupt();
+        queuedCaller.interrupt();
+        runningCaller.join(5000);
+        queuedCaller.join(5000);
+        releaseCommand.countDown();
+        // Runs after both commands on the same stripe
+        dispatcher.execute("DR001", () -> null);
+
+        assertEquals(2, callerFailures.size());
+        assertFalse(commandInterrupted.get());
+        assertFalse(queuedCommandRan.get());
+    }
+
+    @Test
+    void execute_WhenStripeIsBusyForLongerThanTheWaitTime_RejectsQueuedCommandWithoutRunningIt() throws Exception {
+
+        DroneCommandDispatcher singleStripe = new DroneCommandDispatcher(1, 100);
+        CountDownLatch commandStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommand = new CountDownLatch(1);
+        AtomicBoolean queuedCommandRan = new AtomicBoolean();
+        try {
+            Future<Boolean> slowCommand = callers.submit(() -> singleStripe.execute("DR001", () -> {
+                commandStarted.countDown();
+                try {
+                    return releaseCommand.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }));
+            assertTrue(commandStarted.await(5, TimeUnit.SECONDS));
+
+            // Another drone of the same stripe waits behind the slow command only for the wait time
+            assertThrows(CommandTimeoutException.class, () -> singleStripe.execute("DR002",
+                    () -> queuedCommandRan.getAndSet(true)));
+            releaseCommand.countDown();
+
+            // The running command was left to finish, and the rejected one is not run after it
+            assertTrue(slowCommand.get(5, TimeUnit.SECONDS));
+            assertEquals(42, singleStripe.execute("DR002", () -> 42));
+            assertFalse(queuedCommandRan.get());
+            assertEquals(1, singleStripe.getTimedOutCount());
+        } finally {
+            releaseCommand.countDown();
+            singleStripe.shutdown();
+        }
+    }
+
+    private void callCapturingFailure(List<Throwable> failures, Supplier<Boolean> command) {
+        try {
+            dispatcher.execute("DR001", command);
+        } catch (IllegalStateException e) {
+            failures.add(e);
+        }
+    }
+
+    private boolean awaitOther(CountDownLatch bothStarted, List<String> finished, String serialNumber) {
+        bothStarted.countDown();
+        try {
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return finished.add(serialNumber);
+    }
+}
@@ -0,0 +1,135 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.DroneDTO;
+import com.medi.imesh.drone.dto.MedicationDTO;
+import com.medi.imesh.drone.dto.MedicationInfoDTO;
+import com.medi.imesh.drone.exception.ValidationException;
+import com.medi.imesh.drone.repository.DroneRepository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads many drones concurrently through the command dispatcher and checks that no drone is loaded beyond its
+ * weight limit. Each drone receives more load attempts than fit, so concurrent loads that passed the capacity check
+ * together would overload it. The drones share the stripes of the dispatcher, so the logged throughput includes the
+ * time commands wait behind the commands of other drones of their stripe, and none of them may wait long enough to
+ * be rejected.
+ */
+@SpringBootTest
+class DroneLoadStressTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DroneLoadStressTest.class);
+
+    private static final int DRONES = 16;
+    private static final int LOADS_PER_DRONE = 10;
+    private static final int WEIGHT_LIMIT = 500;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private MedicationService medicationService;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private DroneCommandDispatcher droneCommandDispatcher;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8, 64})
+    void loadDroneWithMedication_WithConcurrentClients_NeverExceedsWeightLimit(int clientThreads) throws Exception {
+
+        List<String> serialNumbers = registerLoadingDrones("ST" + clientThreads + "-");
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long executedBefore = droneCommandDispatcher.getExecutedCount();
+        long timedOutBefore = droneCommandDispatcher.getTimedOutCount();
+
+        ExecutorService clients = Executors.newFixedThreadPool(clientThreads);
+        List<Future<?>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int attempt = 0; attempt < LOADS_PER_DRONE; attempt++) {
+            for (int i = 0; i < DRONES; i++) {
+                String serialNumber = serialNumbers.get(i);
+                long medicationId = medicationIdFor(i);
+                results.add(clients.submit(() -> {
+                    try {
+                        droneCommandDispatcher.execute(serialNumber,
+                                () -> droneService.loadDroneWithMedication(serialNumber, medicationId));
+                        loaded.incrementAndGet();
+                    } catch (ValidationException e) {
+                        rejected.incrementAndGet();
+                    }
+                }));
+            }
+        }
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        clients.shutdown();
+
+        int expectedLoads = 0;
+        for (int i = 0; i < DRONES; i++) {
+            String serialNumber = serialNumbers.get(i);
+            int weight = medicationService.findMedicationById(medicationIdFor(i)).map(MedicationDTO::getWeight)
+                    .orElseThrow();
+            int expectedPacks = WEIGHT_LIMIT / weight;
+            expectedLoads += expectedPacks;
+
+            int loadedWeight = droneRepository.findById(serialNumber).orElseThrow().getLoadedWeight();
+            List<MedicationInfoDTO> medications = droneService.getLoadedMedicationsForDrone(serialNumber);
+            assertTrue(loadedWeight <= WEIGHT_LIMIT, serialNumber + " is overloaded with " + loadedWeight + "g");
+            assertEquals(expectedPacks * weight, loadedWeight);
+            assertEquals(1, medications.size());
+            assertEquals(expectedPacks, medications.get(0).getNumberOfPacks());
+        }
+        assertEquals(expectedLoads, loaded.get());
+        assertEquals(DRONES * LOADS_PER_DRONE - expectedLoads, rejected.get());
+        assertEquals(DRONES * LOADS_PER_DRONE, droneCommandDispatcher.getExecutedCount() - executedBefore);
+        assertEquals(timedOutBefore, droneCommandDispatcher.getTimedOutCount());
+
+        logger.info(String.format("%d client threads: %d load commands on %d drones in %d ms, %.0f commands/s",
+                clientThreads, DRONES * LOADS_PER_DRONE, DRONES, elapsedNanos / 1_000_000,
+                DRONES * LOADS_PER_DRONE / (elapsedNanos / 1e9)));
+    }
+
+    private List<String> registerLoadingDrones(String prefix) {
+
+        List<String> serialNumbers = new ArrayList<>();
+        for (int i = 0; i < DRONES; i++) {
+            DroneDTO droneDTO = new DroneDTO();
+            droneDTO.setSerialNumber(prefix + i);
+            droneDTO.setModel("Heavyweight");
+            droneDTO.setWeightLimit(WEIGHT_LIMIT);
+            droneDTO.setBatteryCapacity(100);
+            droneDTO.setState(ApplicationConstants.DroneState.IDLE);
+            droneService.registerDrone(droneDTO);
+            droneService.updateDroneState(droneDTO.getSerialNumber(), ApplicationConstants.DroneState.LOADING);
+            serialNumbers.add(droneDTO.getSerialNumber());
+        }
+        return serialNumbers;
+    }
+
+    // Spread the drones over the seeded medications, so that concurrent loads do not all update the same counter
+    private static long medicationIdFor(int drone) {
+        return drone % 5 + 1;
+    }
+}
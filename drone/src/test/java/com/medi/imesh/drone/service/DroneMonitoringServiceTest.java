@@ -1,63 +1,298 @@
 package com.medi.imesh.drone.service;
 
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.event.DroneChangedEvent;
+import com.medi.imesh.drone.exception.ValidationException;
 import com.medi.imesh.drone.model.AuditLog;
-import com.medi.imesh.drone.model.Drone;
-import com.medi.imesh.drone.repository.AuditLogRepository;
 import com.medi.imesh.drone.repository.DroneRepository;
+import com.medi.imesh.drone.repository.DroneSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.slf4j.Logger;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Arrays;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
-import static org.mockito.Mockito.any;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
+/**
+ * Runs two instances of the monitoring service against the same database, as two application instances would, with
+ * a clock shared by both. Alerts are committed in their own transactions, so the tests run without a test
+ * transaction, on their own drones, and use a threshold below the battery levels of the seeded drones.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 class DroneMonitoringServiceTest {
 
-    @Mock
+    private static final long START = 1_711_965_600_000L;
+    private static final int THRESHOLD = 5;
+    private static final String INSERT_DRONE = "INSERT INTO drone (serial_number, serial_number_hash, " +
+            "battery_capacity, model, state, weight_limit) VALUES (?, ?, ?, 'Lightweight', 'IDLE', 100)";
+
+    @Autowired
     private DroneRepository droneRepository;
-    @Mock
-    private AuditLogRepository auditLogRepository;
-    @Mock
-    private Logger logger;
 
-    @InjectMocks
-    private DroneMonitoringService droneMonitoringService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AuditLogService firstAuditLogService = mock(AuditLogService.class);
+    private final AuditLogService secondAuditLogService = mock(AuditLogService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final JobLeaseService jobLeaseService = mock(JobLeaseService.class);
+    private final Clock clock = mock(Clock.class);
+    private DroneMonitoringService first;
+    private DroneMonitoringService second;
+
+    @BeforeEach
+    void setUp() {
+        when(clock.millis()).thenReturn(START);
+        first = monitoringService(firstAuditLogService, 1);
+        second = monitoringService(secondAuditLogService, 1);
+        // MON001 and MON003 are in partition 1 of 2, MON002 in partition 0, all with a negative hash
+        insertDrone("MON001", 3);
+        insertDrone("MON002", 4);
+        insertDrone("MON003", 50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM battery_alert");
+        jdbcTemplate.update("DELETE FROM drone WHERE serial_number LIKE 'MON%'");
+    }
 
     @Test
-    void whenNoDronesHaveLowBattery_thenNoAuditLogsAreSaved() {
-        Drone drone1 = new Drone();
-        Drone drone2 = new Drone();
-        drone1.setSerialNumber("DR001");
-        drone1.setBatteryCapacity(30);
-        drone2.setSerialNumber("DR002");
-        drone2.setBatteryCapacity(50);
+    void whenDronesHaveLowBattery_thenAuditLogsAreRecordedTogether() {
+
+        first.checkDronesBatteryLevel();
 
-        when(droneRepository.findAll()).thenReturn(Arrays.asList(drone1, drone2));
-        droneMonitoringService.checkDronesBatteryLevel();
-        verify(auditLogRepository, never()).save(any(AuditLog.class));
+        List<AuditLog> auditLogs = captureRecordedAuditLogs(firstAuditLogService, 1).get(0);
+        assertEquals(List.of("Drone MON001 has low battery level: 3", "Drone MON002 has low battery level: 4"),
+                auditLogs.stream().map(AuditLog::getMessage).sorted().toList());
+        assertTrue(auditLogs.stream().allMatch(auditLog ->
+                auditLog.getType() == ApplicationConstants.AuditEventType.LOW_BATTERY));
+        verify(eventPublisher, times(2)).publishEvent(any(DroneChangedEvent.class));
+        // The alerts are shared by the instances
+        assertEquals(Set.of("MON001", "MON002"), second.getLowBatteryDrones());
     }
 
     @Test
-    void whenDronesHaveLowBattery_thenAuditLogsAreSaved() {
-        Drone droneWithLowBattery = new Drone();
-        Drone droneWithOkBattery = new Drone();
-        droneWithLowBattery.setSerialNumber("DR003");
-        droneWithLowBattery.setBatteryCapacity(20);
-        droneWithOkBattery.setSerialNumber("DR004");
-        droneWithOkBattery.setBatteryCapacity(50);
+    void onBatteryLevelChanged_WhenLevelDropsBelowThreshold_RecordsAndPublishesAlertOnce() {
+
+        first.onBatteryLevelChanged(batteryChanged("MON003", 4));
+        first.onBatteryLevelChanged(batteryChanged("MON003", 3));
 
-        when(droneRepository.findAll()).thenReturn(Arrays.asList(droneWithLowBattery, droneWithOkBattery));
-        droneMonitoringService.checkDronesBatteryLevel();
-        verify(auditLogRepository, times(1)).save(any(AuditLog.class));
+        assertEquals("Drone MON003 has low battery level: 4",
+                captureRecordedAuditLogs(firstAuditLogService, 1).get(0).get(0).getMessage());
+        ArgumentCaptor<DroneChangedEvent> alert = ArgumentCaptor.forClass(DroneChangedEvent.class);
+        verify(eventPublisher).publishEvent(alert.capture());
+        assertEquals(DroneChangedEvent.ChangeType.LOW_BATTERY, alert.getValue().getChangeType());
+        assertEquals(4, alert.getValue().getBatteryCapacity());
+        assertEquals(Set.of("MON003"), first.getLowBatteryDrones());
     }
 
+    @Test
+    void whenDroneWasAlertedByAnotherInstance_thenItIsNotRecordedAgain() {
+
+        first.onBatteryLevelChanged(batteryChanged("MON001", 3));
+        when(clock.millis()).thenReturn(START + Duration.ofMinutes(15).toMillis());
+        second.onBatteryLevelChanged(batteryChanged("MON001", 2));
+        second.checkDronesBatteryLevel();
+
+        captureRecordedAuditLogs(firstAuditLogService, 1);
+        assertEquals(List.of("Drone MON002 has low battery level: 4"), captureRecordedAuditLogs(
+                secondAuditLogService, 1).get(0).stream().map(AuditLog::getMessage).toList());
+    }
+
+    @Test
+    void whenInstanceRestarts_thenDronesAreRecordedAgainOnlyAfterRealertPeriodByOneInstance() {
+
+        first.checkDronesBatteryLevel();
+        DroneMonitoringService restarted = monitoringService(secondAuditLogService, 1);
+        when(clock.millis()).thenReturn(START + Duration.ofMinutes(2).toMillis());
+        restarted.checkDronesBatteryLevel();
+        verify(secondAuditLogService, never()).recordAll(anyList());
+
+        when(clock.millis()).thenReturn(START + Duration.ofMinutes(30).toMillis());
+        restarted.checkDronesBatteryLevel();
+        first.checkDronesBatteryLevel();
+
+        assertEquals(2, captureRecordedAuditLogs(secondAuditLogService, 1).get(0).size());
+        captureRecordedAuditLogs(firstAuditLogService, 1);
+    }
+
+    @Test
+    void onBatteryLevelChanged_WhenDroneIsChargedAndDropsAgain_RecordsTheNewCrossing() {
+
+        first.onBatteryLevelChanged(batteryChanged("MON003", 4));
+        second.onBatteryLevelChanged(batteryChanged("MON003", 90));
+        assertEquals(Set.of(), first.getLowBatteryDrones());
+        second.onBatteryLevelChanged(batteryChanged("MON003", 2));
+
+        captureRecordedAuditLogs(firstAuditLogService, 1);
+        captureRecordedAuditLogs(secondAuditLogService, 1);
+    }
+
+    @Test
+    void onBatteryLevelChanged_WhenTheChangeIsRolledBack_ReleasesTheAlert() {
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            first.onBatteryLevelChanged(batteryChanged("MON003", 4));
+            status.setRollbackOnly();
+        });
+        assertEquals(Set.of(), second.getLowBatteryDrones());
+
+        second.onBatteryLevelChanged(batteryChanged("MON003", 4));
+
+        captureRecordedAuditLogs(firstAuditLogService, 1);
+        captureRecordedAuditLogs(secondAuditLogService, 1);
+    }
+
+    @Test
+    void onBatteryLevelChanged_WhenLevelStaysAboveThresholdOrChangeIsNotBattery_RecordsNothing() {
+
+        first.onBatteryLevelChanged(batteryChanged("MON003", 80));
+        first.onBatteryLevelChanged(new DroneChangedEvent(DroneChangedEvent.ChangeType.REGISTERED,
+                "MON001", ApplicationConstants.DroneState.IDLE, 3, 0L));
+
+        verify(firstAuditLogService, never()).recordAll(anyList());
+        verify(eventPublisher, never()).publishEvent(any(DroneChangedEvent.class));
+    }
+
+    @Test
+    void whenDroneIsChargedWithoutBatteryChange_thenScanRemovesItsAlertAfterTheInterval() {
+
+        first.checkDronesBatteryLevel();
+        jdbcTemplate.update("UPDATE drone SET battery_capacity = 90 WHERE serial_number = 'MON001'");
+        when(clock.millis()).thenReturn(START + Duration.ofMinutes(15).toMillis());
+        first.checkDronesBatteryLevel();
+        assertEquals(Set.of("MON002"), first.getLowBatteryDrones());
+
+        jdbcTemplate.update("UPDATE drone SET battery_capacity = 1 WHERE serial_number = 'MON001'");
+        when(clock.millis()).thenReturn(START + Duration.ofMinutes(17).toMillis());
+        first.checkDronesBatteryLevel();
+
+        List<List<AuditLog>> batches = captureRecordedAuditLogs(firstAuditLogService, 2);
+        assertEquals("Drone MON001 has low battery level: 1", batches.get(1).get(0).getMessage());
+    }
+
+    @Test
+    void runScheduledCheck_WhenAnotherInstanceHoldsTheLease_DoesNotScan() {
+
+        when(jobLeaseService.runIfLeased(eq("battery-scan"), any(), any(), any())).thenReturn(Optional.empty());
+
+        first.runScheduledCheck();
+
+        verify(firstAuditLogService, never()).recordAll(anyList());
+        assertEquals(Set.of(), first.getLowBatteryDrones());
+    }
+
+    @Test
+    void runScheduledCheck_WhenLeaseIsAcquired_ScansAllDrones() {
+
+        when(jobLeaseService.runIfLeased(eq("battery-scan"), any(), any(), any()))
+                .thenAnswer(invocation -> Optional.ofNullable(invocation.<Supplier<?>>getArgument(3).get()));
+
+        first.runScheduledCheck();
+
+        assertEquals(2, captureRecordedAuditLogs(firstAuditLogService, 1).get(0).size());
+    }
+
+    @Test
+    void runScheduledCheck_WhenPartitioned_ScansOnlyDronesOfHeldPartitions() {
+
+        DroneMonitoringService partitioned = monitoringService(secondAuditLogService, 2);
+        int heldPartition = JobLeaseService.partitionOf("MON001", 2);
+        when(jobLeaseService.acquirePartitions(eq("battery-scan"), eq(2), any())).thenReturn(Set.of(heldPartition));
+
+        partitioned.runScheduledCheck();
+
+        assertEquals(1, heldPartition);
+        assertEquals(List.of("Drone MON001 has low battery level: 3"), captureRecordedAuditLogs(
+                secondAuditLogService, 1).get(0).stream().map(AuditLog::getMessage).toList());
+        assertEquals(Set.of("MON001"), partitioned.getLowBatteryDrones());
+        assertEquals(Set.of(heldPartition), partitioned.getOwnedPartitions());
+    }
+
+    @Test
+    void findLowBatteryDronesToAlert_SelectsThePartitionsOfTheSerialNumberHashes() {
+
+        assertEquals(0, JobLeaseService.partitionOf("MON002", 2));
+        assertEquals(List.of("MON002"), droneRepository.findLowBatteryDronesToAlert(THRESHOLD, 2, Set.of(0),
+                Long.MAX_VALUE).stream().map(DroneSummary::getSerialNumber).toList());
+        assertEquals(List.of("MON001"), droneRepository.findLowBatteryDronesToAlert(THRESHOLD, 2, Set.of(1),
+                Long.MAX_VALUE).stream().map(DroneSummary::getSerialNumber).toList());
+    }
+
+    @Test
+    void updateSettings_ChangesThresholdOfNextCheck() {
+
+        first.updateSettings(60, Duration.ofSeconds(30), null);
+        first.checkDronesBatteryLevel();
+
+        assertEquals(Duration.ofSeconds(30), first.getMonitoringInterval());
+        assertEquals(Duration.ofMillis(ApplicationConstants.MONITORING_REALERT_PERIOD), first.getRealertPeriod());
+        assertTrue(first.getLowBatteryDrones().containsAll(Set.of("MON001", "MON002", "MON003")));
+    }
+
+    @Test
+    void updateSettings_WithInvalidValues_KeepsCurrentSettings() {
+
+        assertThrows(ValidationException.class, () -> first.updateSettings(0, null, null));
+        assertThrows(ValidationException.class, () -> first.updateSettings(30, Duration.ZERO, null));
+        assertThrows(ValidationException.class, () -> first.updateSettings(30, Duration.ofMillis(100), null));
+        assertThrows(ValidationException.class, () -> first.updateSettings(30, Duration.ofDays(2), null));
+        assertThrows(ValidationException.class, () -> first.updateSettings(30, null, Duration.ofDays(30)));
+
+        assertEquals(THRESHOLD, first.getBatteryThreshold());
+        assertEquals(Duration.ofMillis(ApplicationConstants.MONITORING_INTERVAL), first.getMonitoringInterval());
+    }
+
+    private DroneMonitoringService monitoringService(AuditLogService auditLogService, int partitions) {
+        DroneMonitoringService monitoringService = new DroneMonitoringService(droneRepository, jdbcTemplate,
+                transactionManager, auditLogService, eventPublisher, jobLeaseService, partitions, clock);
+        monitoringService.updateSettings(THRESHOLD, null, null);
+        return monitoringService;
+    }
+
+    private void insertDrone(String serialNumber, int batteryCapacity) {
+        jdbcTemplate.update(INSERT_DRONE, serialNumber, serialNumber.hashCode(), batteryCapacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<List<AuditLog>> captureRecordedAuditLogs(AuditLogService auditLogService, int batches) {
+        ArgumentCaptor<List<AuditLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(auditLogService, times(batches)).recordAll(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static DroneChangedEvent batteryChanged(String serialNumber, int batteryCapacity) {
+        return new DroneChangedEvent(DroneChangedEvent.ChangeType.BATTERY, serialNumber,
+                ApplicationConstants.DroneState.IDLE, batteryCapacity, 3L);
+    }
 }
@@ -1,36 +1,69 @@
 package com.medi.imesh.drone.service;
 
+import com.medi.imesh.drone.cache.DroneSnapshot;
+import com.medi.imesh.drone.cache.FleetStateCache;
 import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.common.ApplicationConstants.AuditEventType;
+import com.medi.imesh.drone.dto.CursorPageDTO;
 import com.medi.imesh.drone.dto.DroneDTO;
+import com.medi.imesh.drone.dto.MedicationDTO;
 import com.medi.imesh.drone.dto.MedicationInfoDTO;
+import com.medi.imesh.drone.dto.MedicationLoadDTO;
+import com.medi.imesh.drone.event.DroneChangedEvent;
+import com.medi.imesh.drone.exception.PreconditionFailedException;
+import com.medi.imesh.drone.exception.ValidationException;
 import com.medi.imesh.drone.mapper.DroneMapper;
+import com.medi.imesh.drone.model.AuditLog;
 import com.medi.imesh.drone.model.Drone;
-import com.medi.imesh.drone.model.DroneMedication;
-import com.medi.imesh.drone.model.Medication;
+import com.medi.imesh.drone.repository.AuditLogFilter;
 import com.medi.imesh.drone.repository.DroneMedicationRepository;
 import com.medi.imesh.drone.repository.DroneRepository;
+import com.medi.imesh.drone.repository.DroneSummary;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class DroneServiceTest {
@@ -44,7 +77,21 @@ class DroneServiceTest {
     @Mock
     private DroneMedicationRepository droneMedicationRepository;
 
-    @InjectMocks
+    @Mock
+    private LoadCounterService loadCounterService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private MedicationService medicationService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private AuditLogService auditLogService;
+
     private DroneService droneService;
 
     private AutoCloseable closeable;
@@ -54,6 +101,10 @@ class DroneServiceTest {
     @BeforeEach
     void setUp() {
         closeable = MockitoAnnotations.openMocks(this);
+        droneService = new DroneService(droneRepository, droneMedicationRepository, droneValidationService,
+                new FleetStateCache(droneRepository), loadCounterService, medicationService, eventPublisher,
+                auditLogService);
+        ReflectionTestUtils.setField(droneService, "entityManager", entityManager);
         mockedDroneMapper = Mockito.mockStatic(DroneMapper.class);
     }
 
@@ -74,7 +125,7 @@ class DroneServiceTest {
         mockedDroneMapper.when(() -> DroneMapper.entityToDto(any(Drone.class))).thenReturn(droneDTO);
         doNothing().when(droneValidationService).validateDroneRegistration(any(DroneDTO.class));
 
-        when(droneRepository.save(any(Drone.class))).thenReturn(drone);
+        when(droneRepository.saveAndFlush(any(Drone.class))).thenReturn(drone);
 
         DroneDTO savedDroneDTO = droneService.registerDrone(droneDTO);
 
@@ -83,21 +134,218 @@ class DroneServiceTest {
     }
 
     @Test
-    void findAllDrones() {
+    void registerDrones_ValidatesBatchOnceAndSavesAllDrones() {
+        DroneDTO droneDTO1 = new DroneDTO();
+        droneDTO1.setSerialNumber("SN001");
+        DroneDTO droneDTO2 = new DroneDTO();
+        droneDTO2.setSerialNumber("SN002");
+        List<DroneDTO> droneDTOs = List.of(droneDTO1, droneDTO2);
+
+        mockedDroneMapper.when(() -> DroneMapper.dtoToEntity(any(DroneDTO.class))).thenAnswer(invocation -> {
+            Drone drone = new Drone();
+            drone.setSerialNumber(invocation.<DroneDTO>getArgument(0).getSerialNumber());
+            drone.setState(ApplicationConstants.DroneState.IDLE);
+            return drone;
+        });
+        when(droneRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        int numberOfDrones = droneService.registerDrones(droneDTOs);
+
+        assertEquals(2, numberOfDrones);
+        verify(droneValidationService).validateBulkDroneRegistration(droneDTOs);
+        verify(droneRepository, times(1)).saveAll(anyList());
+        verify(droneRepository, never()).saveAndFlush(any(Drone.class));
+        verify(eventPublisher, times(2)).publishEvent(any(DroneChangedEvent.class));
+    }
+
+    @Test
+    void registerDrones_WhenValidationFails_SavesNothing() {
+        DroneDTO droneDTO = new DroneDTO();
+        droneDTO.setSerialNumber("DR001");
+        List<DroneDTO> droneDTOs = List.of(droneDTO);
+
+        doThrow(new ValidationException("Drones with serial numbers DR001 already exist in the system."))
+                .when(droneValidationService).validateBulkDroneRegistration(droneDTOs);
+
+        assertThrows(ValidationException.class, () -> droneService.registerDrones(droneDTOs));
+        verify(droneRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void findDrones_WhenMoreDronesExist_ReturnsCursorToNextPage() {
         Drone drone1 = new Drone();
+        drone1.setSerialNumber("DR001");
         Drone drone2 = new Drone();
+        drone2.setSerialNumber("DR002");
         List<Drone> drones = Arrays.asList(drone1, drone2);
         DroneDTO droneDTO1 = new DroneDTO();
         DroneDTO droneDTO2 = new DroneDTO();
 
         mockedDroneMapper.when(() -> DroneMapper.entityToDto(any(Drone.class)))
                 .thenReturn(droneDTO1, droneDTO2);
-        when(droneRepository.findAll()).thenReturn(drones);
+        when(droneRepository.findBySerialNumberGreaterThan(eq(""), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(drones, PageRequest.of(0, 2), true));
+        when(droneRepository.findBySerialNumberGreaterThan(eq("DR002"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 2), false));
+
+        CursorPageDTO<DroneDTO> firstPage = droneService.findDrones(null, 2);
+
+        assertEquals(2, firstPage.getItems().size());
+        assertTrue(firstPage.isHasNext());
+        assertNotNull(firstPage.getNextCursor());
+
+        CursorPageDTO<DroneDTO> secondPage = droneService.findDrones(firstPage.getNextCursor(), 2);
+
+        assertTrue(secondPage.getItems().isEmpty());
+        assertNull(secondPage.getNextCursor());
+        verify(droneRepository).findBySerialNumberGreaterThan(eq("DR002"), eq(PageRequest.of(0, 2,
+                Sort.by("serialNumber"))));
+    }
+
+    @Test
+    void findDrones_WithoutSize_UsesDefaultPageSize() {
+        when(droneRepository.findBySerialNumberGreaterThan(eq(""), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        droneService.findDrones(null, null);
+
+        verify(droneRepository).findBySerialNumberGreaterThan("", PageRequest.of(0,
+                ApplicationConstants.DEFAULT_PAGE_SIZE, Sort.by("serialNumber")));
+    }
+
+    @Test
+    void findDrones_WithInvalidCursorOrSize_ThrowsValidationException() {
+        assertThrows(ValidationException.class, () -> droneService.findDrones("not-a-cursor", 10));
+        assertThrows(ValidationException.class, () -> droneService.findDrones(null, 0));
+        assertThrows(ValidationException.class, () -> droneService.findDrones(null,
+                ApplicationConstants.MAX_PAGE_SIZE + 1));
+        verify(droneRepository, never()).findBySerialNumberGreaterThan(any(), any());
+    }
+
+    @Test
+    void streamAllDrones_MapsAndDetachesEachDroneInOrder() {
+        Drone drone1 = new Drone();
+        drone1.setSerialNumber("DR001");
+        Drone drone2 = new Drone();
+        drone2.setSerialNumber("DR002");
+        DroneDTO droneDTO1 = new DroneDTO();
+        DroneDTO droneDTO2 = new DroneDTO();
+
+        mockedDroneMapper.when(() -> DroneMapper.entityToDto(drone1)).thenReturn(droneDTO1);
+        mockedDroneMapper.when(() -> DroneMapper.entityToDto(drone2)).thenReturn(droneDTO2);
+        when(droneRepository.streamAllByOrderBySerialNumber()).thenReturn(Stream.of(drone1, drone2));
+
+        List<DroneDTO> streamed = new ArrayList<>();
+        droneService.streamAllDrones(streamed::add);
+
+        assertEquals(List.of(droneDTO1, droneDTO2), streamed);
+        verify(entityManager).detach(drone1);
+        verify(entityManager).detach(drone2);
+        verify(droneRepository, never()).findAll();
+    }
+
+    @Test
+    void loadDroneWithMedication_WhenDroneTakesTheLoad_AddsPackWithoutValidationReads() {
+        MedicationDTO aspirin = new MedicationDTO();
+        aspirin.setId(1L);
+        aspirin.setWeight(10);
+
+        when(medicationService.findMedicationById(1L)).thenReturn(Optional.of(aspirin));
+        when(loadCounterService.tryRecordLoad("DR001", 1L, 10, 1)).thenReturn(true);
+
+        assertTrue(droneService.loadDroneWithMedication("DR001", 1L));
+        verify(droneMedicationRepository).addPacks("DR001", 1L, 1);
+        verify(droneValidationService, never()).createContext(anyString(), any());
+    }
+
+    @Test
+    void loadDroneWithMedication_WhenDroneRejectsTheLoad_ReportsTheFailedValidation() {
+        MedicationDTO aspirin = new MedicationDTO();
+        aspirin.setId(1L);
+        aspirin.setWeight(100);
+        DroneSnapshot drone = new DroneSnapshot("DR001", "Lightweight", 100, 100,
+                ApplicationConstants.DroneState.LOADING, 100, 1, 0L);
+        DroneCommandContext context = new DroneCommandContext("DR001", drone, 1L, aspirin);
+
+        when(medicationService.findMedicationById(1L)).thenReturn(Optional.of(aspirin));
+        when(loadCounterService.tryRecordLoad("DR001", 1L, 100, 1)).thenReturn(false);
+        when(droneValidationService.createContext("DR001", 1L)).thenReturn(context);
+        doThrow(new ValidationException("Weight limit exceeded")).when(droneValidationService)
+                .validateDroneLoadCapacity(context);
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> droneService.loadDroneWithMedication("DR001", 1L));
+        assertEquals("Weight limit exceeded", exception.getMessage());
+        verify(droneMedicationRepository, never()).addPacks(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void loadDroneWithMedication_WhenDroneChangedAfterRejectingTheLoad_ThrowsValidationException() {
+        MedicationDTO aspirin = new MedicationDTO();
+        aspirin.setId(1L);
+        aspirin.setWeight(10);
+
+        when(medicationService.findMedicationById(1L)).thenReturn(Optional.of(aspirin));
+        when(loadCounterService.tryRecordLoad("DR001", 1L, 10, 1)).thenReturn(false);
+
+        assertThrows(ValidationException.class, () -> droneService.loadDroneWithMedication("DR001", 1L));
+        verify(droneValidationService).checkIfDroneIsLoadable(any());
+        verify(droneMedicationRepository, never()).addPacks(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void loadDroneWithMedications_UpsertsOneRowPerMedicationAndRecordsLoadOnce() {
+        MedicationDTO aspirin = new MedicationDTO();
+        aspirin.setId(1L);
+        aspirin.setWeight(10);
+        MedicationDTO ibuprofen = new MedicationDTO();
+        ibuprofen.setId(2L);
+        ibuprofen.setWeight(15);
+
+        when(medicationService.findMedicationById(1L)).thenReturn(Optional.of(aspirin));
+        when(medicationService.findMedicationById(2L)).thenReturn(Optional.of(ibuprofen));
+        when(loadCounterService.tryRecordLoad("DR001", Map.of(1L, 4, 2L, 2), 70)).thenReturn(true);
+
+        int numberOfPacks = droneService.loadDroneWithMedications("DR001", List.of(
+                new MedicationLoadDTO(1L, 3), new MedicationLoadDTO(2L, 2), new MedicationLoadDTO(1L, 1)));
+
+        assertEquals(6, numberOfPacks);
+        verify(droneMedicationRepository).addPacks("DR001", 1L, 4);
+        verify(droneMedicationRepository).addPacks("DR001", 2L, 2);
+        verify(medicationService, times(1)).findMedicationById(1L);
+        verify(droneValidationService, never()).validateDroneLoadCapacity(any(), anyLong());
+
+        List<AuditLog> auditLogs = captureRecordedAuditLogs();
+        assertEquals(List.of(1L, 2L), auditLogs.stream().map(AuditLog::getMedicationId).toList());
+        assertEquals(List.of("4", "2"), auditLogs.stream().map(AuditLog::getNewValue).toList());
+        assertTrue(auditLogs.stream().allMatch(auditLog -> auditLog.getType() == AuditEventType.MEDICATION_LOADED
+                && "DR001".equals(auditLog.getDroneSerialNumber())));
+    }
 
-        List<DroneDTO> droneDTOs = droneService.findAllDrones();
+    @Test
+    void loadDroneWithMedications_WhenCombinedWeightExceedsLimit_LoadsNothing() {
+        MedicationDTO aspirin = new MedicationDTO();
+        aspirin.setId(1L);
+        aspirin.setWeight(100);
+
+        when(medicationService.findMedicationById(1L)).thenReturn(Optional.of(aspirin));
+        when(loadCounterService.tryRecordLoad("DR001", Map.of(1L, 6), 600)).thenReturn(false);
+        doThrow(new ValidationException("Weight limit exceeded")).when(droneValidationService)
+                .validateDroneLoadCapacity(any(), eq(600L));
+
+        assertThrows(ValidationException.class, () -> droneService.loadDroneWithMedications("DR001",
+                List.of(new MedicationLoadDTO(1L, 6))));
+        verify(droneMedicationRepository, never()).addPacks(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void loadDroneWithMedications_WhenMedicationDoesNotExist_ThrowsValidationException() {
+        when(medicationService.findMedicationById(9L)).thenReturn(Optional.empty());
 
-        assertNotNull(droneDTOs);
-        assertEquals(2, droneDTOs.size());
+        assertThrows(ValidationException.class, () -> droneService.loadDroneWithMedications("DR001",
+                List.of(new MedicationLoadDTO(9L, 1))));
+        verify(loadCounterService, never()).tryRecordLoad(anyString(), anyMap(), anyInt());
+        verify(droneMedicationRepository, never()).addPacks(anyString(), any(), anyInt());
     }
 
     /**
@@ -110,7 +358,7 @@ class DroneServiceTest {
         DroneDTO droneDTO = new DroneDTO();
         droneDTO.setSerialNumber("SN002");
 
-        mockedDroneMapper.when(() -> DroneMapper.entityToDto(any(Drone.class))).thenReturn(droneDTO);
+        mockedDroneMapper.when(() -> DroneMapper.snapshotToDto(any(DroneSnapshot.class))).thenReturn(droneDTO);
         when(droneRepository.findBySerialNumber("SN002")).thenReturn(Optional.of(drone));
 
         Optional<DroneDTO> foundDroneDTO = droneService.findDroneBySerialNumber("SN002");
@@ -155,10 +403,39 @@ class DroneServiceTest {
         drone.setState(ApplicationConstants.DroneState.IDLE);
 
         when(droneRepository.findBySerialNumber("D001")).thenReturn(Optional.of(drone));
+        when(droneRepository.saveAndFlush(drone)).thenReturn(drone);
+        mockedDroneMapper.when(() -> DroneMapper.entityToDto(drone)).thenReturn(new DroneDTO());
         droneService.updateDroneState("D001", ApplicationConstants.DroneState.LOADING);
 
         assertEquals(ApplicationConstants.DroneState.LOADING, drone.getState());
-        verify(droneRepository, times(1)).save(drone);
+        verify(droneRepository, times(1)).saveAndFlush(drone);
+        ArgumentCaptor<DroneChangedEvent> event = ArgumentCaptor.forClass(DroneChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(DroneChangedEvent.ChangeType.STATE, event.getValue().getChangeType());
+        assertEquals(ApplicationConstants.DroneState.LOADING, event.getValue().getState());
+
+        AuditLog auditLog = captureRecordedAuditLogs().get(0);
+        assertEquals(AuditEventType.STATE_CHANGED, auditLog.getType());
+        assertEquals("D001", auditLog.getDroneSerialNumber());
+        assertEquals("IDLE", auditLog.getOldValue());
+        assertEquals("LOADING", auditLog.getNewValue());
+    }
+
+    @Test
+    void updateDroneState_WhenExpectedVersionIsStale_ThrowsPreconditionFailedException() {
+        Drone drone = new Drone();
+        drone.setSerialNumber("D001");
+        drone.setState(ApplicationConstants.DroneState.IDLE);
+        drone.setVersion(4L);
+
+        when(droneRepository.findBySerialNumber("D001")).thenReturn(Optional.of(drone));
+
+        assertThrows(PreconditionFailedException.class, () -> droneService.updateDroneState("D001",
+                ApplicationConstants.DroneState.LOADING, 3L));
+        assertEquals(ApplicationConstants.DroneState.IDLE, drone.getState());
+        verify(droneRepository, never()).saveAndFlush(any(Drone.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        verify(auditLogService, never()).recordAll(anyList());
     }
 
     /**
@@ -171,10 +448,25 @@ class DroneServiceTest {
         drone.setBatteryCapacity(50);
 
         when(droneRepository.findBySerialNumber("D001")).thenReturn(Optional.of(drone));
+        when(droneRepository.saveAndFlush(drone)).thenReturn(drone);
         droneService.updateDroneBatteryLevel("D001", 75);
 
         assertEquals(75, drone.getBatteryCapacity());
-        verify(droneRepository, times(1)).save(drone);
+        verify(droneRepository, times(1)).saveAndFlush(drone);
+    }
+
+    @Test
+    void updateDroneBatteryLevel_WhenExpectedVersionIsStale_ThrowsPreconditionFailedException() {
+        Drone drone = new Drone();
+        drone.setSerialNumber("D001");
+        drone.setBatteryCapacity(50);
+        drone.setVersion(7L);
+
+        when(droneRepository.findBySerialNumber("D001")).thenReturn(Optional.of(drone));
+
+        assertThrows(PreconditionFailedException.class, () -> droneService.updateDroneBatteryLevel("D001", 75, 6L));
+        assertEquals(50, drone.getBatteryCapacity());
+        verify(droneRepository, never()).saveAndFlush(any(Drone.class));
     }
 
     /**
@@ -182,21 +474,16 @@ class DroneServiceTest {
      */
     @Test
     void findAvailableDrones() {
-        Drone drone1 = new Drone();
-        drone1.setBatteryCapacity(30);
-        drone1.setState(ApplicationConstants.DroneState.IDLE);
-
-        Drone drone2 = new Drone();
-        drone2.setBatteryCapacity(20);
-        drone2.setState(ApplicationConstants.DroneState.LOADING);
+        DroneSummary summary = mock(DroneSummary.class);
 
         DroneDTO droneDTO1 = new DroneDTO();
         droneDTO1.setBatteryCapacity(30);
         droneDTO1.setState(ApplicationConstants.DroneState.IDLE);
 
-        List<Drone> drones = Arrays.asList(drone1, drone2);
-        when(droneRepository.findAll()).thenReturn(drones);
-        mockedDroneMapper.when(() -> DroneMapper.entityToDto(any(Drone.class))).thenReturn(droneDTO1);
+        when(droneRepository.findByStateAndBatteryCapacityGreaterThanEqual(eq(ApplicationConstants.DroneState.IDLE),
+                eq(ApplicationConstants.LOADING_BATTERY_THRESHOLD), any(Sort.class), eq(Limit.unlimited())))
+                .thenReturn(List.of(summary));
+        mockedDroneMapper.when(() -> DroneMapper.summaryToDto(summary)).thenReturn(droneDTO1);
 
         List<DroneDTO> availableDrones = droneService.findAvailableDrones();
 
@@ -205,36 +492,62 @@ class DroneServiceTest {
         assertEquals(ApplicationConstants.DroneState.IDLE, availableDrones.get(0).getState());
     }
 
+    @Test
+    void findAvailableDrones_WithLimit_PassesLimitAndBatteryOrderToRepository() {
+
+        droneService.findAvailableDrones(5, Sort.Direction.ASC);
+
+        verify(droneRepository).findByStateAndBatteryCapacityGreaterThanEqual(ApplicationConstants.DroneState.IDLE,
+                ApplicationConstants.LOADING_BATTERY_THRESHOLD,
+                Sort.by(Sort.Direction.ASC, "batteryCapacity").and(Sort.by("serialNumber")), Limit.of(5));
+    }
+
+    @Test
+    void findAvailableDrones_WithInvalidLimit_ThrowsValidationException() {
+
+        assertThrows(ValidationException.class, () -> droneService.findAvailableDrones(0, Sort.Direction.DESC));
+        verify(droneRepository, never()).findByStateAndBatteryCapacityGreaterThanEqual(any(), anyInt(), any(),
+                any());
+    }
+
+    @Test
+    void getDroneAuditLogs_ReadsAuditLogsOfTheDroneOnly() {
+        LocalDateTime from = LocalDateTime.of(2024, 4, 1, 10, 0);
+        CursorPageDTO<AuditLog> page = new CursorPageDTO<>(List.of(), null);
+        when(auditLogService.getAuditLogs(null, 10,
+                new AuditLogFilter(from, null, AuditEventType.STATE_CHANGED, "DR001"))).thenReturn(page);
+
+        assertEquals(page, droneService.getDroneAuditLogs("DR001", null, 10,
+                new AuditLogFilter(from, null, AuditEventType.STATE_CHANGED, null)));
+        verify(droneValidationService).checkDroneExists(any());
+    }
+
+    @Test
+    void getDroneAuditLogs_WhenFilterIsOnAnotherDrone_ThrowsValidationException() {
+
+        assertThrows(ValidationException.class, () -> droneService.getDroneAuditLogs("DR001", null, 10,
+                new AuditLogFilter(null, null, null, "DR002")));
+        verifyNoInteractions(auditLogService);
+    }
+
     @Test
     void getLoadedMedicationsForDrone_ReturnsCorrectAggregatedData() {
         String serialNumber = "SN001";
-        Medication medication1 = new Medication();
-        medication1.setId(1L);
-        medication1.setName("MedicationA");
-        medication1.setWeight(100);
-
-        Medication medication2 = new Medication();
-        medication2.setId(2L);
-        medication2.setName("MedicationB");
-        medication2.setWeight(150);
-
-        // Simulate two packs of MedicationA and one pack of MedicationB loaded on the drone
-        DroneMedication droneMedication1 = new DroneMedication();
-        droneMedication1.setMedication(medication1);
-        DroneMedication droneMedication2 = new DroneMedication();
-        droneMedication2.setMedication(medication1); // Second pack of MedicationA
-        DroneMedication droneMedication3 = new DroneMedication();
-        droneMedication3.setMedication(medication2);
-
-        when(droneMedicationRepository.findByDroneSerialNumber(serialNumber))
-                .thenReturn(Arrays.asList(droneMedication1, droneMedication2, droneMedication3));
+
+        // Simulate two packs of MedicationA and one pack of MedicationB aggregated by the repository
+        MedicationInfoDTO aggregatedA = new MedicationInfoDTO(1L, "MedicationA", 2L, 200L);
+        MedicationInfoDTO aggregatedB = new MedicationInfoDTO(2L, "MedicationB", 1L, 150L);
+
+        when(droneMedicationRepository.findLoadedMedicationInfo(serialNumber))
+                .thenReturn(Arrays.asList(aggregatedA, aggregatedB));
 
         List<MedicationInfoDTO> loadedMedications = droneService.getLoadedMedicationsForDrone(serialNumber);
 
         assertEquals(2, loadedMedications.size());
+        verify(droneMedicationRepository, never()).findByDroneSerialNumber(serialNumber);
 
         MedicationInfoDTO medicationInfoA = loadedMedications.stream()
-                .filter(m -> m.getMedicationId().equals(medication1.getId()))
+                .filter(m -> m.getMedicationId().equals(1L))
                 .findFirst()
                 .orElseThrow(AssertionError::new);
 
@@ -243,7 +556,7 @@ class DroneServiceTest {
         assertEquals(200, medicationInfoA.getTotalWeight());
 
         MedicationInfoDTO medicationInfoB = loadedMedications.stream()
-                .filter(m -> m.getMedicationId().equals(medication2.getId()))
+                .filter(m -> m.getMedicationId().equals(2L))
                 .findFirst()
                 .orElseThrow(AssertionError::new);
 
@@ -251,4 +564,11 @@ class DroneServiceTest {
         assertEquals(1, medicationInfoB.getNumberOfPacks());
         assertEquals(150, medicationInfoB.getTotalWeight());
     }
+
+    @SuppressWarnings("unchecked")
+    private List<AuditLog> captureRecordedAuditLogs() {
+        ArgumentCaptor<List<AuditLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(auditLogService).recordAll(captor.capture());
+        return captor.getValue();
+    }
 }
\ No newline at end of file
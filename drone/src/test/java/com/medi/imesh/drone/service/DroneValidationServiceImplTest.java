@@ -1,13 +1,12 @@
 package com.medi.imesh.drone.service;
 
+import com.medi.imesh.drone.cache.DroneSnapshot;
+import com.medi.imesh.drone.cache.FleetStateCache;
 import com.medi.imesh.drone.common.ApplicationConstants;
 import com.medi.imesh.drone.dto.DroneDTO;
 import com.medi.imesh.drone.dto.MedicationDTO;
 import com.medi.imesh.drone.exception.ValidationException;
 import com.medi.imesh.drone.model.Drone;
-import com.medi.imesh.drone.model.DroneMedication;
-import com.medi.imesh.drone.model.Medication;
-import com.medi.imesh.drone.repository.DroneMedicationRepository;
 import com.medi.imesh.drone.repository.DroneRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,14 +15,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -37,7 +38,7 @@ public class DroneValidationServiceImplTest {
     private MedicationService medicationService;
 
     @Mock
-    private DroneMedicationRepository droneMedicationRepository;
+    private FleetStateCache fleetStateCache;
 
     @InjectMocks
     private DroneValidationServiceImpl droneValidationService;
@@ -50,6 +51,12 @@ public class DroneValidationServiceImplTest {
     @BeforeEach
     void setUp() {
 
+        // Resolve every cache lookup through the repository so that each test observes the stubbed drone state.
+        lenient().when(fleetStateCache.find(anyString())).thenAnswer(invocation ->
+                droneRepository.findBySerialNumber(invocation.getArgument(0)).map(DroneSnapshot::of));
+        lenient().when(fleetStateCache.exists(anyString())).thenAnswer(invocation ->
+                droneRepository.findBySerialNumber(invocation.getArgument(0)).isPresent());
+
         droneDTO = new DroneDTO();
         droneDTO.setSerialNumber("DR001");
 
@@ -60,6 +67,18 @@ public class DroneValidationServiceImplTest {
         drone.setState(ApplicationConstants.DroneState.IDLE);
     }
 
+    private DroneDTO idleDrone(String serialNumber) {
+
+        DroneDTO idleDroneDTO = new DroneDTO();
+        idleDroneDTO.setSerialNumber(serialNumber);
+        idleDroneDTO.setState(ApplicationConstants.DroneState.IDLE);
+        return idleDroneDTO;
+    }
+
+    private DroneCommandContext context(String droneSerialNumber) {
+        return droneValidationService.createContext(droneSerialNumber);
+    }
+
     private Drone setupDroneWithState(ApplicationConstants.DroneState state) {
 
         Drone drone = new Drone();
@@ -109,28 +128,86 @@ public class DroneValidationServiceImplTest {
 
         Drone drone = new Drone();
         drone.setWeightLimit(100);
+        drone.setLoadedPackCount(1);
+        drone.setLoadedWeight(50);
 
         MedicationDTO medicationDTO = new MedicationDTO();
         medicationDTO.setWeight(101);
 
-        Medication mockMedication = new Medication();
-        mockMedication.setWeight(50);
-
-        DroneMedication droneMedication = new DroneMedication();
-        droneMedication.setMedication(mockMedication);
-
         when(droneRepository.findBySerialNumber(serialNumber)).thenReturn(Optional.of(drone));
         when(medicationService.findMedicationById(medicationId)).thenReturn(Optional.of(medicationDTO));
-        when(droneMedicationRepository.findByDroneSerialNumber(serialNumber))
-                .thenReturn(Arrays.asList(droneMedication));
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneLoadCapacity(serialNumber, medicationId),
+                () -> droneValidationService.validateDroneLoadCapacity(
+                        droneValidationService.createContext(serialNumber, medicationId)),
                 "Expected validateDroneLoadCapacity to throw ValidationException, but it didn't");
 
         verify(droneRepository).findBySerialNumber(serialNumber);
         verify(medicationService).findMedicationById(medicationId);
-        verify(droneMedicationRepository).findByDroneSerialNumber(serialNumber);
+    }
+
+    @Test
+    void validateBulkDroneRegistration_WhenAllDronesAreNew_ChecksUniquenessWithOneQuery() {
+
+        List<DroneDTO> droneDTOs = List.of(idleDrone("DR101"), idleDrone("DR102"), idleDrone("DR103"));
+        when(droneRepository.findExistingSerialNumbers(anyCollection())).thenReturn(List.of());
+
+        assertDoesNotThrow(() -> droneValidationService.validateBulkDroneRegistration(droneDTOs));
+        verify(droneRepository, times(1)).findExistingSerialNumbers(anyCollection());
+        verify(droneRepository, never()).findBySerialNumber(anyString());
+    }
+
+    @Test
+    void validateBulkDroneRegistration_WhenSerialNumberIsRegistered_ThrowsException() {
+
+        List<DroneDTO> droneDTOs = List.of(idleDrone("DR001"), idleDrone("DR101"));
+        when(droneRepository.findExistingSerialNumbers(anyCollection())).thenReturn(List.of("DR001"));
+
+        assertThrows(ValidationException.class, () -> droneValidationService.validateBulkDroneRegistration(droneDTOs));
+    }
+
+    @Test
+    void validateBulkDroneRegistration_WhenSerialNumberIsRepeated_ThrowsException() {
+
+        List<DroneDTO> droneDTOs = List.of(idleDrone("DR101"), idleDrone("DR101"));
+
+        assertThrows(ValidationException.class, () -> droneValidationService.validateBulkDroneRegistration(droneDTOs));
+        verify(droneRepository, never()).findExistingSerialNumbers(anyCollection());
+    }
+
+    @Test
+    void validateDroneLoadCapacity_WhenCombinedWeightExceedsWeightLimit_ThrowsException() {
+
+        drone.setWeightLimit(100);
+        drone.setLoadedWeight(50);
+        when(droneRepository.findBySerialNumber(validSerialNumber)).thenReturn(Optional.of(drone));
+
+        DroneCommandContext context = context(validSerialNumber);
+        assertDoesNotThrow(() -> droneValidationService.validateDroneLoadCapacity(context, 50));
+        assertThrows(ValidationException.class,
+                () -> droneValidationService.validateDroneLoadCapacity(context, 51));
+    }
+
+    @Test
+    void createContext_WhenSharedByAllLoadGuards_FetchesDroneAndMedicationOnce() {
+
+        drone.setState(ApplicationConstants.DroneState.LOADING);
+        drone.setLoadedPackCount(2);
+        drone.setLoadedWeight(200);
+        MedicationDTO medicationDTO = new MedicationDTO();
+        medicationDTO.setWeight(100);
+
+        when(droneRepository.findBySerialNumber(validSerialNumber)).thenReturn(Optional.of(drone));
+        when(medicationService.findMedicationById(1L)).thenReturn(Optional.of(medicationDTO));
+
+        DroneCommandContext context = droneValidationService.createContext(validSerialNumber, 1L);
+        assertDoesNotThrow(() -> droneValidationService.checkIfDroneIsLoadable(context));
+        assertDoesNotThrow(() -> droneValidationService.validateDroneLoadCapacity(context));
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context,
+                ApplicationConstants.DroneState.LOADED));
+
+        verify(droneRepository, times(1)).findBySerialNumber(validSerialNumber);
+        verify(medicationService, times(1)).findMedicationById(1L);
     }
 
     @Test
@@ -138,7 +215,7 @@ public class DroneValidationServiceImplTest {
 
         when(droneRepository.findBySerialNumber(anyString())).thenReturn(Optional.empty());
 
-        assertThrows(ValidationException.class, () -> droneValidationService.checkIfDroneIsLoadable("SN001"),
+        assertThrows(ValidationException.class, () -> droneValidationService.checkIfDroneIsLoadable(context("SN001")),
                 "Expected checkIfDroneIsLoadable to throw ValidationException when drone does not exist, " +
                         "but it didn't");
     }
@@ -150,7 +227,7 @@ public class DroneValidationServiceImplTest {
         drone.setState(ApplicationConstants.DroneState.IDLE); // Not LOADING
         when(droneRepository.findBySerialNumber("SN001")).thenReturn(Optional.of(drone));
 
-        assertThrows(ValidationException.class, () -> droneValidationService.checkIfDroneIsLoadable("SN001"),
+        assertThrows(ValidationException.class, () -> droneValidationService.checkIfDroneIsLoadable(context("SN001")),
                 "Expected checkIfDroneIsLoadable to throw ValidationException when drone not in LOADING " +
                         "state, but it didn't");
     }
@@ -163,7 +240,7 @@ public class DroneValidationServiceImplTest {
         drone.setBatteryCapacity(ApplicationConstants.LOADING_BATTERY_THRESHOLD - 1); // Below threshold
         when(droneRepository.findBySerialNumber("SN001")).thenReturn(Optional.of(drone));
 
-        assertThrows(ValidationException.class, () -> droneValidationService.checkIfDroneIsLoadable("SN001"),
+        assertThrows(ValidationException.class, () -> droneValidationService.checkIfDroneIsLoadable(context("SN001")),
                 "Expected checkIfDroneIsLoadable to throw ValidationException when battery below threshold, " +
                         "but it didn't");
     }
@@ -176,7 +253,7 @@ public class DroneValidationServiceImplTest {
         drone.setBatteryCapacity(ApplicationConstants.LOADING_BATTERY_THRESHOLD + 10); // Above threshold
         when(droneRepository.findBySerialNumber("SN001")).thenReturn(Optional.of(drone));
 
-        assertDoesNotThrow(() -> droneValidationService.checkIfDroneIsLoadable("SN001"),
+        assertDoesNotThrow(() -> droneValidationService.checkIfDroneIsLoadable(context("SN001")),
                 "Expected checkIfDroneIsLoadable not to throw any exception when conditions are met, " +
                         "but it did");
     }
@@ -187,7 +264,7 @@ public class DroneValidationServiceImplTest {
         when(droneRepository.findBySerialNumber(invalidSerialNumber)).thenReturn(Optional.empty());
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange(invalidSerialNumber,
+                () -> droneValidationService.validateDroneStateChange(context(invalidSerialNumber),
                         ApplicationConstants.DroneState.LOADING), "Expected ValidationException when drone " +
                         "does not exist.");
     }
@@ -196,10 +273,9 @@ public class DroneValidationServiceImplTest {
     public void validateDroneStateChange_ToLoaded_WhenMedicationWeightIsZero_ThrowsValidationException() {
 
         when(droneRepository.findBySerialNumber(validSerialNumber)).thenReturn(Optional.of(drone));
-        when(droneMedicationRepository.findByDroneSerialNumber(validSerialNumber)).thenReturn(Arrays.asList());
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange(validSerialNumber,
+                () -> droneValidationService.validateDroneStateChange(context(validSerialNumber),
                         ApplicationConstants.DroneState.LOADED), "Expected ValidationException when trying " +
                         "to change state to LOADED without medications.");
     }
@@ -208,19 +284,14 @@ public class DroneValidationServiceImplTest {
     public void
     validateDroneStateChange_FromDeliveringToDelivered_WhenMedicationsAreStillLoaded_ThrowsValidationException() {
 
-        Medication medication = new Medication();
-        DroneMedication droneMedication = new DroneMedication();
-        droneMedication.setDrone(drone);
-        droneMedication.setMedication(medication);
-
         drone.setState(ApplicationConstants.DroneState.DELIVERING);
 
         when(droneRepository.findBySerialNumber(validSerialNumber)).thenReturn(Optional.of(drone));
-        when(droneMedicationRepository.findByDroneSerialNumber(validSerialNumber)).thenReturn(Arrays.asList(
-                droneMedication));
+        drone.setLoadedPackCount(1);
+        drone.setLoadedWeight(100);
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange(validSerialNumber,
+                () -> droneValidationService.validateDroneStateChange(context(validSerialNumber),
                         ApplicationConstants.DroneState.DELIVERED), "Expected ValidationException when " +
                         "trying to change state to DELIVERED while medications are still loaded.");
     }
@@ -232,7 +303,7 @@ public class DroneValidationServiceImplTest {
 
         when(droneRepository.findBySerialNumber(validSerialNumber)).thenReturn(Optional.of(drone));
 
-        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(validSerialNumber,
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context(validSerialNumber),
                 ApplicationConstants.DroneState.DELIVERING), "State change from LOADED to " +
                 "DELIVERING should not throw an exception if conditions are met.");
     }
@@ -241,10 +312,9 @@ public class DroneValidationServiceImplTest {
     void validateDroneStateChange_ToLoaded_WithoutMedication_ThrowsException() {
 
         Drone drone = setupDroneWithState(ApplicationConstants.DroneState.LOADING);
-        when(droneMedicationRepository.findByDroneSerialNumber("DRONE123")).thenReturn(Collections.emptyList());
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange("DRONE123",
+                () -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                         ApplicationConstants.DroneState.LOADED), "Drone cannot transition to LOADED state " +
                         "without medications.");
     }
@@ -255,7 +325,7 @@ public class DroneValidationServiceImplTest {
         setupDroneWithState(ApplicationConstants.DroneState.IDLE);
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange("DRONE123",
+                () -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                         ApplicationConstants.DroneState.DELIVERING), "Drone must be in LOADED state to " +
                         "transition to DELIVERING.");
     }
@@ -266,7 +336,7 @@ public class DroneValidationServiceImplTest {
         setupDroneWithState(ApplicationConstants.DroneState.LOADING);
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange("DRONE123",
+                () -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                         ApplicationConstants.DroneState.DELIVERED), "Drone must be in DELIVERING state to " +
                         "transition to DELIVERED.");
     }
@@ -277,7 +347,7 @@ public class DroneValidationServiceImplTest {
         setupDroneWithState(ApplicationConstants.DroneState.DELIVERING);
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange("DRONE123",
+                () -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                         ApplicationConstants.DroneState.RETURNING), "Drone must be in DELIVERED state to " +
                         "transition to RETURNING.");
     }
@@ -288,7 +358,7 @@ public class DroneValidationServiceImplTest {
         setupDroneWithState(ApplicationConstants.DroneState.DELIVERING);
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange("DRONE123",
+                () -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                         ApplicationConstants.DroneState.IDLE), "Drone can only transition to IDLE from " +
                         "LOADING, LOADED, or RETURNING states.");
     }
@@ -297,15 +367,15 @@ public class DroneValidationServiceImplTest {
     void validateDroneStateChange_ToIdle_FromValidStates_DoesNotThrowException() {
 
         Drone drone = setupDroneWithState(ApplicationConstants.DroneState.LOADING);
-        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange("DRONE123",
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                 ApplicationConstants.DroneState.IDLE));
 
         drone.setState(ApplicationConstants.DroneState.LOADED);
-        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange("DRONE123",
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                 ApplicationConstants.DroneState.IDLE));
 
         drone.setState(ApplicationConstants.DroneState.RETURNING);
-        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange("DRONE123",
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                 ApplicationConstants.DroneState.IDLE));
     }
 
@@ -313,10 +383,10 @@ public class DroneValidationServiceImplTest {
     void validateDroneStateChange_ToLoaded_WithMedication_DoesNotThrowException() {
 
         Drone drone = setupDroneWithState(ApplicationConstants.DroneState.LOADING);
-        DroneMedication droneMedication = new DroneMedication();
-        when(droneMedicationRepository.findByDroneSerialNumber("DRONE123")).thenReturn(List.of(droneMedication));
+        drone.setLoadedPackCount(1);
+        drone.setLoadedWeight(100);
 
-        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange("DRONE123",
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                 ApplicationConstants.DroneState.LOADED), "Drone can transition to LOADED state with " +
                 "medications.");
     }
@@ -327,7 +397,7 @@ public class DroneValidationServiceImplTest {
         when(droneRepository.findBySerialNumber("INVALID")).thenReturn(Optional.empty());
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange("INVALID",
+                () -> droneValidationService.validateDroneStateChange(context("INVALID"),
                         ApplicationConstants.DroneState.IDLE), "Validation should fail if the drone does " +
                         "not exist.");
     }
@@ -337,7 +407,7 @@ public class DroneValidationServiceImplTest {
 
         Drone drone = setupDroneWithState(ApplicationConstants.DroneState.LOADED);
 
-        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange("DRONE123",
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                 ApplicationConstants.DroneState.DELIVERING), "Transition from LOADED to DELIVERING " +
                 "should be valid.");
     }
@@ -346,9 +416,8 @@ public class DroneValidationServiceImplTest {
     void validateTransitionToDelivered_FromDelivering_DoesNotThrowException() {
 
         Drone drone = setupDroneWithState(ApplicationConstants.DroneState.DELIVERING);
-        when(droneMedicationRepository.findByDroneSerialNumber("DRONE123")).thenReturn(Collections.emptyList());
 
-        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange("DRONE123",
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                 ApplicationConstants.DroneState.DELIVERED), "Transition from DELIVERING to " +
                 "DELIVERED should be valid when no medications are loaded.");
     }
@@ -357,11 +426,11 @@ public class DroneValidationServiceImplTest {
     void validateTransitionToDelivered_FromDelivering_WithMedicationsLoaded_ThrowsException() {
 
         Drone drone = setupDroneWithState(ApplicationConstants.DroneState.DELIVERING);
-        DroneMedication droneMedication = new DroneMedication();
-        when(droneMedicationRepository.findByDroneSerialNumber("DRONE123")).thenReturn(List.of(droneMedication));
+        drone.setLoadedPackCount(1);
+        drone.setLoadedWeight(100);
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.validateDroneStateChange("DRONE123",
+                () -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                         ApplicationConstants.DroneState.DELIVERED), "Should throw ValidationException when " +
                         "attempting to transition to DELIVERED with medications still loaded.");
     }
@@ -371,7 +440,7 @@ public class DroneValidationServiceImplTest {
 
         Drone drone = setupDroneWithState(ApplicationConstants.DroneState.DELIVERED);
 
-        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange("DRONE123",
+        assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                 ApplicationConstants.DroneState.RETURNING), "Transition from DELIVERED to RETURNING " +
                 "should be valid.");
     }
@@ -387,7 +456,7 @@ public class DroneValidationServiceImplTest {
         for (ApplicationConstants.DroneState validPreviousState : validPreviousStates) {
             Drone drone = setupDroneWithState(validPreviousState);
 
-            assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange("DRONE123",
+            assertDoesNotThrow(() -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                     ApplicationConstants.DroneState.IDLE), "Transition to IDLE should be valid from " +
                     validPreviousState);
         }
@@ -404,7 +473,7 @@ public class DroneValidationServiceImplTest {
             Drone drone = setupDroneWithState(invalidPreviousState);
 
             assertThrows(ValidationException.class,
-                    () -> droneValidationService.validateDroneStateChange("DRONE123",
+                    () -> droneValidationService.validateDroneStateChange(context("DRONE123"),
                             ApplicationConstants.DroneState.IDLE), "Transition to IDLE should be invalid from "
                             + invalidPreviousState);
         }
@@ -416,7 +485,7 @@ public class DroneValidationServiceImplTest {
         when(droneRepository.findBySerialNumber("NON_EXISTENT_SERIAL")).thenReturn(Optional.empty());
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.checkIfDroneIsDeletable("NON_EXISTENT_SERIAL"),
+                () -> droneValidationService.checkIfDroneIsDeletable(context("NON_EXISTENT_SERIAL")),
                 "Expected ValidationException when drone does not exist.");
     }
 
@@ -428,7 +497,7 @@ public class DroneValidationServiceImplTest {
         when(droneRepository.findBySerialNumber("DRONE123")).thenReturn(Optional.of(notIdleDrone));
 
         assertThrows(ValidationException.class,
-                () -> droneValidationService.checkIfDroneIsDeletable("DRONE123"),
+                () -> droneValidationService.checkIfDroneIsDeletable(context("DRONE123")),
                 "Expected ValidationException when drone not in IDLE state.");
     }
 
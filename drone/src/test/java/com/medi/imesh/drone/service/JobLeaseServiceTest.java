@@ -0,0 +1,143 @@
+package com.medi.imesh.drone.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs two instances of the lease service against the same database, as two application instances would, with a
+ * clock shared by both. Leases are committed in their own transactions, so the tests run without a test transaction
+ * and use their own job names.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobLeaseServiceTest {
+
+    private static final long START = 1_711_965_600_000L;
+    private static final Duration LEASE = Duration.ofMinutes(10);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Clock clock = mock(Clock.class);
+    private JobLeaseService first;
+    private JobLeaseService second;
+
+    @BeforeEach
+    void setUp() {
+        when(clock.millis()).thenReturn(START);
+        first = new JobLeaseService(jdbcTemplate, transactionManager, clock, "first");
+        second = new JobLeaseService(jdbcTemplate, transactionManager, clock, "second");
+    }
+
+    @Test
+    void tryAcquire_WhenAnotherInstanceHoldsTheLease_IsRejectedUntilTheLeaseExpires() {
+
+        assertTrue(first.tryAcquire("acquire-job", LEASE));
+        assertFalse(second.tryAcquire("acquire-job", LEASE));
+        assertTrue(first.tryAcquire("acquire-job", LEASE));
+
+        when(clock.millis()).thenReturn(START + LEASE.toMillis());
+        assertTrue(second.tryAcquire("acquire-job", LEASE));
+        assertFalse(first.tryAcquire("acquire-job", LEASE));
+    }
+
+    @Test
+    void runIfLeased_KeepsTheLeaseForTheMinimumTimeAfterTheJob() {
+
+        assertEquals(Optional.of(3), first.runIfLeased("run-job", LEASE, Duration.ofMinutes(1), () -> 3));
+        assertEquals(Optional.empty(), second.runIfLeased("run-job", LEASE, Duration.ofMinutes(1), () -> 4));
+
+        when(clock.millis()).thenReturn(START + Duration.ofMinutes(1).toMillis());
+        assertEquals(Optional.of(4), second.runIfLeased("run-job", LEASE, Duration.ofMinutes(1), () -> 4));
+    }
+
+    @Test
+    void runIfLeased_WhenTheJobFails_ReleasesTheLease() {
+
+        try {
+            first.runIfLeased("failing-job", LEASE, Duration.ZERO, () -> {
+                throw new IllegalStateException("Job failed");
+            });
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        assertTrue(second.tryAcquire("failing-job", LEASE));
+    }
+
+    @Test
+    void acquirePartitions_WhenAnInstanceJoins_SplitsThePartitionsEvenly() {
+
+        assertEquals(Set.of(0, 1, 2, 3), first.acquirePartitions("partitioned-job", 4, LEASE));
+        // Every partition is held, the new instance waits for the first one to release its extra partitions
+        assertEquals(Set.of(), second.acquirePartitions("partitioned-job", 4, LEASE));
+
+        Set<Integer> kept = first.acquirePartitions("partitioned-job", 4, LEASE);
+        Set<Integer> taken = second.acquirePartitions("partitioned-job", 4, LEASE);
+
+        assertEquals(2, kept.size());
+        assertEquals(2, taken.size());
+        Set<Integer> all = new HashSet<>(kept);
+        all.addAll(taken);
+        assertEquals(Set.of(0, 1, 2, 3), all);
+        assertEquals(2, first.getOwnedLeaseCount("partitioned-job"));
+    }
+
+    @Test
+    void acquirePartitions_IgnoresTheLeasesOfJobsWithTheSameNamePrefix() {
+
+        JobLeaseService third = new JobLeaseService(jdbcTemplate, transactionManager, clock, "third");
+        assertEquals(Set.of(0, 1), third.acquirePartitions("prefix_job_2", 2, LEASE));
+
+        // The third instance takes part in another job only, so the first one gets all the partitions
+        assertEquals(Set.of(0, 1), first.acquirePartitions("prefix_job", 2, LEASE));
+    }
+
+    @Test
+    void acquirePartitions_WithALongInstanceId_RecordsTheMembership() {
+
+        String instanceId = "12345@" + "drone-api-7c9f8d6b5-x2x4z.".repeat(8) + "svc.cluster.local";
+        JobLeaseService instance = new JobLeaseService(jdbcTemplate, transactionManager, clock, instanceId);
+
+        assertEquals(Set.of(0, 1), instance.acquirePartitions("long-instance-job", 2, LEASE));
+        assertEquals(Set.of(), second.acquirePartitions("long-instance-job", 2, LEASE));
+        assertEquals(Set.of(0), instance.acquirePartitions("long-instance-job", 2, LEASE));
+    }
+
+    @Test
+    void bindTo_ReportsAttemptsAndOwnership() {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        first.bindTo(registry);
+
+        first.tryAcquire("metered-job", LEASE);
+        second.tryAcquire("metered-job", LEASE);
+        first.tryAcquire("metered-job", LEASE);
+
+        assertEquals(2, registry.get("drone.leases.attempts").tag("result", "acquired").functionCounter().count());
+        assertEquals(1, registry.get("drone.leases.owned").tag("job", "metered-job").gauge().value());
+        assertEquals(2, registry.get("drone.leases.acquire").functionTimer().count());
+    }
+}
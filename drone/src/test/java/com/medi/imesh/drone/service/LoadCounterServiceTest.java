@@ -0,0 +1,144 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.cache.FleetStateCache;
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.MedicationInfoDTO;
+import com.medi.imesh.drone.repository.DroneMedicationRepository;
+import com.medi.imesh.drone.repository.DroneRepository;
+import com.medi.imesh.drone.repository.MedicationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LoadCounterServiceTest {
+
+    @Mock
+    private DroneRepository droneRepository;
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @Mock
+    private DroneMedicationRepository droneMedicationRepository;
+
+    @Mock
+    private FleetStateCache fleetStateCache;
+
+    @Mock
+    private JobLeaseService jobLeaseService;
+
+    @InjectMocks
+    private LoadCounterService loadCounterService;
+
+    @Test
+    void tryRecordLoad_WhenDroneTakesTheLoad_IncrementsDroneAndMedicationCounters() {
+
+        when(droneRepository.addToLoadIfFits("DR001", 200, 2, ApplicationConstants.DroneState.LOADING,
+                ApplicationConstants.LOADING_BATTERY_THRESHOLD)).thenReturn(1);
+
+        assertTrue(loadCounterService.tryRecordLoad("DR001", 1L, 200, 2));
+
+        verify(medicationRepository).addToInFlightCount(1L, 2);
+        verify(fleetStateCache).evict("DR001");
+    }
+
+    @Test
+    void tryRecordLoad_WhenDroneRejectsTheLoad_ChangesNothing() {
+
+        when(droneRepository.addToLoadIfFits("DR001", 200, 2, ApplicationConstants.DroneState.LOADING,
+                ApplicationConstants.LOADING_BATTERY_THRESHOLD)).thenReturn(0);
+
+        assertFalse(loadCounterService.tryRecordLoad("DR001", 1L, 200, 2));
+
+        verify(medicationRepository, never()).addToInFlightCount(anyLong(), anyLong());
+        verify(fleetStateCache, never()).evict("DR001");
+    }
+
+    @Test
+    void tryRecordLoad_WithSeveralMedications_UpdatesDroneCountersOnce() {
+
+        Map<Long, Integer> packsByMedicationId = new LinkedHashMap<>();
+        packsByMedicationId.put(1L, 3);
+        packsByMedicationId.put(2L, 1);
+
+        when(droneRepository.addToLoadIfFits("DR001", 450, 4, ApplicationConstants.DroneState.LOADING,
+                ApplicationConstants.LOADING_BATTERY_THRESHOLD)).thenReturn(1);
+
+        assertTrue(loadCounterService.tryRecordLoad("DR001", packsByMedicationId, 450));
+
+        verify(medicationRepository).addToInFlightCount(1L, 3);
+        verify(medicationRepository).addToInFlightCount(2L, 1);
+        verify(fleetStateCache).evict("DR001");
+    }
+
+    @Test
+    void recordUnloadAll_DecrementsEachMedicationAndClearsDrone() {
+
+        MedicationInfoDTO aspirin = new MedicationInfoDTO(1L, "Aspirin", 3, 300);
+        MedicationInfoDTO ibuprofen = new MedicationInfoDTO(2L, "Ibuprofen", 1, 150);
+        when(droneMedicationRepository.findLoadedMedicationInfo("DR001")).thenReturn(List.of(aspirin, ibuprofen));
+
+        loadCounterService.recordUnloadAll("DR001");
+
+        verify(medicationRepository).addToInFlightCount(1L, -3);
+        verify(medicationRepository).addToInFlightCount(2L, -1);
+        verify(droneRepository).clearLoad("DR001");
+        verify(fleetStateCache).evict("DR001");
+    }
+
+    @Test
+    void reconcile_WhenCountersDrifted_ClearsCacheAndReturnsRepairedCount() {
+
+        runWithLease();
+        when(droneRepository.reconcileLoadCounters()).thenReturn(2);
+        when(medicationRepository.reconcileInFlightCounts()).thenReturn(1);
+
+        assertEquals(3, loadCounterService.reconcile());
+        verify(fleetStateCache).clear();
+    }
+
+    @Test
+    void reconcile_WhenCountersMatch_KeepsCache() {
+
+        runWithLease();
+        when(droneRepository.reconcileLoadCounters()).thenReturn(0);
+        when(medicationRepository.reconcileInFlightCounts()).thenReturn(0);
+
+        assertEquals(0, loadCounterService.reconcile());
+        verify(fleetStateCache, never()).clear();
+    }
+
+    @Test
+    void reconcile_WhenAnotherInstanceHoldsTheLease_RepairsNothing() {
+
+        when(jobLeaseService.runIfLeased(anyString(), any(), any(), any())).thenReturn(Optional.empty());
+
+        assertEquals(0, loadCounterService.reconcile());
+        verify(droneRepository, never()).reconcileLoadCounters();
+        verify(medicationRepository, never()).reconcileInFlightCounts();
+    }
+
+    private void runWithLease() {
+        when(jobLeaseService.runIfLeased(anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> Optional.ofNullable(invocation.<Supplier<?>>getArgument(3).get()));
+    }
+}
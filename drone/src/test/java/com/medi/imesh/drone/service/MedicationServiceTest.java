@@ -1,25 +1,40 @@
 package com.medi.imesh.drone.service;
 
+import com.medi.imesh.drone.cache.MedicationCache;
+import com.medi.imesh.drone.dto.CursorPageDTO;
 import com.medi.imesh.drone.dto.MedicationDTO;
+import com.medi.imesh.drone.exception.ValidationException;
 import com.medi.imesh.drone.mapper.MedicationMapper;
 import com.medi.imesh.drone.model.Medication;
 import com.medi.imesh.drone.repository.MedicationRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,12 +46,20 @@ class MedicationServiceTest {
     @Mock
     private MedicationValidationService medicationValidationService;
 
-    @InjectMocks
+    @Mock
+    private EntityManager entityManager;
+
+    private MedicationCache medicationCache;
+
     private MedicationService medicationService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        medicationCache = new MedicationCache();
+        medicationService = new MedicationService(medicationValidationService, medicationRepository,
+                medicationCache, false);
+        ReflectionTestUtils.setField(medicationService, "entityManager", entityManager);
     }
 
     /**
@@ -69,18 +92,106 @@ class MedicationServiceTest {
         assertEquals(1L, foundMedication.get().getId());
     }
 
+    @Test
+    void findMedicationById_WhenCalledTwice_ReadsDatabaseOnce() {
+        Medication medication = new Medication();
+        medication.setId(1L);
+        medication.setName("Aspirin");
+        when(medicationRepository.findById(1L)).thenReturn(Optional.of(medication));
+
+        medicationService.findMedicationById(1L);
+        Optional<MedicationDTO> foundMedication = medicationService.findMedicationById(1L);
+
+        assertEquals("Aspirin", foundMedication.get().getName());
+        assertEquals(1, medicationCache.getHitCount());
+        assertEquals(1, medicationCache.getMissCount());
+        verify(medicationRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void deleteMedication_EvictsCachedMedication() {
+        Medication medication = new Medication();
+        medication.setId(1L);
+        when(medicationRepository.findById(1L)).thenReturn(Optional.of(medication));
+        when(medicationRepository.existsById(1L)).thenReturn(true);
+        medicationService.findMedicationById(1L);
+
+        medicationService.deleteMedication(1L);
+        when(medicationRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertFalse(medicationService.findMedicationById(1L).isPresent());
+    }
+
+    @Test
+    void preloadMedicationCache_WhenEnabled_LoadsCatalogIntoCache() {
+        Medication med1 = new Medication();
+        med1.setId(1L);
+        Medication med2 = new Medication();
+        med2.setId(2L);
+        when(medicationRepository.findByIdGreaterThan(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(med1, med2)));
+        medicationService = new MedicationService(medicationValidationService, medicationRepository,
+                medicationCache, true);
+
+        medicationService.preloadMedicationCache();
+        medicationService.findMedicationById(2L);
+
+        assertEquals(2, medicationCache.size());
+        assertEquals(1, medicationCache.getHitCount());
+        verify(medicationRepository, never()).findById(any());
+    }
+
     /**
-     * Test retrieving all medications.
+     * Test retrieving medications page by page.
      */
     @Test
-    void findAllMedications() {
+    void findMedications_ReturnsPagesUsingCursor() {
         Medication med1 = new Medication();
+        med1.setId(1L);
         Medication med2 = new Medication();
-        when(medicationRepository.findAll()).thenReturn(Arrays.asList(med1, med2));
+        med2.setId(2L);
+        Medication med3 = new Medication();
+        med3.setId(3L);
+        Pageable pageable = PageRequest.of(0, 2, Sort.by("id"));
+        when(medicationRepository.findByIdGreaterThan(0L, pageable))
+                .thenReturn(new SliceImpl<>(Arrays.asList(med1, med2), pageable, true));
+        when(medicationRepository.findByIdGreaterThan(2L, pageable))
+                .thenReturn(new SliceImpl<>(List.of(med3), pageable, false));
+
+        CursorPageDTO<MedicationDTO> firstPage = medicationService.findMedications(null, 2);
+        assertEquals(2, firstPage.getItems().size());
+        assertNotNull(firstPage.getNextCursor());
+
+        CursorPageDTO<MedicationDTO> lastPage = medicationService.findMedications(firstPage.getNextCursor(), 2);
+        assertEquals(1, lastPage.getItems().size());
+        assertEquals(3L, lastPage.getItems().get(0).getId());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void findMedications_WithCursorOfAnotherResource_ThrowsValidationException() {
+        String droneCursor = "ZHJvbmVzOkRSMDAx"; // cursor issued for the drones resource
+
+        assertThrows(ValidationException.class, () -> medicationService.findMedications(droneCursor, 2));
+        verify(medicationRepository, never()).findByIdGreaterThan(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void streamAllMedications_MapsAndDetachesEachMedication() {
+        Medication med1 = new Medication();
+        med1.setId(1L);
+        Medication med2 = new Medication();
+        med2.setId(2L);
+        when(medicationRepository.streamAllByOrderById()).thenReturn(Stream.of(med1, med2));
+
+        List<MedicationDTO> streamed = new ArrayList<>();
+        medicationService.streamAllMedications(streamed::add);
 
-        List<MedicationDTO> medications = medicationService.findAllMedications();
-        assertNotNull(medications);
-        assertEquals(2, medications.size());
+        assertEquals(2, streamed.size());
+        assertEquals(1L, streamed.get(0).getId());
+        assertEquals(2L, streamed.get(1).getId());
+        verify(entityManager).detach(med1);
+        verify(entityManager).detach(med2);
     }
 
     @Test
@@ -1,9 +1,7 @@
 package com.medi.imesh.drone.service;
 
 import com.medi.imesh.drone.exception.ValidationException;
-import com.medi.imesh.drone.model.DroneMedication;
 import com.medi.imesh.drone.model.Medication;
-import com.medi.imesh.drone.repository.DroneMedicationRepository;
 import com.medi.imesh.drone.repository.MedicationRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,7 +9,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -23,9 +20,6 @@ class MedicationValidationServiceImplTest {
     @Mock
     private MedicationRepository medicationRepository;
 
-    @Mock
-    private DroneMedicationRepository droneMedicationRepository;
-
     @InjectMocks
     private MedicationValidationServiceImpl medicationValidationService;
 
@@ -44,9 +38,8 @@ class MedicationValidationServiceImplTest {
         long medicationId = 2L;
         Medication medication = new Medication();
         medication.setId(medicationId);
+        medication.setInFlightCount(1);
         when(medicationRepository.findById(medicationId)).thenReturn(Optional.of(medication));
-        when(droneMedicationRepository.findByMedicationId(medicationId))
-                .thenReturn(Collections.singletonList(new DroneMedication()));
 
         assertThrows(ValidationException.class, () ->
                         medicationValidationService.checkIfMedicationIsDeletable(medicationId),
@@ -59,7 +52,6 @@ class MedicationValidationServiceImplTest {
         Medication medication = new Medication();
         medication.setId(medicationId);
         when(medicationRepository.findById(medicationId)).thenReturn(Optional.of(medication));
-        when(droneMedicationRepository.findByMedicationId(medicationId)).thenReturn(Collections.emptyList());
 
         medicationValidationService.checkIfMedicationIsDeletable(medicationId);
     }
@@ -0,0 +1,61 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.BatteryReadingDTO;
+import com.medi.imesh.drone.dto.DroneDTO;
+import com.medi.imesh.drone.repository.DroneRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that battery levels written by the telemetry flush are seen by the next reads and writes of the drone,
+ * although they bypass the persistence context and the caches in front of it.
+ */
+@SpringBootTest
+class TelemetryIngestIntegrationTest {
+
+    private static final String SERIAL_NUMBER = "TLM001";
+
+    @Autowired
+    private TelemetryIngestService telemetryIngestService;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Test
+    void flush_IsSeenByTheNextReadsAndWrites() {
+
+        DroneDTO droneDTO = new DroneDTO();
+        droneDTO.setSerialNumber(SERIAL_NUMBER);
+        droneDTO.setModel("Lightweight");
+        droneDTO.setWeightLimit(100);
+        droneDTO.setBatteryCapacity(90);
+        droneDTO.setState(ApplicationConstants.DroneState.IDLE);
+        droneService.registerDrone(droneDTO);
+        // Cache the drone in the fleet state cache and its lookup in the query cache
+        assertEquals(90, droneService.findDroneBySerialNumber(SERIAL_NUMBER).orElseThrow().getBatteryCapacity());
+        droneRepository.findBySerialNumber(SERIAL_NUMBER);
+
+        telemetryIngestService.ingest(List.of(new BatteryReadingDTO(SERIAL_NUMBER, 10)));
+        telemetryIngestService.flush();
+
+        DroneDTO ingestedDrone = droneService.findDroneBySerialNumber(SERIAL_NUMBER).orElseThrow();
+        assertEquals(10, ingestedDrone.getBatteryCapacity());
+        assertEquals(Optional.of(10), droneService.getDroneBatteryLevel(SERIAL_NUMBER));
+        assertEquals(10, droneRepository.findBySerialNumber(SERIAL_NUMBER).orElseThrow().getBatteryCapacity());
+
+        DroneDTO updatedDrone = droneService.updateDroneBatteryLevel(SERIAL_NUMBER, 50, ingestedDrone.getVersion())
+                .orElseThrow();
+        assertEquals(50, updatedDrone.getBatteryCapacity());
+        assertEquals(ingestedDrone.getVersion() + 1, updatedDrone.getVersion());
+    }
+}
@@ -0,0 +1,196 @@
+package com.medi.imesh.drone.service;
+
+import com.medi.imesh.drone.cache.DroneSnapshot;
+import com.medi.imesh.drone.cache.FleetStateCache;
+import com.medi.imesh.drone.common.ApplicationConstants;
+import com.medi.imesh.drone.dto.BatteryReadingDTO;
+import com.medi.imesh.drone.dto.TelemetryIngestResultDTO;
+import com.medi.imesh.drone.event.DroneChangedEvent;
+import com.medi.imesh.drone.model.Drone;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TelemetryIngestServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache secondLevelCache;
+
+    @Mock
+    private org.hibernate.Cache hibernateCache;
+
+    @Mock
+    private FleetStateCache fleetStateCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private TelemetryIngestService telemetryIngestService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        lenient().when(secondLevelCache.unwrap(org.hibernate.Cache.class)).thenReturn(hibernateCache);
+        lenient().when(fleetStateCache.find(anyString())).thenReturn(Optional.empty());
+        lenient().when(fleetStateCache.find("DR001")).thenReturn(Optional.of(snapshot("DR001", 90)));
+        lenient().when(fleetStateCache.find("DR002")).thenReturn(Optional.of(snapshot("DR002", 40)));
+    }
+
+    private DroneSnapshot snapshot(String serialNumber, int batteryCapacity) {
+        return new DroneSnapshot(serialNumber, "Lightweight", 500, batteryCapacity,
+                ApplicationConstants.DroneState.IDLE, 0, 0, 0L);
+    }
+
+    @Test
+    void ingest_KeepsLatestReadingPerDroneAndDropsUnchangedLevels() {
+
+        TelemetryIngestResultDTO result = telemetryIngestService.ingest(List.of(
+                new BatteryReadingDTO("DR001", 85),
+                new BatteryReadingDTO("DR001", 80),
+                new BatteryReadingDTO("DR001", 80),
+                new BatteryReadingDTO("DR002", 40),
+                new BatteryReadingDTO("DR404", 10)));
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(1, result.getUnknownDrones());
+        assertEquals(1, telemetryIngestService.getBufferDepth());
+        assertEquals(1, telemetryIngestService.getCoalescedCount());
+        assertEquals(2, telemetryIngestService.getDuplicateCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_WritesBufferedLevelsWithOneBatchUpdateAndEvictsDrones() {
+
+        telemetryIngestService.ingest(List.of(new BatteryReadingDTO("DR001", 70),
+                new BatteryReadingDTO("DR002", 30), new BatteryReadingDTO("DR001", 65)));
+
+        int flushedDrones = telemetryIngestService.flush();
+
+        ArgumentCaptor<List<DroneChangedEvent>> readings = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), readings.capture(),
+                eq(ApplicationConstants.JDBC_BATCH_SIZE), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(2, flushedDrones);
+        Map<String, Integer> writtenLevels = new HashMap<>();
+        readings.getValue().forEach(reading -> writtenLevels.put(reading.getSerialNumber(),
+                reading.getBatteryCapacity()));
+        assertEquals(Map.of("DR001", 65, "DR002", 30), writtenLevels);
+        assertEquals(0, telemetryIngestService.getBufferDepth());
+        verify(fleetStateCache).evict("DR001");
+        verify(fleetStateCache).evict("DR002");
+        verify(secondLevelCache).evict(Drone.class, "DR001");
+        verify(secondLevelCache).evict(Drone.class, "DR002");
+        verify(hibernateCache).evictQueryRegion(ApplicationConstants.DRONE_QUERY_CACHE_REGION);
+        verify(eventPublisher, times(2)).publishEvent(any(DroneChangedEvent.class));
+    }
+
+    @Test
+    void flush_WhenBufferIsEmpty_DoesNotTouchDatabase() {
+
+        assertEquals(0, telemetryIngestService.flush());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_WhenUpdateFails_KeepsLevelsBuffered() {
+
+        telemetryIngestService.ingest(List.of(new BatteryReadingDTO("DR001", 70)));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("Connection lost"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> telemetryIngestService.flush());
+        assertEquals(1, telemetryIngestService.getBufferDepth());
+        verify(fleetStateCache, never()).evict(anyString());
+    }
+
+    @Test
+    void flush_WhenTransactionDoesNotCommit_KeepsLevelsBuffered() {
+
+        telemetryIngestService.ingest(List.of(new BatteryReadingDTO("DR001", 70)));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(1, telemetryIngestService.flush());
+            assertEquals(0, telemetryIngestService.getBufferDepth());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            assertEquals(1, telemetryIngestService.getBufferDepth());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void flush_PublishesBufferedReadingsWithoutReadingFleetState() {
+
+        telemetryIngestService.ingest(List.of(new BatteryReadingDTO("DR001", 70)));
+        clearInvocations(fleetStateCache);
+
+        telemetryIngestService.flush();
+
+        ArgumentCaptor<DroneChangedEvent> event = ArgumentCaptor.forClass(DroneChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("DR001", event.getValue().getSerialNumber());
+        assertEquals(70, event.getValue().getBatteryCapacity());
+        assertEquals(ApplicationConstants.DroneState.IDLE, event.getValue().getState());
+        verify(fleetStateCache, never()).find(anyString());
+    }
+
+    @Test
+    void ingest_WhenDroneIsUnknown_LooksItUpOnceUntilItIsRegistered() {
+
+        telemetryIngestService.ingest(List.of(new BatteryReadingDTO("DR404", 10)));
+        TelemetryIngestResultDTO result = telemetryIngestService.ingest(List.of(new BatteryReadingDTO("DR404", 9)));
+
+        assertEquals(1, result.getUnknownDrones());
+        verify(fleetStateCache, times(1)).find("DR404");
+
+        telemetryIngestService.onDroneRegistered(new DroneChangedEvent(DroneChangedEvent.ChangeType.REGISTERED,
+                "DR404", ApplicationConstants.DroneState.IDLE, 100, 0L));
+        telemetryIngestService.ingest(List.of(new BatteryReadingDTO("DR404", 8)));
+
+        verify(fleetStateCache, times(2)).find("DR404");
+    }
+}